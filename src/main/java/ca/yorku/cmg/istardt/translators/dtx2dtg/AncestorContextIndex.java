@@ -0,0 +1,103 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
+import ca.yorku.cmg.istardt.xmlparser.objects.DecompType;
+import ca.yorku.cmg.istardt.xmlparser.objects.DecompositionElement;
+
+/**
+ * Index of the context a decomposition element inherits from its ancestors:
+ * <ul>
+ * <li>its OR-exclusions: the siblings of the element, and of each of its ancestors,
+ * under OR-decomposed parents, nearest first;</li>
+ * <li>its preconditions: the rendered pre formulae of its ancestors, nearest first.</li>
+ * </ul>
+ * The index is built in one top-down pass over the decomposition trees of an actor,
+ * rendering each pre formula once, and is read-only afterwards.
+ */
+public class AncestorContextIndex {
+
+	private static final Context EMPTY = new Context(Collections.emptyList(), Collections.emptyList());
+
+	private final Map<DecompositionElement, Context> contexts = new IdentityHashMap<>();
+	private final FormulaParser parser;
+
+
+	private static class Context {
+		final List<DecompositionElement> orExclusions;
+		final List<String> preconditions;
+
+		Context(List<DecompositionElement> orExclusions, List<String> preconditions) {
+			this.orExclusions = orExclusions;
+			this.preconditions = preconditions;
+		}
+	}
+
+
+	public AncestorContextIndex(Actor a, FormulaParser parser) {
+		this.parser = parser;
+		for (DecompositionElement e:a.getGoals()) {
+			if (e.isRoot()) {
+				index(e, EMPTY);
+			}
+		}
+		for (DecompositionElement e:a.getTasks()) {
+			if (e.isRoot()) {
+				index(e, EMPTY);
+			}
+		}
+	}
+
+	private void index(DecompositionElement e, Context c) {
+		contexts.put(e, c);
+
+		List<DecompositionElement> children = e.getChildren();
+		if (children.isEmpty()) {
+			return;
+		}
+
+		String pre = (e.getPreFormula() != null) ? parser.parseConditionExpression(e.getPreFormula()) : null;
+		List<String> preconditions = c.preconditions;
+		if (pre != null) {
+			preconditions = new ArrayList<>(c.preconditions.size() + 1);
+			preconditions.add(pre);
+			preconditions.addAll(c.preconditions);
+		}
+
+		for (DecompositionElement child:children) {
+			if (child.isRoot()) {
+				continue;
+			}
+			List<DecompositionElement> orExclusions = c.orExclusions;
+			if (e.getDecompType() == DecompType.OR) {
+				orExclusions = new ArrayList<>(children.size() - 1 + c.orExclusions.size());
+				for (DecompositionElement sibling:children) {
+					if (sibling != child) {
+						orExclusions.add(sibling);
+					}
+				}
+				orExclusions.addAll(c.orExclusions);
+			}
+			index(child, new Context(orExclusions, preconditions));
+		}
+	}
+
+	/**
+	 * Gets the elements that must not have been attempted for the given one to be attempted.
+	 */
+	public List<DecompositionElement> getORExclusions(DecompositionElement e) {
+		return contexts.getOrDefault(e, EMPTY).orExclusions;
+	}
+
+	/**
+	 * Gets the rendered pre formulae the given element inherits from its ancestors.
+	 */
+	public List<String> getPreconditions(DecompositionElement e) {
+		return contexts.getOrDefault(e, EMPTY).preconditions;
+	}
+}
@@ -0,0 +1,319 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
+import ca.yorku.cmg.istardt.xmlparser.xml.ModelLoader;
+import ca.yorku.cmg.istardt.xmlparser.xml.snapshot.ModelCache;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ValidationException;
+
+/**
+ * Translates many iStarDT-X files in one run, on a fixed number of worker threads.
+ * <p>
+ * Each worker keeps its own {@link IStarUnmarshaller} (and thus its own configured
+ * XmlMapper) for all the files it processes. A file that fails to validate or translate
+ * is reported in the summary and does not stop the others.
+ */
+public class BatchTranslator {
+
+	private final int workers;
+	private final String outputDir;
+
+	private boolean validate = true;
+	private boolean printDate = true;
+	private long maxPermutations = com2dtg.DEFAULT_MAX_PERMUTATIONS;
+	private boolean truncatePermutations = false;
+	private boolean compactAnd = false;
+	private ModelCache cache = null;
+
+	private final ThreadLocal<IStarUnmarshaller> unmarshaller = ThreadLocal.withInitial(IStarUnmarshaller::new);
+
+
+	/**
+	 * The outcome of translating one file.
+	 */
+	public static class Result {
+		private final File input;
+		private final List<String> outputs;
+		private final String error;
+		private final long millis;
+		private final long bytes;
+
+		Result(File input, List<String> outputs, String error, long millis, long bytes) {
+			this.input = input;
+			this.outputs = outputs;
+			this.error = error;
+			this.millis = millis;
+			this.bytes = bytes;
+		}
+
+		public File getInput() {
+			return input;
+		}
+
+		/** Gets the files written, one per actor of the model. */
+		public List<String> getOutputs() {
+			return outputs;
+		}
+
+		public boolean isOk() {
+			return error == null;
+		}
+
+		/** Gets the reason the file failed, or null if it did not. */
+		public String getError() {
+			return error;
+		}
+
+		/** Gets the wall-clock time spent on the file, in milliseconds. */
+		public long getMillis() {
+			return millis;
+		}
+
+		/** Gets the total size of the files written, in bytes. */
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+
+	/**
+	 * @param workers number of files translated at the same time
+	 * @param outputDir directory for the DT-Golog files, or "" to write each next to its input
+	 */
+	public BatchTranslator(int workers, String outputDir) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Number of workers must be at least 1, got " + workers + ".");
+		}
+		this.workers = workers;
+		this.outputDir = outputDir;
+	}
+
+	public void setValidate(boolean validate) {
+		this.validate = validate;
+	}
+
+	/**
+	 * Reads unchanged files from their snapshot in the cache, and caches the others.
+	 * 
+	 * @param cache the snapshot cache, or null not to use one
+	 */
+	public void setCache(ModelCache cache) {
+		this.cache = cache;
+	}
+
+	public void setPrintDate(boolean printDate) {
+		this.printDate = printDate;
+	}
+
+	public void setMaxPermutations(long maxPermutations) {
+		this.maxPermutations = maxPermutations;
+	}
+
+	public void setTruncatePermutations(boolean truncatePermutations) {
+		this.truncatePermutations = truncatePermutations;
+	}
+
+	public void setCompactAnd(boolean compactAnd) {
+		this.compactAnd = compactAnd;
+	}
+
+
+	/**
+	 * Finds the files to translate: the .istardt/.istardtx files of a directory (not its
+	 * subdirectories), or the files matching a glob such as {@code models/**}{@code /*.istardt}.
+	 *
+	 * @return the files, sorted by path
+	 */
+	public static List<File> findInputs(String dirOrGlob) throws IOException {
+		int wildcard = indexOfWildcard(dirOrGlob);
+		Stream<Path> paths;
+		PathMatcher matcher;
+		if (wildcard < 0) {
+			Path dir = Path.of(dirOrGlob);
+			if (!Files.isDirectory(dir)) {
+				throw new IOException("Not a directory: " + dirOrGlob);
+			}
+			paths = Files.list(dir);
+			matcher = FileSystems.getDefault().getPathMatcher("glob:*.{istardt,istardtx}");
+		} else {
+			// walk from the deepest directory that has no wildcard in it
+			int sep = Math.max(dirOrGlob.lastIndexOf('/', wildcard), dirOrGlob.lastIndexOf(File.separatorChar, wildcard));
+			Path base = Path.of(sep < 0 ? "." : dirOrGlob.substring(0, sep + 1));
+			paths = Files.walk(base);
+			PathMatcher m = FileSystems.getDefault().getPathMatcher("glob:" + dirOrGlob);
+			matcher = (sep < 0) ? p -> m.matches(base.relativize(p)) : m;
+		}
+		try (Stream<Path> s = paths) {
+			return s.filter(Files::isRegularFile)
+					.filter(p -> matcher.matches(wildcard < 0 ? p.getFileName() : p))
+					.sorted()
+					.map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static int indexOfWildcard(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if ("*?[{".indexOf(s.charAt(i)) >= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Translates the given files on the worker pool and waits for all of them. Files that
+	 * would be translated into the same output file (e.g. {@code a.istardt} and 
+	 * {@code a.istardtx}, or files of different directories with one output directory)
+	 * fail without being translated, rather than overwrite each other.
+	 *
+	 * @return one result per file, in the order of the input
+	 */
+	public List<Result> translate(List<File> inputs) throws InterruptedException {
+		Map<Path, List<File>> targets = new HashMap<>();
+		for (File f:inputs) {
+			targets.computeIfAbsent(getTarget(f), t -> new ArrayList<>()).add(f);
+		}
+		
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<Result>> futures = new ArrayList<>();
+			for (File f:inputs) {
+				List<File> sharing = targets.get(getTarget(f));
+				if (sharing.size() > 1) {
+					List<String> others = new ArrayList<>();
+					for (File other:sharing) {
+						if (other != f) {
+							others.add(other.getPath());
+						}
+					}
+					futures.add(CompletableFuture.completedFuture(new Result(f, new ArrayList<>(), 
+							"Output file " + getOutputFile(f) + " is also the output of " + String.join(", ", others) + ".", 0, 0)));
+				} else {
+					futures.add(pool.submit(() -> translate(f)));
+				}
+			}
+			List<Result> results = new ArrayList<>();
+			for (Future<Result> future:futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					// translate(File) reports its own failures, this is a bug
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private Result translate(File input) {
+		long start = System.nanoTime();
+		List<String> outputs = new ArrayList<>();
+		try {
+			ModelLoader loader = new ModelLoader(unmarshaller.get(), validate ? SchemaValidator.getInstance() : null);
+			Model model = cache != null ? cache.load(input, loader) : loader.load(input);
+
+			com2dtg trans = new com2dtg(model, getOutputFile(input));
+			trans.setMaxPermutations(maxPermutations);
+			trans.setTruncatePermutations(truncatePermutations);
+			trans.setCompactAnd(compactAnd);
+			// before any output file is opened
+			trans.checkPermutationBudget();
+			List<Actor> actors = model.getActors();
+			if (actors.size() == 1) {
+				outputs.add(getOutputFile(input));
+			} else {
+				outputs.addAll(trans.getActorOutputFiles());
+			}
+			long bytes = 0;
+			for (int i = 0; i < actors.size(); i++) {
+				File out = new File(outputs.get(i));
+				if (out.getParentFile() != null) {
+					out.getParentFile().mkdirs();
+				}
+				com2dtg t = trans.forActor(actors.get(i), outputs.get(i));
+				t.setMaxPermutations(maxPermutations);
+				t.setTruncatePermutations(truncatePermutations);
+				t.setCompactAnd(compactAnd);
+				// the pool is the parallelism
+				t.setParallel(false);
+				try (Writer w = new BufferedWriter(new FileWriter(out))) {
+					t.translate(printDate, w);
+				}
+				bytes += out.length();
+			}
+			return new Result(input, outputs, null, elapsed(start), bytes);
+		} catch (Exception e) {
+			String error = (e instanceof ValidationException) ? ((ValidationException) e).getStage() + " failed: " : e.getClass().getSimpleName() + ": ";
+			return new Result(input, outputs, error + e.getMessage(), elapsed(start), 0);
+		}
+	}
+
+	private long elapsed(long start) {
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private Path getTarget(File input) {
+		return Path.of(getOutputFile(input)).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Gets the DT-Golog file for an input: its name with a .pl extension, in the output
+	 * directory or else next to the input.
+	 */
+	String getOutputFile(File input) {
+		String name = input.getName();
+		int dot = name.lastIndexOf('.');
+		name = (dot > 0 ? name.substring(0, dot) : name) + ".pl";
+		File dir = outputDir.isEmpty() ? input.getAbsoluteFile().getParentFile() : new File(outputDir);
+		return new File(dir, name).getPath();
+	}
+
+
+	/**
+	 * Formats the results as a table with one line per file and a total line.
+	 */
+	public static String summarize(List<Result> results) {
+		StringBuilder s = new StringBuilder();
+		long millis = 0, bytes = 0;
+		int failed = 0;
+		s.append(String.format("%-6s %9s %11s  %s%n", "STATUS", "TIME(ms)", "SIZE(B)", "FILE"));
+		for (Result r:results) {
+			s.append(String.format("%-6s %9d %11d  %s%n", r.isOk() ? "OK" : "FAILED", r.getMillis(), r.getBytes(), r.getInput().getPath()));
+			if (!r.isOk()) {
+				s.append("       ").append(r.getError()).append("\n");
+				failed++;
+			}
+			millis += r.getMillis();
+			bytes += r.getBytes();
+		}
+		s.append(String.format("%d files, %d failed, %d ms total, %d bytes written%n", results.size(), failed, millis, bytes));
+		return s.toString();
+	}
+}
@@ -0,0 +1,66 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fluents of a specification, each registered once, in the order they are first set,
+ * with the effects that set them (also once each, in order). The specification has one
+ * fluentList entry, one successor state axiom and one restoreSitArg fact per fluent, even
+ * when several effects make the same predicate true.
+ */
+public class FluentRegistry {
+
+	private final Map<String, List<String>> effects = new LinkedHashMap<>();
+
+
+	/**
+	 * Records that an effect sets a fluent.
+	 *
+	 * @return true if the fluent was not registered yet
+	 */
+	public boolean add(String fluent, String effect) {
+		List<String> setters = effects.get(fluent);
+		boolean added = (setters == null);
+		if (added) {
+			setters = new ArrayList<>(1);
+			effects.put(fluent, setters);
+		}
+		if (!setters.contains(effect)) {
+			setters.add(effect);
+		}
+		return added;
+	}
+
+	/**
+	 * Gets the fluents, in the order they were first set.
+	 */
+	public Set<String> getFluents() {
+		return Collections.unmodifiableSet(effects.keySet());
+	}
+
+	/**
+	 * Gets the effects setting a fluent, in the order they were registered.
+	 */
+	public List<String> getEffects(String fluent) {
+		List<String> setters = effects.get(fluent);
+		return (setters != null) ? Collections.unmodifiableList(setters) : Collections.emptyList();
+	}
+
+	/**
+	 * Renders the successor state axiom of a fluent: it holds after any of its effects,
+	 * and keeps holding once it does.
+	 */
+	public String getSuccessorStateAxiom(String fluent) {
+		StringBuilder s = new StringBuilder();
+		s.append(fluent).append("(do(A,S)) :- ").append(fluent).append("(S)");
+		for (String effect:getEffects(fluent)) {
+			s.append("; A=").append(effect);
+		}
+		return s.append(".\n").toString();
+	}
+}
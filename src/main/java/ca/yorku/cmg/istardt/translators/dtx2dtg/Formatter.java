@@ -2,39 +2,37 @@ package ca.yorku.cmg.istardt.translators.dtx2dtg;
 
 public class Formatter {
 
+	/**
+	 * Turns a name into a Prolog atom: letters and digits are kept, the other characters
+	 * separate words, and each word but the first starts with a capital letter.
+	 */
 	public String toCamelCase(String input) {
 		if (input == null || input.isEmpty()) {
 			return "";
 		}
 
-		// Keep only letters and digits, treat others as word separators
-		String[] parts = input.split("[^a-zA-Z0-9]+");
-
-		StringBuilder sb = new StringBuilder();
-
-		for (int i = 0; i < parts.length; i++) {
-			String part = parts[i];
-			if (part.isEmpty()) continue;
-
-			if (i == 0) {
-				// First word: lowercase first letter
-				sb.append(part.substring(0, 1).toLowerCase());
-				sb.append(part.substring(1));
-			} else {
-				// Other words: capitalize first letter
-				sb.append(part.substring(0, 1).toUpperCase());
-				sb.append(part.substring(1));
+		StringBuilder sb = new StringBuilder(input.length());
+		boolean wordStart = true;
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (!isWordChar(c)) {
+				wordStart = true;
+				continue;
 			}
+			if (wordStart) {
+				// First word: lowercase first letter (required for Prolog atoms), others capitalized
+				c = (sb.length() == 0) ? Character.toLowerCase(c) : Character.toUpperCase(c);
+				wordStart = false;
+			}
+			sb.append(c);
 		}
-
-		// Ensure first character is lowercase (required for Prolog atoms)
-		if (sb.length() > 0) {
-			sb.setCharAt(0, Character.toLowerCase(sb.charAt(0)));
-		}
-
 		return sb.toString();
 	}
 
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+	}
+
 	
 	public String trimTrailingCharacter(String s) {
 		return s.substring(0, s.length() - 1);
@@ -56,5 +54,13 @@ public class Formatter {
 	public String toAtt(String s) {
 		return s + "_Att";
 	}
+
+	public String toAvail(String s) {
+		return s + "_Avail";
+	}
+
+	public String toPick(String s) {
+		return s + "_Pick";
+	}
 }
 
@@ -1,14 +1,17 @@
 package ca.yorku.cmg.istardt.translators.dtx2dtg;
 
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.ANDOperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
 import ca.yorku.cmg.istardt.xmlparser.objects.Condition;
 import ca.yorku.cmg.istardt.xmlparser.objects.Element;
 import ca.yorku.cmg.istardt.xmlparser.objects.Formula;
+import ca.yorku.cmg.istardt.xmlparser.objects.FormulaVisitor;
 import ca.yorku.cmg.istardt.xmlparser.objects.GTOperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.Goal;
 import ca.yorku.cmg.istardt.xmlparser.objects.LTOperator;
@@ -16,6 +19,7 @@ import ca.yorku.cmg.istardt.xmlparser.objects.MinusOperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.MultiplyOperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.NOTOperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.NumericConstant;
+import ca.yorku.cmg.istardt.xmlparser.objects.OperatorDecorator;
 import ca.yorku.cmg.istardt.xmlparser.objects.OROperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.PlusOperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.Predicate;
@@ -26,6 +30,84 @@ import ca.yorku.cmg.istardt.xmlparser.objects.Variable;
 
 public class FormulaParser {
 	
+	/**
+	 * The ways a formula can be rendered into Prolog text.
+	 */
+	public enum Rendering {
+		CONDITION,
+		REWARD_PART1,
+		REWARD_PART2
+	}
+	
+	/**
+	 * Cache key: a formula compared by identity, the rendering and (for reward 
+	 * formulae) the indentation the rendering embeds.
+	 */
+	private static final class Key {
+		private final Formula formula;
+		private final Rendering rendering;
+		private final String indent;
+		
+		Key(Formula formula, Rendering rendering, String indent) {
+			this.formula = formula;
+			this.rendering = rendering;
+			this.indent = indent;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return formula == k.formula && rendering == k.rendering && indent.equals(k.indent);
+		}
+		
+		@Override
+		public int hashCode() {
+			return (31 * System.identityHashCode(formula) + rendering.hashCode()) * 31 + indent.hashCode();
+		}
+	}
+	
+	private final Map<Key,String> cache = new ConcurrentHashMap<>();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final ConditionRenderer conditionRenderer = new ConditionRenderer();
+	
+	private String cached(Formula f, Rendering r, String indent, Function<Formula,String> render) {
+		Key k = new Key(f, r, indent);
+		String s = cache.get(k);
+		if (s != null) {
+			cacheHits.increment();
+			return s;
+		}
+		cacheMisses.increment();
+		s = render.apply(f);
+		cache.put(k, s);
+		return s;
+	}
+	
+	/**
+	 * Gets the number of renderings served from the cache.
+	 */
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+	
+	/**
+	 * Gets the number of renderings that had to be computed.
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+	
+	/**
+	 * Empties the cache and resets its counters.
+	 */
+	public void clearCache() {
+		cache.clear();
+		cacheHits.reset();
+		cacheMisses.reset();
+	}
+	
 	public boolean isNumeric(String str) {
 	    if (str == null || str.isEmpty()) return false;
 	    try {
@@ -38,34 +120,66 @@ public class FormulaParser {
 	
 	
 	public String parseConditionExpression(Formula f) {
-		if (f instanceof OROperator) {
-			return "(" + parseConditionExpression(((OROperator) f).getLeft()) + ";" + parseConditionExpression(((OROperator) f).getRight()) + ")";
-		} else if (f instanceof ANDOperator) {
-			return "(" + parseConditionExpression(((ANDOperator) f).getLeft()) + "," + parseConditionExpression(((ANDOperator) f).getRight()) + ")";
-		} else if (f instanceof GTOperator) {
-			return  generateComparisonExpression(f,GTOperator.class,"<");
-		} else if (f instanceof LTOperator) {
-			return  generateComparisonExpression(f,LTOperator.class,"<");
-		} else if (f instanceof PreviousOperator) {
-			//System.out.println("What am I getting here:" + ((PreviousOperator) f).getLeft().getFormula());
-			Atom a = (Atom) ((PreviousOperator) f).getLeft();
+		return cached(f, Rendering.CONDITION, "", this::renderConditionExpression);
+	}
+	
+	private String renderConditionExpression(Formula f) {
+		return f.accept(conditionRenderer);
+	}
+	
+	/**
+	 * Renders a formula as a Prolog condition on situation S.
+	 */
+	private class ConditionRenderer implements FormulaVisitor<String> {
+		@Override
+		public String visitOR(OROperator f) {
+			return "(" + parseConditionExpression(f.getLeft()) + ";" + parseConditionExpression(f.getRight()) + ")";
+		}
+		
+		@Override
+		public String visitAND(ANDOperator f) {
+			return "(" + parseConditionExpression(f.getLeft()) + "," + parseConditionExpression(f.getRight()) + ")";
+		}
+		
+		@Override
+		public String visitGT(GTOperator f) {
+			return generateComparisonExpression(f,"<");
+		}
+		
+		@Override
+		public String visitLT(LTOperator f) {
+			return generateComparisonExpression(f,"<");
+		}
+		
+		@Override
+		public String visitPrevious(PreviousOperator f) {
+			Atom a = (Atom) f.getLeft();
 			return a.getTitleText() + "_fl(s0)";
-		} else if (f instanceof NOTOperator) {
-			return ("\\+ (" + parseConditionExpression(((NOTOperator) f).getLeft()) + ")");
-		} else if (f instanceof Atom) {
-			if ((((Atom) f).getElement() instanceof Goal) || (((Atom) f).getElement() instanceof Task)) {
-				return ((Atom) f).getTitleText() + "_Sat(S)";
-			} else if (((Atom) f).getElement() instanceof Predicate) {
-				return ((Atom) f).getTitleText() + "_fl(S)";
-			} else if (((Atom) f).getElement() instanceof Condition) {
-				return ((Atom) f).getTitleText() + "_fl(S)";
+		}
+		
+		@Override
+		public String visitNOT(NOTOperator f) {
+			return ("\\+ (" + parseConditionExpression(f.getLeft()) + ")");
+		}
+		
+		@Override
+		public String visitAtom(Atom f) {
+			if ((f.getElement() instanceof Goal) || (f.getElement() instanceof Task)) {
+				return f.getTitleText() + "_Sat(S)";
+			} else if (f.getElement() instanceof Predicate) {
+				return f.getTitleText() + "_fl(S)";
+			} else if (f.getElement() instanceof Condition) {
+				return f.getTitleText() + "_fl(S)";
 			} else {//quality or variable
-				return ((Atom) f).getTitleText() + "(S)";
+				return f.getTitleText() + "(S)";
 			}
-		} else {
+		}
+		
+		@Override
+		public String visitFormula(Formula f) {
 			System.err.println("parseConditionExpression: unimplemented operator [" + f.getClass().toGenericString() + "].");
+			return "";
 		}
-		return "";
 	}
 	
 	
@@ -78,30 +192,9 @@ public class FormulaParser {
 	}
 	
 	
-	private <T extends Formula> String generateComparisonExpression(
-			Formula f, 
-			Class<T> operatorType,
-			String operator
-			) {
-		
-	    if (!operatorType.isInstance(f)) {
-	        throw new IllegalArgumentException("Expected type " + operatorType.getSimpleName() +
-	                                           " but got " + f.getClass().getSimpleName());
-	    }
-
-	    T op = operatorType.cast(f); // Cast to the given type
-
-	    // Assuming getLeft() and getRight() are defined in the operatorType
-	    Formula left, right;
-	    try {
-	        Method getLeft = operatorType.getMethod("getLeft");
-	        Method getRight = operatorType.getMethod("getRight");
-
-	        left = (Formula) getLeft.invoke(op);
-	        right = (Formula) getRight.invoke(op);
-	    } catch (Exception e) {
-	        throw new RuntimeException("Failed to access getLeft/getRight methods", e);
-	    }
+	private String generateComparisonExpression(OperatorDecorator op, String operator) {
+	    Formula left = op.getLeft();
+	    Formula right = op.getRight();
 
 	    if (!(left instanceof Atom) || !(right instanceof Atom)) {
 	        throw new IllegalArgumentException("Expected both operands to be Atoms");
@@ -196,22 +289,60 @@ public class FormulaParser {
 	
 	
 	public String parseSimpleQualityExpressionPart1(Formula f,String indent) {
-		if (f instanceof MultiplyOperator) {
-			return parseSimpleQualityExpressionPart1(((MultiplyOperator) f).getLeft(),indent) +  
-					parseSimpleQualityExpressionPart1(((MultiplyOperator) f).getRight(),indent);
-		} else if (f instanceof PlusOperator) {
-			return parseSimpleQualityExpressionPart1(((PlusOperator) f).getLeft(),indent) +  
-					parseSimpleQualityExpressionPart1(((PlusOperator) f).getRight(),indent);
-		} else if (f instanceof MinusOperator) {
-			return parseSimpleQualityExpressionPart1(((MinusOperator) f).getLeft(),indent) +  
-					parseSimpleQualityExpressionPart1(((MinusOperator) f).getRight(),indent);
-		} else if (f instanceof PreviousOperator) {
-			return indent + getAtomExpressionForRewardFormulaPart1(((PreviousOperator) f));
-		} else if (f instanceof NumericConstant) {
+		return cached(f, Rendering.REWARD_PART1, indent, g -> renderSimpleQualityExpressionPart1(g, indent));
+	}
+	
+	private String renderSimpleQualityExpressionPart1(Formula f,String indent) {
+		return f.accept(new RewardPart1Renderer(indent));
+	}
+	
+	/**
+	 * Renders the value lookups that precede a reward expression, one per line.
+	 */
+	private class RewardPart1Renderer implements FormulaVisitor<String> {
+		private final String indent;
+		
+		RewardPart1Renderer(String indent) {
+			this.indent = indent;
+		}
+		
+		private String operands(OperatorDecorator f) {
+			return parseSimpleQualityExpressionPart1(f.getLeft(),indent) +  
+					parseSimpleQualityExpressionPart1(f.getRight(),indent);
+		}
+		
+		@Override
+		public String visitMultiply(MultiplyOperator f) {
+			return operands(f);
+		}
+		
+		@Override
+		public String visitPlus(PlusOperator f) {
+			return operands(f);
+		}
+		
+		@Override
+		public String visitMinus(MinusOperator f) {
+			return operands(f);
+		}
+		
+		@Override
+		public String visitPrevious(PreviousOperator f) {
+			return indent + getAtomExpressionForRewardFormulaPart1(f);
+		}
+		
+		@Override
+		public String visitNumericConstant(NumericConstant f) {
 			return("");
-		} else if (f instanceof Atom) {
-			return( indent + getAtomExpressionForRewardFormulaPart1((Atom) f));		
-		} else {
+		}
+		
+		@Override
+		public String visitAtom(Atom f) {
+			return( indent + getAtomExpressionForRewardFormulaPart1(f));
+		}
+		
+		@Override
+		public String visitFormula(Formula f) {
 			String issue = "parseSimpleQualityExpressionPart1 warning: type of |" + f.getFormula() +  "| is: " + f.getClass().toGenericString();
 			System.err.println(issue);
 			return (issue);
@@ -265,46 +396,63 @@ public class FormulaParser {
 	}
 	
 	public String parseSimpleQualityExpressionPart2(Formula f,String indent) {
-
-		if (f instanceof MultiplyOperator) {
-			return "(" + parseSimpleQualityExpressionPart2(((MultiplyOperator) f).getLeft(),indent) + ") * (" + 
-			parseSimpleQualityExpressionPart2(((MultiplyOperator) f).getRight(),indent) + ")";
-		} else if (f instanceof PlusOperator) {
-			return "(" + parseSimpleQualityExpressionPart2(((PlusOperator) f).getLeft(),indent) + ") + (" + 
-					parseSimpleQualityExpressionPart2(((PlusOperator) f).getRight(),indent) + ")";
-		} else if (f instanceof MinusOperator) {
-			return "(" + parseSimpleQualityExpressionPart2(((MinusOperator) f).getLeft(),indent) + ") - (" + 
-					parseSimpleQualityExpressionPart2(((MinusOperator) f).getRight(),indent) + ")";
-		} else if (f instanceof PreviousOperator) {
-			return(getAtomExpressionForRewardFormulaPart2((PreviousOperator) f));
-		} else if (f instanceof Atom) {
-			return( getAtomExpressionForRewardFormulaPart2((Atom) f));
-		} else if (f instanceof NumericConstant) {
-			return(String.valueOf(((NumericConstant) f).getContent()));
-		} else {
-			//Bakaliki
+		return cached(f, Rendering.REWARD_PART2, "", g -> renderSimpleQualityExpressionPart2(g, indent));
+	}
+	
+	private String renderSimpleQualityExpressionPart2(Formula f,String indent) {
+		return f.accept(new RewardPart2Renderer(indent));
+	}
+	
+	/**
+	 * Renders the arithmetic of a reward expression over the values looked up by part 1.
+	 */
+	private class RewardPart2Renderer implements FormulaVisitor<String> {
+		private final String indent;
+		
+		RewardPart2Renderer(String indent) {
+			this.indent = indent;
+		}
+		
+		private String operands(OperatorDecorator f, String operator) {
+			return "(" + parseSimpleQualityExpressionPart2(f.getLeft(),indent) + ") " + operator + " (" + 
+					parseSimpleQualityExpressionPart2(f.getRight(),indent) + ")";
+		}
+		
+		@Override
+		public String visitMultiply(MultiplyOperator f) {
+			return operands(f, "*");
+		}
+		
+		@Override
+		public String visitPlus(PlusOperator f) {
+			return operands(f, "+");
+		}
+		
+		@Override
+		public String visitMinus(MinusOperator f) {
+			return operands(f, "-");
+		}
+		
+		@Override
+		public String visitPrevious(PreviousOperator f) {
+			return(getAtomExpressionForRewardFormulaPart2(f));
+		}
+		
+		@Override
+		public String visitAtom(Atom f) {
+			return( getAtomExpressionForRewardFormulaPart2(f));
+		}
+		
+		@Override
+		public String visitNumericConstant(NumericConstant f) {
+			return(String.valueOf(f.getContent()));
+		}
+		
+		@Override
+		public String visitFormula(Formula f) {
 			String issue = "parseSimpleQualityExpressionPart2 warning: type of |" + f.getFormula() +  "| is: " + f.getClass().toGenericString();
 			System.err.println(issue);
 			return(issue);
-			/* if (f.getFormula().equals("0")) {
-				Quality qul = new Quality();
-				Atom a = new Atom();
-				NumericConstant x = new NumericConstant(23);
-				a.setElement(qul);
-				a.setTitleText("roomTemperature");
-				Formula nf = new MinusOperator(a,x);
-
-				return( parseSimpleQualityExpressionPart2(nf,indent) );	
-				//return("0");	
-			} else if (f.getFormula().equals("Unknown PredicateID")) {
-				Atom a = new Atom();
-				Predicate p = new Predicate();
-				a.setElement(p);
-				a.setTitleText("hvacOn");
-				return( getAtomExpressionForRewardFormulaPart2((Atom) a));	
-			} else {
-			return "ERROR in parseSimpleQUalityExpressionPart2";
-			} */
 		}
 	}
 	
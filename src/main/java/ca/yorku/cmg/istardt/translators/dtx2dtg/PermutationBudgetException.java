@@ -0,0 +1,24 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+/**
+ * Thrown when an AND-decomposed goal has more orderings than the permutation budget of
+ * the translator and truncation is off. It is raised before any output is written.
+ */
+public class PermutationBudgetException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String goal;
+
+	public PermutationBudgetException(String goal, String message) {
+		super(message);
+		this.goal = goal;
+	}
+
+	/**
+	 * Gets the name of the goal over the budget.
+	 */
+	public String getGoal() {
+		return goal;
+	}
+}
@@ -1,33 +1,118 @@
 package ca.yorku.cmg.istardt.translators.dtx2dtg;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class PermutationsGenerator {
 
     private List<String> result = new ArrayList<>();
 
+    /**
+     * Generates all orderings of the input at once.
+     * Use {@link #permutations(List, long)} for inputs whose orderings do not comfortably fit in memory.
+     */
     public List<String> generatePermutations(ArrayList<String> input) {
-        permute(input, 0);
+        Iterator<String> it = permutations(input, Long.MAX_VALUE);
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
         return result;
     }
 
-    private void permute(List<String> list, int start) {
-        if (start == list.size() - 1) {
-            result.add(String.join(" : ", list));
-            return;
+    /**
+     * Counts the orderings of n elements (n!), saturating at {@link Long#MAX_VALUE}.
+     */
+    public static long countPermutations(int n) {
+        long count = 1;
+        for (int i = 2; i <= n; i++) {
+            if (count > Long.MAX_VALUE / i) {
+                return Long.MAX_VALUE;
+            }
+            count *= i;
         }
+        return count;
+    }
 
-        for (int i = start; i < list.size(); i++) {
-            swap(list, start, i);
-            permute(list, start + 1);
-            swap(list, start, i); // backtrack
-        }
+    /**
+     * Lazily generates the orderings of the input, each joined with " : ".
+     * Orderings come out in the same order as {@link #generatePermutations(ArrayList)} produces them;
+     * only one ordering is held in memory at a time.
+     *
+     * @param input the elements to order; not modified
+     * @param limit the maximum number of orderings to return
+     * @return an iterator over at most {@code limit} orderings
+     */
+    public Iterator<String> permutations(List<String> input, long limit) {
+        return new PermutationIterator(input, limit);
     }
 
-    private void swap(List<String> list, int i, int j) {
-        String temp = list.get(i);
-        list.set(i, list.get(j));
-        list.set(j, temp);
+
+    /**
+     * Iterative form of the swap-and-backtrack recursion: level k tries every
+     * element from k onwards in position k, c[k] being the one currently in place.
+     */
+    private static class PermutationIterator implements Iterator<String> {
+        private final String[] list;
+        private final int[] c;
+        private final long limit;
+        private long produced = 0;
+        private int level = 0;
+        private String next;
+
+        PermutationIterator(List<String> input, long limit) {
+            this.list = input.toArray(new String[0]);
+            this.c = new int[list.length];
+            this.limit = limit;
+            this.next = list.length == 0 ? null : advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && produced < limit;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String current = next;
+            produced++;
+            next = produced < limit ? advance() : null;
+            return current;
+        }
+
+        private String advance() {
+            while (level >= 0) {
+                if (level == list.length - 1) {
+                    String permutation = String.join(" : ", list);
+                    backtrack();
+                    return permutation;
+                } else if (c[level] < list.length) {
+                    swap(level, c[level]);
+                    level++;
+                    c[level] = level;
+                } else {
+                    backtrack();
+                }
+            }
+            return null;
+        }
+
+        private void backtrack() {
+            level--;
+            if (level >= 0) {
+                swap(level, c[level]); // backtrack
+                c[level]++;
+            }
+        }
+
+        private void swap(int i, int j) {
+            String temp = list[i];
+            list[i] = list[j];
+            list[j] = temp;
+        }
     }
 }
@@ -0,0 +1,172 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a DT-Golog specification to a {@link Writer} as a sequence of ordered sections.
+ * <p>
+ * Sections are opened up front, in the order in which they must appear in the output,
+ * and are then filled in whatever order the translator produces their content. As soon
+ * as a section and every section before it are closed, they are written out and their
+ * buffers are released, so the complete specification is never assembled as one string.
+ */
+public class SectionEmitter {
+
+	/**
+	 * Content whose text is only produced when its section is written out.
+	 */
+	public interface Fragment {
+		void writeTo(Writer out) throws IOException;
+	}
+
+	private final Writer out;
+	private final List<Section> sections = new ArrayList<>();
+	private int written = 0;
+
+	public SectionEmitter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Opens a new section at the end of the specification.
+	 *
+	 * @param text initial text of the section (e.g. a comment heading)
+	 * @return the new section
+	 */
+	public Section open(String text) {
+		Section s = new Section(null, null, null);
+		s.append(text);
+		sections.add(s);
+		return s;
+	}
+
+	/**
+	 * Adds a section holding only the given text (e.g. a comment heading), closed at once.
+	 */
+	public void write(String text) throws IOException {
+		open(text).close();
+	}
+
+	/**
+	 * Opens a new section holding a separated list, e.g. {@code fluentList([a,b,c]).}
+	 *
+	 * @param prefix text written before the first item
+	 * @param separator text written between items
+	 * @param suffix text written after the last item, when the section is closed
+	 * @return the new section
+	 */
+	public Section openList(String prefix, String separator, String suffix) {
+		Section s = new Section(prefix, separator, suffix);
+		sections.add(s);
+		return s;
+	}
+
+	/**
+	 * Closes all remaining sections and writes them out.
+	 */
+	public void finish() throws IOException {
+		for (int i = written; i < sections.size(); i++) {
+			sections.get(i).seal();
+		}
+		drain();
+		out.flush();
+	}
+
+	private void drain() throws IOException {
+		while (written < sections.size() && sections.get(written).closed) {
+			sections.get(written).writeTo(out);
+			sections.set(written, null);
+			written++;
+		}
+	}
+
+
+	/**
+	 * A contiguous part of the specification.
+	 */
+	public class Section {
+		private final List<Object> parts = new ArrayList<>();
+		private StringBuilder text = new StringBuilder();
+		private final String separator;
+		private final String suffix;
+		private boolean empty = true;
+		private boolean closed = false;
+
+		private Section(String prefix, String separator, String suffix) {
+			this.separator = separator;
+			this.suffix = suffix;
+			if (prefix != null) {
+				text.append(prefix);
+			}
+		}
+
+		public Section append(String s) {
+			checkOpen();
+			text.append(s);
+			return this;
+		}
+
+		/**
+		 * Adds an item to a list section, preceded by the separator unless it is the first.
+		 */
+		public Section add(String item) {
+			checkOpen();
+			if (!empty) {
+				text.append(separator);
+			}
+			text.append(item);
+			empty = false;
+			return this;
+		}
+
+		/**
+		 * Appends content that is rendered straight to the output when the section is written.
+		 */
+		public Section appendDeferred(Fragment f) {
+			checkOpen();
+			if (text.length() > 0) {
+				parts.add(text.toString());
+				text = new StringBuilder();
+			}
+			parts.add(f);
+			return this;
+		}
+
+		/**
+		 * Closes the section; it is written out as soon as all earlier sections are closed too.
+		 */
+		public void close() throws IOException {
+			seal();
+			drain();
+		}
+
+		private void seal() {
+			if (!closed) {
+				if (suffix != null) {
+					text.append(suffix);
+				}
+				closed = true;
+			}
+		}
+
+		private void checkOpen() {
+			if (closed) {
+				throw new IllegalStateException("Section is already closed.");
+			}
+		}
+
+		private void writeTo(Writer w) throws IOException {
+			for (Object p : parts) {
+				if (p instanceof Fragment) {
+					((Fragment) p).writeTo(w);
+				} else {
+					w.write((String) p);
+				}
+			}
+			w.write(text.toString());
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
+import ca.yorku.cmg.istardt.xmlparser.objects.DecompositionElement;
+import ca.yorku.cmg.istardt.xmlparser.objects.Element;
+import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+
+/**
+ * The Prolog atoms of one translation: the identifier each element name is mangled into
+ * (see {@link Formatter#toCamelCase(String)}) and the atoms derived from identifiers and
+ * names by a suffix, such as {@code _Sat} or {@code _fl}. Each name is mangled and each
+ * atom is built once, then shared by all the clauses using it.
+ * <p>
+ * The goals and tasks of the actor are mangled upfront, in model order, so that names
+ * mangled into the same identifier, which would merge their clauses in the specification,
+ * are reported. The table can be read from several threads.
+ */
+public class SymbolTable {
+	private static final CustomLogger LOGGER = CustomLogger.getInstance();
+
+	/**
+	 * The suffixes of derived atoms.
+	 */
+	public enum Suffix {
+		SAT("_Sat"),
+		ATT("_Att"),
+		PRE("_Pre"),
+		FLUENT("_fl"),
+		PRE_FLUENT("_fl_pre"),
+		AVAIL("_Avail"),
+		PICK("_Pick");
+
+		private final String text;
+
+		Suffix(String text) {
+			this.text = text;
+		}
+
+		public String getText() {
+			return text;
+		}
+	}
+
+	private final Formatter formatter;
+	private final Map<String, String> identifiers = new ConcurrentHashMap<>();
+	private final List<Map<String, String>> derived = new ArrayList<>();
+	private final List<String> collisions = new ArrayList<>();
+
+
+	public SymbolTable(Actor a, Formatter formatter) {
+		this.formatter = formatter;
+		for (int i = 0; i < Suffix.values().length; i++) {
+			derived.add(new ConcurrentHashMap<>());
+		}
+
+		Map<String, String> owners = new HashMap<>();
+		declare(a.getGoals(), owners);
+		declare(a.getTasks(), owners);
+		for (String collision:collisions) {
+			LOGGER.warning(getClass(), () -> collision);
+		}
+	}
+
+	private void declare(List<? extends DecompositionElement> elements, Map<String, String> owners) {
+		for (DecompositionElement e:elements) {
+			String name = e.getName();
+			String id = id(name);
+			String owner = owners.putIfAbsent(id, (name == null) ? "" : name);
+			if (owner != null && !owner.equals((name == null) ? "" : name)) {
+				collisions.add("\"" + owner + "\" and \"" + name + "\" are both translated into " + id + ".");
+			}
+		}
+	}
+
+	/**
+	 * Gets the identifier of an element.
+	 */
+	public String id(Element e) {
+		return id(e.getName());
+	}
+
+	/**
+	 * Gets the identifier a name is mangled into.
+	 */
+	public String id(String name) {
+		if (name == null) {
+			return formatter.toCamelCase(null);
+		}
+		return identifiers.computeIfAbsent(name, formatter::toCamelCase);
+	}
+
+	/**
+	 * Gets the atom derived from an identifier or name by a suffix.
+	 */
+	public String atom(String base, Suffix suffix) {
+		if (base == null) {
+			return base + suffix.text;
+		}
+		return derived.get(suffix.ordinal()).computeIfAbsent(base, b -> b + suffix.text);
+	}
+
+	public String sat(String base) {
+		return atom(base, Suffix.SAT);
+	}
+
+	public String att(String base) {
+		return atom(base, Suffix.ATT);
+	}
+
+	public String pre(String base) {
+		return atom(base, Suffix.PRE);
+	}
+
+	public String fluent(String base) {
+		return atom(base, Suffix.FLUENT);
+	}
+
+	public String preFluent(String base) {
+		return atom(base, Suffix.PRE_FLUENT);
+	}
+
+	public String avail(String base) {
+		return atom(base, Suffix.AVAIL);
+	}
+
+	public String pick(String base) {
+		return atom(base, Suffix.PICK);
+	}
+
+	/**
+	 * Gets the collisions found among the goals and tasks: distinct names translated into
+	 * the same identifier.
+	 */
+	public List<String> getCollisions() {
+		return Collections.unmodifiableList(collisions);
+	}
+}
@@ -0,0 +1,322 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
+import ca.yorku.cmg.istardt.xmlparser.xml.ModelLoader;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ValidationException;
+
+/**
+ * Keeps a warm JVM that translates iStarDT-X documents posted over local HTTP.
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li>{@code POST /translate} with the iStarDT-X document as body returns the DT-Golog
+ * specification. Query parameters: {@code validate=false} skips validation,
+ * {@code compact=true}, {@code maxPermutations=n} and {@code truncate=true} are as
+ * the -c, -m and -w command line options, and {@code actor=name} picks the actor
+ * of a model with several.</li>
+ * <li>{@code GET /stats} returns queue depth, request counts and latencies as JSON.</li>
+ * </ul>
+ * At most {@code maxConcurrent} documents are translated at the same time and at most
+ * {@code maxQueued} wait for their turn; further requests are turned away with 503.
+ * The server only listens on the loopback interface.
+ */
+public class TranslationServer {
+
+	private static final int LATENCY_SAMPLES = 1024;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Semaphore slots;
+	private final int maxConcurrent;
+	private final int maxQueued;
+
+	// one warm unmarshaller per translation slot
+	private final Queue<IStarUnmarshaller> unmarshallers = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder served = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final AtomicLong maxMillis = new AtomicLong();
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private long latencyCount = 0;
+	private long totalMillis = 0;
+
+
+	/**
+	 * @param port port to listen on, 0 for any free port
+	 * @param maxConcurrent maximum number of documents translated at the same time
+	 * @param maxQueued maximum number of requests waiting for a translation slot
+	 */
+	public TranslationServer(int port, int maxConcurrent, int maxQueued) throws IOException {
+		if (maxConcurrent < 1 || maxQueued < 0) {
+			throw new IllegalArgumentException("Invalid concurrency limits: " + maxConcurrent + " concurrent, " + maxQueued + " queued.");
+		}
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+		this.slots = new Semaphore(maxConcurrent, true);
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/translate", this::handleTranslate);
+		server.createContext("/stats", this::handleStats);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waiting up to the given number of seconds for ongoing ones.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Gets the port the server listens on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+
+	/*
+	 * H A N D L E R S
+	 */
+
+	private void handleTranslate(HttpExchange ex) throws IOException {
+		try {
+			if (!"POST".equals(ex.getRequestMethod())) {
+				send(ex, 405, "Use POST with the iStarDT-X document as body.\n");
+				return;
+			}
+			if (!slots.tryAcquire()) {
+				if (queued.incrementAndGet() > maxQueued) {
+					queued.decrementAndGet();
+					rejected.increment();
+					send(ex, 503, "Server busy: " + maxConcurrent + " translations running and " + maxQueued + " queued.\n");
+					return;
+				}
+				try {
+					slots.acquire();
+				} finally {
+					queued.decrementAndGet();
+				}
+			}
+			inFlight.incrementAndGet();
+			long start = System.nanoTime();
+			try {
+				translate(ex);
+			} finally {
+				inFlight.decrementAndGet();
+				slots.release();
+				record((System.nanoTime() - start) / 1_000_000);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			send(ex, 503, "Server shutting down.\n");
+		} finally {
+			ex.close();
+		}
+	}
+
+	private void translate(HttpExchange ex) throws IOException {
+		Map<String,String> params = getParams(ex);
+		byte[] body;
+		try (InputStream in = ex.getRequestBody()) {
+			body = in.readAllBytes();
+		}
+
+		IStarUnmarshaller u = unmarshallers.poll();
+		Model model;
+		try {
+			SchemaValidator validator = "false".equals(params.get("validate")) ? null : SchemaValidator.getInstance();
+			model = new ModelLoader(u != null ? u : (u = new IStarUnmarshaller()), validator).load(new ByteArrayInputStream(body));
+		} catch (ValidationException e) {
+			failed.increment();
+			send(ex, e.getStage() == ValidationException.Stage.PARSE ? 400 : 422, e.getStage() + " failed:\n" + e.getMessage() + "\n");
+			return;
+		} catch (Exception e) {
+			failed.increment();
+			send(ex, 400, "Could not read the document: " + e.getMessage() + "\n");
+			return;
+		} finally {
+			if (u != null) {
+				unmarshallers.offer(u);
+			}
+		}
+
+		Actor actor = getActor(model, params.get("actor"));
+		if (actor == null) {
+			failed.increment();
+			send(ex, 400, (params.containsKey("actor") ? "No actor named " + params.get("actor") : "Model has several actors") +
+					"; pick one with actor=<name>, one of: " + getActorNames(model) + "\n");
+			return;
+		}
+
+		com2dtg trans = new com2dtg(model, actor, "");
+		try {
+			if (params.containsKey("maxPermutations")) {
+				trans.setMaxPermutations(Long.parseLong(params.get("maxPermutations")));
+			}
+			trans.setTruncatePermutations("true".equals(params.get("truncate")));
+			trans.setCompactAnd("true".equals(params.get("compact")));
+			// requests are the parallelism
+			trans.setParallel(false);
+			StringWriter out = new StringWriter();
+			trans.translate(true, out);
+			served.increment();
+			send(ex, 200, out.toString());
+		} catch (NumberFormatException e) {
+			failed.increment();
+			send(ex, 400, "maxPermutations must be a number.\n");
+		} catch (IllegalStateException e) {
+			failed.increment();
+			send(ex, 422, e.getMessage() + "\n");
+		} catch (RuntimeException e) {
+			failed.increment();
+			send(ex, 500, "Translation failed: " + e + "\n");
+		}
+	}
+
+	private void handleStats(HttpExchange ex) throws IOException {
+		try {
+			ex.getResponseHeaders().set("Content-Type", "application/json");
+			send(ex, 200, getStats());
+		} finally {
+			ex.close();
+		}
+	}
+
+
+	/*
+	 * H E L P E R S
+	 */
+
+	private Actor getActor(Model model, String name) {
+		if (name == null) {
+			return model.getActors().size() == 1 ? model.getActors().get(0) : null;
+		}
+		for (Actor a:model.getActors()) {
+			if (name.equals(a.getName())) {
+				return a;
+			}
+		}
+		return null;
+	}
+
+	private String getActorNames(Model model) {
+		StringBuilder s = new StringBuilder();
+		for (Actor a:model.getActors()) {
+			s.append(s.length() > 0 ? ", " : "").append(a.getName());
+		}
+		return s.toString();
+	}
+
+	private Map<String,String> getParams(HttpExchange ex) {
+		Map<String,String> params = new HashMap<>();
+		String query = ex.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String pair:query.split("&")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+							URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return params;
+	}
+
+	private void send(HttpExchange ex, int status, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		if (!ex.getResponseHeaders().containsKey("Content-Type")) {
+			ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		}
+		ex.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+
+	/*
+	 * S T A T S
+	 */
+
+	private void record(long millis) {
+		maxMillis.accumulateAndGet(millis, Math::max);
+		synchronized (latencies) {
+			totalMillis += millis;
+			latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = millis;
+		}
+	}
+
+	/**
+	 * Gets the statistics served at /stats: queue depth, translations in flight,
+	 * request counts and latencies in milliseconds (percentiles over the last
+	 * {@value #LATENCY_SAMPLES} translations).
+	 */
+	public String getStats() {
+		long[] sample;
+		long count;
+		long total;
+		synchronized (latencies) {
+			sample = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_SAMPLES));
+			// the requests with a latency, not every request counted (e.g. rejected ones)
+			count = latencyCount;
+			total = totalMillis;
+		}
+		Arrays.sort(sample);
+		return "{\n" +
+				"  \"queued\": " + queued.get() + ",\n" +
+				"  \"inFlight\": " + inFlight.get() + ",\n" +
+				"  \"maxConcurrent\": " + maxConcurrent + ",\n" +
+				"  \"maxQueued\": " + maxQueued + ",\n" +
+				"  \"served\": " + served.sum() + ",\n" +
+				"  \"failed\": " + failed.sum() + ",\n" +
+				"  \"rejected\": " + rejected.sum() + ",\n" +
+				"  \"latencyMeanMs\": " + (count == 0 ? 0 : total / count) + ",\n" +
+				"  \"latencyP50Ms\": " + percentile(sample, 50) + ",\n" +
+				"  \"latencyP95Ms\": " + percentile(sample, 95) + ",\n" +
+				"  \"latencyMaxMs\": " + maxMillis.get() + "\n" +
+				"}\n";
+	}
+
+	private long percentile(long[] sorted, int p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.min(sorted.length - 1, (sorted.length * p + 99) / 100 - 1)];
+	}
+}
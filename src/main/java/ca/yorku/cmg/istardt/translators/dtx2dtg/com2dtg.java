@@ -4,54 +4,68 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.*;
 
 public class com2dtg {
 	
+	/** Default budget of orderings per AND-decomposed goal: all orderings of 8 children. */
+	public static final long DEFAULT_MAX_PERMUTATIONS = 40320;
+	
 	private Model model;
+	private Actor actor;
 	private Formatter formatter;
 	private FormulaParser parser;
 	
 	private String outputFile;
 	
 	private String modelName = "Spec";
-	private String header = ""; 
-	private String numRuns = "";
-	private String problemType = "";
 	
-	private String crossRunSet = "transStateStructure([";
-
-	private String initList = "init([";
-	
-	private String agentActionList = "agentActionList([";
-	private String agentActions = "";
-	private String stochasticActionList = "stochasticActionList([";
-	private String stochasticActions = "";
-	private String nonDetActions = "";
-	private String fluentList = "fluentList([";
-
-	private String discreteExportedSet = "discreteExportedSet([";
-	private String continuousExportedSet = "continuousExportedSet([";
-	
-	private String procedures = "";
-	private String probabilities = "";
-	private String successorStateAxioms = "";
-	private String preconditionAxioms = "";
-	private String preconditionAxiomsTasks = "";
-//	private String successorStateAxiomsPre = "";
-	private String rewardFormulae = "";
-	private String satisfactionFormulae = "";
-	private String satisfactionFormulae_Effects = "";
-	private String rootSat = "";
-//	private String satisfactionFormulaePre = "";
-	private String attemptFormulae = "";
-	private String senseConditions = "";
-	private String restoreSitArg = "";	
+	private long maxPermutations = DEFAULT_MAX_PERMUTATIONS;
+	private boolean truncatePermutations = false;
+	private boolean compactAnd = false;
+	private boolean parallel = true;
+	
+	private AncestorContextIndex contextIndex;
+	private ModelIndex modelIndex;
+	private SymbolTable symbols;
+	private FluentRegistry fluents;
+	private SectionEmitter emitter;
+	
+	private SectionEmitter.Section agentActionList;
+	private SectionEmitter.Section agentActions;
+	private SectionEmitter.Section stochasticActionList;
+	private SectionEmitter.Section stochasticActions;
+	private SectionEmitter.Section nonDetActions;
+	private SectionEmitter.Section probabilities;
+	
+	private SectionEmitter.Section procedures;
+	private SectionEmitter.Section fluentList;
+	private SectionEmitter.Section successorStateAxioms;
+	private SectionEmitter.Section preconditionAxioms;
+	private SectionEmitter.Section preconditionAxiomsTasks;
+	private SectionEmitter.Section satisfactionFormulae;
+	private SectionEmitter.Section satisfactionFormulae_Effects;
+	private SectionEmitter.Section attemptFormulae;
+	private SectionEmitter.Section rootSat;
+	private SectionEmitter.Section rewardFormulae;
+	private SectionEmitter.Section senseConditions;
+	private SectionEmitter.Section restoreSitArg;	
+	private SectionEmitter.Section restoreSitArgConditions;
 
 	public com2dtg(Model m, String path) {
 		this.model = m;
@@ -59,9 +73,133 @@ public class com2dtg {
 		this.parser = new FormulaParser();
 		outputFile = path;
 	}
+	
+	/**
+	 * Creates a translator for one actor of the model only.
+	 */
+	public com2dtg(Model m, Actor a, String path) {
+		this(m, path);
+		this.actor = a;
+	}
 
+	/**
+	 * Sets the maximum number of orderings (proc/2 clauses) an AND-decomposed goal may expand to.
+	 */
+	public void setMaxPermutations(long maxPermutations) {
+		this.maxPermutations = maxPermutations;
+	}
+
+	/**
+	 * Sets whether goals over the permutation budget are truncated with a warning (true)
+	 * or abort the translation (false, default).
+	 */
+	public void setTruncatePermutations(boolean truncatePermutations) {
+		this.truncatePermutations = truncatePermutations;
+	}
+	
+	/**
+	 * Sets whether AND-decomposed goals are translated into a linear-size procedure that 
+	 * repeatedly picks any child not attempted yet (true), instead of one proc/2 clause 
+	 * per ordering of the children (false, default).
+	 */
+	public void setCompactAnd(boolean compactAnd) {
+		this.compactAnd = compactAnd;
+	}
+	
+	/**
+	 * Sets whether tasks and goals are translated in parallel on the common fork-join pool
+	 * (true, default). The output is identical either way.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Gets the formula parser used by this translator, e.g. to read its cache counters.
+	 */
+	public FormulaParser getParser() {
+		return parser;
+	}
+	
+	/**
+	 * Gets the actor this translator is bound to or, if it is not bound to one, the first actor of the model.
+	 */
 	public Actor getActor() {
-		return model.getActors().get(0);
+		return (actor != null) ? actor : model.getActors().get(0);
+	}
+	
+	/**
+	 * Creates a translator with the same settings as this one, bound to the given actor.
+	 */
+	public com2dtg forActor(Actor a, String path) {
+		com2dtg t = new com2dtg(model, a, path);
+		t.setMaxPermutations(maxPermutations);
+		t.setTruncatePermutations(truncatePermutations);
+		t.setCompactAnd(compactAnd);
+		t.setParallel(parallel);
+		return t;
+	}
+	
+	/**
+	 * Gets the output file of each actor of the model: the output file of this translator
+	 * with the (camel-cased) actor name inserted before the extension, e.g. 
+	 * {@code out/spec-alice.pl}. Actors without a name, or with the name of an earlier
+	 * actor, are told apart by their position in the model.
+	 */
+	public List<String> getActorOutputFiles() {
+		List<String> files = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		int dot = outputFile.lastIndexOf('.');
+		if (dot <= outputFile.lastIndexOf(File.separatorChar)) {
+			dot = outputFile.length();
+		}
+		int i = 1;
+		for (Actor a:model.getActors()) {
+			String name = formatter.toCamelCase(a.getName());
+			if (name.isEmpty() || names.contains(name)) {
+				name = name + "actor" + i;
+			}
+			names.add(name);
+			files.add(outputFile.substring(0, dot) + "-" + name + outputFile.substring(dot));
+			i++;
+		}
+		return files;
+	}
+	
+	/**
+	 * Translates every actor of the model into its own DT-Golog specification. The actors 
+	 * are independent of each other and are translated concurrently, unless parallel 
+	 * translation is off. Specifications go to the files given by {@link #getActorOutputFiles()} 
+	 * or, without an output file, to standard output one after the other, in model order.
+	 */
+	public void translateActors(boolean printDate) {
+		checkPermutationBudget();
+		translateActors(printDate, model.buildIndex());
+	}
+	
+	private void translateActors(boolean printDate, ModelIndex index) {
+		List<Actor> actors = model.getActors();
+		if (outputFile.equals("")) {
+			List<String> specs = stream(actors).map(a -> {
+				StringWriter w = new StringWriter();
+				try {
+					forActor(a, "").translate(printDate, w, index);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return w.toString();
+			}).collect(Collectors.toList());
+			for (String spec:specs) {
+				System.out.println(spec);
+			}
+		} else {
+			List<String> files = getActorOutputFiles();
+			List<com2dtg> translators = new ArrayList<>();
+			for (int i = 0; i < actors.size(); i++) {
+				translators.add(forActor(actors.get(i), files.get(i)));
+			}
+			stream(translators).forEach(t -> t.translateOne(printDate, index));
+		}
 	}
 	
 	
@@ -179,273 +317,182 @@ public class com2dtg {
 	}
 	
 	
-	private ArrayList<DecompositionElement> getORSiblings(DecompositionElement e, ArrayList<DecompositionElement> l) {
-		if (e.isRoot()) {
-			return(l);
-		}
-		
-		DecompositionElement parent = e.getParent();
-
-		if (parent.getDecompType() == DecompType.OR) {
-			for (DecompositionElement ch : e.getSiblings()) {
-				l.add(ch);
-			}
+	/**
+	 * Translates the model to the output file, or to standard output if there is none.
+	 * A translator not bound to an actor translates models with several actors through
+	 * {@link #translateActors(boolean)}, one specification per actor.
+	 */
+	public void translate(boolean printDate) {
+		// before any file is opened, so that a failed check does not clobber earlier output
+		checkPermutationBudget();
+		// one index for all actors, of the model as it is now
+		ModelIndex index = model.buildIndex();
+		if (actor == null && model.getActors().size() > 1) {
+			translateActors(printDate, index);
+		} else {
+			translateOne(printDate, index);
 		}
-		return getORSiblings(parent,l);
 	}
 	
-	
-	
-	private ArrayList<String> getPreFormulae(DecompositionElement e, ArrayList<String> l) {
-		if (e.isRoot()) {
-			return(l);
-		}
-		
-		DecompositionElement parent = e.getParent();
-
-		if (parent.getPreFormula() != null) {
-			String prec = parser.parseConditionExpression(parent.getPreFormula());
-			l.add(prec);
+	/**
+	 * Translates the actor of this translator to its output file, or to standard output.
+	 */
+	private void translateOne(boolean printDate, ModelIndex index) {
+		if (outputFile.equals("")) {
+			try {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+				translate(printDate, writer, index);
+				writer.write("\n");
+				writer.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		} else {
+	        File outFile = new File(this.outputFile);
+
+	        // Ensure the "output" directory exists
+	        File parentDir = outFile.getParentFile();
+	        if (parentDir != null && !parentDir.exists()) {
+	            parentDir.mkdirs();
+	        }
+
+	        try (Writer writer = new BufferedWriter(new FileWriter(outFile))) {
+	        	translate(printDate, writer, index);
+		        System.out.println("Written to file successfully.");
+		    } catch (IOException e) {
+		        e.printStackTrace();
+		    }
 		}
-		return getPreFormulae(parent,l);
 	}
 	
 	
+	/**
+	 * Translates the model and streams the resulting DT-Golog specification to the given writer.
+	 * Each section is closed as soon as the tasks, goals, conditions or qualities filling it
+	 * are translated, and written out once all sections before it are closed too. Sections
+	 * after one still being filled are held until then: nothing after the action lists is
+	 * written before the last task is translated, nor after the procedures before the last goal.
+	 * 
+	 * @param printDate whether to print the translation date in the header (false for tests)
+	 * @param out the writer to receive the specification; it is flushed but not closed
+	 * @throws IOException if writing fails
+	 */
+	public void translate(boolean printDate, Writer out) throws IOException {
+		translate(printDate, out, model.buildIndex());
+	}
 	
-	
-	public void translate(boolean printDate) {
-
-
+	/**
+	 * Translates the model with an index of it as it is now, shared by the actors.
+	 */
+	private void translate(boolean printDate, Writer out, ModelIndex index) throws IOException {
 		Actor a = getActor();
+		checkPermutationBudget(a, true);
+		contextIndex = new AncestorContextIndex(a, parser);
+		modelIndex = index;
+		symbols = new SymbolTable(a, formatter);
+		fluents = new FluentRegistry();
+		Goal goalRoot = modelIndex.getGoalRoot(a);
+		emitter = new SectionEmitter(out);
 		
 		/* 
 		 *  Preliminary
 		 */
 
-		header = getHeader();
+		emitter.open(
+				"% DT-Golog Specification for Model: " + modelName + " \n" +
+				"% Date Translated: " + (printDate ? getCurrentTime():"TEST")  + " \n" +
+				"% From source: " + modelName + " \n" +
+				"% Using DTTRanslate \n" +
+				getHeader() + "\n\n").close();
 		
 		/* 
 		 *  Preliminary
 		 */
 
+		SectionEmitter.Section options = emitter.open("%\n% OPTIONS \n% \n\n");
 		// Number of Runs
-		numRuns = "getNumRuns(" + a.getGoalRoot().getRuns() + ").";
+		options.append("getNumRuns(" + goalRoot.getRuns() + ").\n");
 		// Problem type
-		//problemType = isContinuous(a.getExportedSet()) ? "getObsType(continuous).\n" : "getObsType(discrete).\n";  
-		problemType = "getObsType(continuous).\n";
+		//options.append(isContinuous(a.getExportedSet()) ? "getObsType(continuous).\n" : "getObsType(discrete).\n");  
+		options.append("getObsType(continuous).\n\n");
+		options.close();
 		
 		// TODO
 		// Configure Reward style
 		// Configure infeasible penalty
 		
-		// DISCRETE EXPORTED SET
-		this.discreteExportedSet = getDiscreteExportedSet(a.getExportedSet());
+		// CROSS RUN SET
+		emitter.open("\n\n%\n% CROSS-RUN ELEMENTS \n% \n\n" + 
+				getCrossRunState(a.getCrossRunSet()) + "\n\n").close();
 		
+		// DISCRETE EXPORTED SET
 		// CONTINUOUS EXPORTED SET
-		this.continuousExportedSet = getContinuousExportedSet(a.getExportedSet());
-
-		// CROSS RUN SET
-		this.crossRunSet = getCrossRunState(a.getCrossRunSet());
+		emitter.open("\n\n%\n% EXPORTED STATE ELEMENTS \n% \n\n" +
+				getDiscreteExportedSet(a.getExportedSet()) + "\n\n" +
+				getContinuousExportedSet(a.getExportedSet()) + "\n\n").close();
 
 		// INITIALIZATIONS
-		this.initList = getInitializations(a.getInitializationSet());
+		emitter.open("\n\n%\n% INITIALIZATIONS \n% \n\n" +
+				getInitializations(a.getInitializationSet()) + "\n\n").close();
 
+		openSections();
 		
 		/* 
 		 *  Process Tasks
 		 */
 		
-		for (Task t:a.getTasks()) {
-			String taskID = formatter.toCamelCase(t.getName());
-			String taskPrecond = "";
-			
-			agentActionList += taskID + ",";
-			agentActions += "agentAction(" + taskID + ").\n";
-			nonDetActions += "nondetActions(" + taskID + ",_,[";
-			
-			String localSatFormula = "";
-			String localPreFormula = "";
-			String localAttFormula = "";
-			
-			for (Effect e: t.getEffects()) {
-				String effectID = e.getName(); //formatter.toCamelCase(e.getName());
-				ArrayList<String> localPreconditions = new ArrayList<String>();
-				
-				taskPrecond += "poss(" + effectID + ",S);";
-				
-				stochasticActionList += effectID + ",";
-				stochasticActions += "stochasticAction(" + effectID + ").\n";
-				nonDetActions += effectID + ",";
-				probabilities += "prob(" + effectID + "," + e.getProbability() + ",_).\n";
-				
-				String effectSatFormula = effectID + "_Sat(S) :- ";
+		translateAll(a.getTasks(), this::translateTask);
 
-				for(String pred : e.getTurnsTrue()) {
-					fluentList += formatter.toFluent(pred) + ",";
-					successorStateAxioms += formatter.toFluent(pred) + "(do(A,S)) :- " + 
-							formatter.toFluent(pred) + "(S); A=" + effectID + ".\n";
-					senseConditions += "senseCondition(" + effectID + "," + effectID + "_Occured).\n";
-					restoreSitArg += "restoreSitArg(" + formatter.toFluent(pred) + ",S," + formatter.toFluent(pred) + "(S)).\n";
-					
-					effectSatFormula += formatter.toFluent(pred) + "(S),";
-					localAttFormula += formatter.toFluent(pred) + "(S);";
-					
-					if (e.isSatisfying()) {
-						localSatFormula += formatter.toFluent(pred) + "(S);";
-						localPreFormula += formatter.toPreFluent(pred) + "(S);";
-					}
-					
-					
-				} //Next predicate
-				
-				// TODO: Process getTurnsFalse 
-				
-				satisfactionFormulae_Effects += formatter.trimTrailingCharacter(effectSatFormula) + ".\n";  
-				
-				
-				//
-				// EFECT PRECONDITIONS
-				//
-				
-				//Parent task
-				localPreconditions.add("\\+ " + taskID + "_Att(S)");
-
-				//
-				// Preconditions due to mutual XOR
-				//
-				for (DecompositionElement de: getORSiblings(t, new ArrayList<DecompositionElement>())) {
-					localPreconditions.add("\\+ " + de.getName() + "_Att(S)");
-				}
-				
-				//
-				// TODO: Preconditions due to PRE LINKS
-				//
-				for (String pres: getPreFormulae(t, new ArrayList<String>())) {
-					//System.out.println("*** PRE FORMULA: " + de);
-					localPreconditions.add(pres);
-				}
-								
-				//
-				// TODO: Preconditions due to NPR LINKS
-				//
-
-				//
-				// Precondition Rendering
-				//
-				preconditionAxioms += "poss(" + effectID + ",S) :- ";
-				
-				for (String prec:localPreconditions) {
-					preconditionAxioms += prec + ","; 
-				}
-				preconditionAxioms = preconditionAxioms.substring(0, preconditionAxioms.length() - 1) + ".\n";
-				
-
-			} // Next effect
-
-			localSatFormula = formatter.toSat(taskID) + "(S) :- " +  localSatFormula.substring(0, localSatFormula.length() - 1) + ".\n";
-			localPreFormula = formatter.toPreFluent(taskID) + "(S) :- " +  localPreFormula.substring(0, localPreFormula.length() - 1) + ".\n";
-			localAttFormula = formatter.toAtt(taskID) + "(S) :- " +  localAttFormula.substring(0, localAttFormula.length() - 1) + ".\n";
-
-			if (!taskPrecond.equals("")) {
-				taskPrecond = taskPrecond.substring(0, taskPrecond.length() - 1);
-				taskPrecond = "poss(" + taskID + ",S) :- (" + taskPrecond + ").\n";
-			} else {
-				taskPrecond = "poss(" + taskID + ",S).\n";
-			}
-			preconditionAxiomsTasks += taskPrecond; 
-			
-			restoreSitArg += "restoreSitArg(" + formatter.toSat(taskID) + ",S," + formatter.toSat(taskID) + "(S)).\n";
-			//restoreSitArg += "restoreSitArg(" + formatter.toPreFluent(taskID) + ",S," + formatter.toPreFluent(taskID) + "(S)).\n";
-			restoreSitArg += "restoreSitArg(" + formatter.toAtt(taskID) + ",S," + formatter.toAtt(taskID) + "(S)).\n";
-			
-			nonDetActions = nonDetActions.substring(0, nonDetActions.length() - 1) + "]).\n";
-			
-			satisfactionFormulae += localSatFormula;
-			//satisfactionFormulaePre += localPreFormula;
-			attemptFormulae += localAttFormula;
-
-			if (t.getPreFormula() != null) {
-				//System.out.println(parseBooleanFormula(t.getPreFormula()));
-			}
-
-		} // Task
-
-		// Task post-processing
-		agentActionList = agentActionList.substring(0, agentActionList.length() - 1) + "]).\n";
-		stochasticActionList = stochasticActionList.substring(0, stochasticActionList.length() - 1) + "]).\n";
+		// Task post-processing: one successor state axiom per fluent, merging the effects setting it
+		for (String fluent:fluents.getFluents()) {
+			fluentList.add(fluent);
+			successorStateAxioms.append(fluents.getSuccessorStateAxiom(fluent));
+		}
+		
+		// Action lists are complete and can be written out
+		agentActionList.close();
+		agentActions.close();
+		stochasticActionList.close();
+		stochasticActions.close();
+		nonDetActions.close();
+		probabilities.close();
+		satisfactionFormulae_Effects.close();
+		senseConditions.close();
 		
 		
 		/* 
 		 *  Process Goals
 		 */
-		for (Goal g:a.getGoals()) {
-			String procOp = "";
-			String formOp = "";
-			String goalID =  formatter.toCamelCase(g.getName());
-			
-		
-			if (g.getDecompType() == DecompType.AND) { // AND Decomposed
-				procOp = " : ";
-				formOp = ",";
-			} else if (g.getDecompType() == DecompType.OR) { //OR Decomposed
-				procOp = " # ";
-				formOp = ";";
-			}
-			
-			String procLine = "";
-			String localSatFormula = goalID + "_Sat(S) :- ";
-			String localAttFormula = goalID + "_Att(S) :- ";
-			String localPreFormula = goalID + "_Pre(S) :- ";
-			ArrayList<String> procChildren = new ArrayList<String>();
-			
-			for (DecompositionElement l: g.getChildren()) {
-				String childID = formatter.toCamelCase(l.getName());
-				procChildren.add(childID);
-				//procLine += childID + procOp;
-				localSatFormula += childID + "_Sat(S)" + formOp;
-				localPreFormula += childID + "_Pre(S)" + formOp;
-				localAttFormula += childID + "_Att(S)" + ";";
-			}
-			
-			if (g.getDecompType() == DecompType.AND) { // AND Decomposed
-				ArrayList<String> permutes = new ArrayList<String>();
-				PermutationsGenerator permutator = new PermutationsGenerator();
-				permutes = (ArrayList<String>) permutator.generatePermutations(procChildren);
-				for (String permute:permutes) {
-					procLine += "proc(" + goalID + ", " + permute + ").\n";  
-				}
-			} else {
-				procLine = "proc(" + goalID + ", ";
-				for (String child:procChildren) {
-					procLine += child + procOp;
-				}
-				procLine = procLine.substring(0, procLine.length() - 3) + ").\n";
-			}
-			
-			
-			
-			
-			localSatFormula = localSatFormula.substring(0, localSatFormula.length() - 1) + ".\n";
-			localAttFormula = localAttFormula.substring(0, localAttFormula.length() - 1) + ".\n";
-			localPreFormula = localPreFormula.substring(0, localPreFormula.length() - 1) + ".\n";
-			
+		translateAll(a.getGoals(), this::translateGoal);
 
-			restoreSitArg += "restoreSitArg(" + formatter.toSat(goalID) + ",S," + formatter.toSat(goalID) + "(S)).\n";
-			//restoreSitArg += "restoreSitArg(" + formatter.toPreFluent(taskID) + ",S," + formatter.toPreFluent(taskID) + "(S)).\n";
-			restoreSitArg += "restoreSitArg(" + formatter.toAtt(goalID) + ",S," + formatter.toAtt(goalID) + "(S)).\n";
-			
-			satisfactionFormulae += localSatFormula;
-			attemptFormulae += localAttFormula;
-			//satisfactionFormulaePre += localPreFormula;
-			procedures += procLine;
-		}
-
-		rootSat = "goalAchieved(S) :- " + a.getGoalRoot().getName() + "_Sat(S).\n";
-		procedures += "dtgRun :- write('Policy: '), bp(" + a.getGoalRoot().getName() + ",10,_,U,P,x),nl,"
+		procedures.append("dtgRun :- write('Policy: '), bp(" + goalRoot.getName() + ",10,_,U,P,x),nl,"
 				+ "\n        write('Utility: '),writeln(U), "
-				+ "\n        write('Probability: '),writeln(P).\n";
+				+ "\n        write('Probability: '),writeln(P).\n");
+		
+		procedures.append("dtgRun(L,U,P) :-  with_output_to(string(_),bp(" + goalRoot.getName() + ",10,L,U,P,x)).\n");
+		procedures.close();
+		fluentList.close();
+		successorStateAxioms.close();
+		preconditionAxioms.close();
+		preconditionAxiomsTasks.close();
+		attemptFormulae.close();
 		
-		procedures += "dtgRun(L,U,P) :-  with_output_to(string(_),bp(" + a.getGoalRoot().getName() + ",10,L,U,P,x)).\n";
+		/* 
+		 *  Process Conditions
+		 */
+		satisfactionFormulae.append("\n\n% Condition Box Related\n");
+		
+		for (Condition cond:a.getConditions()) {
+			//fluentList.add(cond.getName() + "_fl");
+			String fluent = symbols.fluent(cond.getName());
+			satisfactionFormulae.append(fluent + "(s0) :- !,initiallyTrue(" + fluent + ").\n");
+			satisfactionFormulae.append(fluent + "(S) :- " + parser.parseConditionExpression(cond.getFormula()) + ".\n");
+			restoreSitArgConditions.append("restoreSitArg(" + fluent + ",S," + fluent + "(S)).\n");
+		}
+		satisfactionFormulae.close();
+		
+		rootSat.append("goalAchieved(S) :- " + symbols.sat(goalRoot.getName()) + "(S).\n");
+		rootSat.close();
 		
 		/* 
 		 *  Process Qualities
@@ -457,57 +504,410 @@ public class com2dtg {
 					o.getName() + "(V_init,s0) :- getInitValue(" + o.getName() + ",V_init),!.\n";
 			String indent = " ".repeat((o.getName() + "(0,s0) :- ").length());
 
-			boolean addInit = !parser.isOperantOfPrevious(o, o.getFormula()) && isInCrossRun(o,a.getCrossRunSet());
+			boolean addInit = !parser.isOperantOfPrevious(o, o.getFormula()) && modelIndex.isCrossRun(o);
 
 			if (addInit) {
 				String part1 = o.getName() + "(V,S) :-" + o.getName() + "(R_" + o.getName() + "_init,s0),\n" +
 						parser.parseSimpleQualityExpressionPart1(o.getFormula(),indent);
 				String part2 = indent + "V is R_" + o.getName() + "_init +\n" + parser.parseSimpleQualityExpressionPart2(o.getFormula(),indent) + ".\n";
-				rewardFormulae +=  header + part1 + part2 + "\n\n";
+				rewardFormulae.append(header + part1 + part2 + "\n\n");
 			} else {
 				String part1 = o.getName() + "(V,S) :- \n" + parser.parseSimpleQualityExpressionPart1(o.getFormula(),indent);
 				String part2 = indent + "V is \n" + parser.parseSimpleQualityExpressionPart2(o.getFormula(),indent) + ".\n";
-				rewardFormulae +=  header + part1 + part2 + "\n\n";				
+				rewardFormulae.append(header + part1 + part2 + "\n\n");				
 			}
 			
-			restoreSitArg += "restoreSitArg(" + o.getName() + "(X),S," + o.getName() + "(X,S)).\n";
+			restoreSitArg.append("restoreSitArg(" + o.getName() + "(X),S," + o.getName() + "(X,S)).\n");
 			
 			if (o.isRoot()) {
 				rewardTotal = "rewardInst(R,S) :- " + o.getName() + "(R,S).\n";
 			}
 		}
-		rewardFormulae += "\n" + rewardTotal + "\n";
+		rewardFormulae.append("\n" + rewardTotal + "\n");
+		rewardFormulae.close();
+		restoreSitArg.close();
+		restoreSitArgConditions.close();
 		
+		emitter.finish();
+	}
+
+	
+	/**
+	 * Translates the given elements independently, in parallel unless disabled, and
+	 * merges their fragments in source order as they become available.
+	 */
+	private <T> void translateAll(List<T> elements, Function<T, Fragments> translation) {
+		stream(elements).map(translation).forEachOrdered(this::merge);
+	}
+	
+	private <T> Stream<T> stream(List<T> elements) {
+		return parallel ? elements.parallelStream() : elements.stream();
+	}
+	
+	
+	/**
+	 * Produces the fragments of all sections contributed by a single task and its effects.
+	 */
+	private Fragments translateTask(Task t) {
+		Fragments f = new Fragments();
+		String taskID = symbols.id(t);
+		StringJoiner taskPrecond = new StringJoiner(";");
+		StringJoiner nonDetEffects = new StringJoiner(",");
+		
+		f.agentActionList.add(taskID);
+		f.agentActions.append("agentAction(" + taskID + ").\n");
+		
+		StringJoiner localSatFormula = new StringJoiner(";");
+		StringJoiner localPreFormula = new StringJoiner(";");
+		StringJoiner localAttFormula = new StringJoiner(";");
+		
+		// Preconditions every effect inherits from the ancestors of the task
+		ArrayList<String> inheritedPreconditions = new ArrayList<String>();
+		for (DecompositionElement de: contextIndex.getORExclusions(t)) {
+			inheritedPreconditions.add("\\+ " + symbols.att(de.getName()) + "(S)");
+		}
+		inheritedPreconditions.addAll(contextIndex.getPreconditions(t));
 		
-		satisfactionFormulae += "\n\n% Condition Box Related\n";
+		for (Effect e: t.getEffects()) {
+			String effectID = e.getName(); //formatter.toCamelCase(e.getName());
+			ArrayList<String> localPreconditions = new ArrayList<String>();
+			
+			taskPrecond.add("poss(" + effectID + ",S)");
+			
+			f.stochasticActionList.add(effectID);
+			f.stochasticActions.append("stochasticAction(" + effectID + ").\n");
+			nonDetEffects.add(effectID);
+			f.probabilities.append("prob(" + effectID + "," + e.getProbability() + ",_).\n");
+			
+			StringJoiner effectSatFormula = new StringJoiner(",", symbols.sat(effectID) + "(S) :- ", ".\n");
+
+			if (!e.getTurnsTrue().isEmpty()) {
+				f.senseConditions.append("senseCondition(" + effectID + "," + effectID + "_Occured).\n");
+			}
+			for(String pred : e.getTurnsTrue()) {
+				String fluent = symbols.fluent(pred);
+				f.fluentSetters.add(new FluentSetter(fluent, effectID));
+				
+				effectSatFormula.add(fluent + "(S)");
+				localAttFormula.add(fluent + "(S)");
+				
+				if (e.isSatisfying()) {
+					localSatFormula.add(fluent + "(S)");
+					localPreFormula.add(symbols.preFluent(pred) + "(S)");
+				}
+				
+				
+			} //Next predicate
+			
+			// TODO: Process getTurnsFalse 
+			
+			f.satisfactionFormulae_Effects.append(effectSatFormula.toString());  
+			
+			
+			//
+			// EFECT PRECONDITIONS
+			//
+			
+			//Parent task
+			localPreconditions.add("\\+ " + symbols.att(taskID) + "(S)");
+
+			//
+			// Preconditions due to mutual XOR and PRE LINKS of ancestors
+			//
+			localPreconditions.addAll(inheritedPreconditions);
+							
+			//
+			// TODO: Preconditions due to NPR LINKS
+			//
+
+			//
+			// Precondition Rendering
+			//
+			f.preconditionAxioms.append("poss(" + effectID + ",S) :- " + String.join(",", localPreconditions) + ".\n");
+			
+
+		} // Next effect
+
+		String taskSat = symbols.sat(taskID);
+		String taskAtt = symbols.att(taskID);
+		f.satisfactionFormulae.append(taskSat + "(S) :- " + localSatFormula + ".\n");
+		//satisfactionFormulaePre.append(formatter.toPreFluent(taskID) + "(S) :- " + localPreFormula + ".\n");
+		f.attemptFormulae.append(taskAtt + "(S) :- " + localAttFormula + ".\n");
+
+		if (taskPrecond.length() > 0) {
+			f.preconditionAxiomsTasks.append("poss(" + taskID + ",S) :- (" + taskPrecond + ").\n");
+		} else {
+			f.preconditionAxiomsTasks.append("poss(" + taskID + ",S).\n");
+		}
 		
-		for (Condition cond:a.getConditions()) {
-			//fluentList += cond.getName() + "_fl,";
-			satisfactionFormulae += cond.getName() + "_fl(s0) :- !,initiallyTrue(" + cond.getName() + "_fl).\n";
-			satisfactionFormulae += cond.getName() + "_fl(S) :- " + parser.parseConditionExpression(cond.getFormula()) + ".\n";
-			restoreSitArg += "restoreSitArg(" + cond.getName() + "_fl,S," + cond.getName() + "_fl(S)).\n";
+		f.restoreSitArg.append("restoreSitArg(" + taskSat + ",S," + taskSat + "(S)).\n");
+		//f.restoreSitArg.append("restoreSitArg(" + formatter.toPreFluent(taskID) + ",S," + formatter.toPreFluent(taskID) + "(S)).\n");
+		f.restoreSitArg.append("restoreSitArg(" + taskAtt + ",S," + taskAtt + "(S)).\n");
+		
+		f.nonDetActions.append("nondetActions(" + taskID + ",_,[" + nonDetEffects + "]).\n");
+		
+		if (t.getPreFormula() != null) {
+			//System.out.println(parseBooleanFormula(t.getPreFormula()));
 		}
+
+		return f;
+	}
+	
+	
+	/**
+	 * Produces the fragments of all sections contributed by a single goal.
+	 */
+	private Fragments translateGoal(Goal g) {
+		Fragments f = new Fragments();
+		String procOp = "";
+		String formOp = "";
+		String goalID = symbols.id(g);
+		String goalSat = symbols.sat(goalID);
+		String goalAtt = symbols.att(goalID);
 		
-		satisfactionFormulae += "\n\n% Effect Related\n" + satisfactionFormulae_Effects + "\n";  
+	
+		if (g.getDecompType() == DecompType.AND) { // AND Decomposed
+			procOp = " : ";
+			formOp = ",";
+		} else if (g.getDecompType() == DecompType.OR) { //OR Decomposed
+			procOp = " # ";
+			formOp = ";";
+		}
 		
-		fluentList = fluentList.substring(0, fluentList.length() - 1) + "]).\n";
+		StringJoiner localSatFormula = new StringJoiner(formOp, goalSat + "(S) :- ", ".\n");
+		StringJoiner localAttFormula = new StringJoiner(";", goalAtt + "(S) :- ", ".\n");
+		StringJoiner localPreFormula = new StringJoiner(formOp, symbols.pre(goalID) + "(S) :- ", ".\n");
+		ArrayList<String> procChildren = new ArrayList<String>();
+		
+		for (DecompositionElement l: g.getChildren()) {
+			String childID = symbols.id(l);
+			procChildren.add(childID);
+			localSatFormula.add(symbols.sat(childID) + "(S)");
+			localPreFormula.add(symbols.pre(childID) + "(S)");
+			localAttFormula.add(symbols.att(childID) + "(S)");
+		}
 		
+		StringBuilder anyOrderAvail = new StringBuilder();
+		StringBuilder anyOrderRestore = new StringBuilder();
 		
-		if (outputFile.equals("")) {
-			printToStdOut(getSpecFromVars(printDate));
+		if ((g.getDecompType() == DecompType.AND) && compactAnd) { // AND Decomposed, any order
+			if (!procChildren.isEmpty()) {
+				// One pick step per child; each step runs a child not attempted yet
+				String pick = symbols.pick(goalID);
+				f.procedures.append("proc(" + goalID + ", " + String.join(" : ", Collections.nCopies(procChildren.size(), pick)) + ").\n");
+				StringJoiner choices = new StringJoiner(" # ", "proc(" + pick + ", ", ").\n");
+				for (String child:procChildren) {
+					String avail = symbols.avail(child);
+					choices.add("(?(" + avail + ") : " + child + ")");
+					anyOrderAvail.append(avail + "(S) :- \\+ " + symbols.att(child) + "(S).\n");
+					anyOrderRestore.append("restoreSitArg(" + avail + ",S," + avail + "(S)).\n");
+				}
+				f.procedures.append(choices.toString());
+			}
+		} else if (g.getDecompType() == DecompType.AND) { // AND Decomposed
+			long limit = Math.min(maxPermutations, PermutationsGenerator.countPermutations(procChildren.size()));
+			f.deferredProcedures = (w -> {
+				Iterator<String> permutes = new PermutationsGenerator().permutations(procChildren, limit);
+				while (permutes.hasNext()) {
+					w.write("proc(" + goalID + ", " + permutes.next() + ").\n");  
+				}
+			});
 		} else {
-			printToFile(getSpecFromVars(printDate));
+			f.procedures.append("proc(" + goalID + ", " + String.join(procOp, procChildren) + ").\n");
+		}
+		
+		f.restoreSitArg.append("restoreSitArg(" + goalSat + ",S," + goalSat + "(S)).\n");
+		//f.restoreSitArg.append("restoreSitArg(" + formatter.toPreFluent(taskID) + ",S," + formatter.toPreFluent(taskID) + "(S)).\n");
+		f.restoreSitArg.append("restoreSitArg(" + goalAtt + ",S," + goalAtt + "(S)).\n");
+		f.restoreSitArg.append(anyOrderRestore.toString());
+		
+		f.satisfactionFormulae.append(localSatFormula.toString());
+		f.attemptFormulae.append(localAttFormula.toString());
+		f.attemptFormulae.append(anyOrderAvail.toString());
+		//satisfactionFormulaePre.append(localPreFormula.toString());
+		return f;
+	}
+	
+	
+	/**
+	 * Appends the fragments of one task or goal to the specification sections.
+	 */
+	private void merge(Fragments f) {
+		for (String item:f.agentActionList) {
+			agentActionList.add(item);
 		}
+		for (String item:f.stochasticActionList) {
+			stochasticActionList.add(item);
+		}
+		append(agentActions, f.agentActions);
+		append(stochasticActions, f.stochasticActions);
+		append(nonDetActions, f.nonDetActions);
+		append(probabilities, f.probabilities);
+		append(procedures, f.procedures);
+		if (f.deferredProcedures != null) {
+			procedures.appendDeferred(f.deferredProcedures);
+		}
+		append(preconditionAxioms, f.preconditionAxioms);
+		append(preconditionAxiomsTasks, f.preconditionAxiomsTasks);
+		append(satisfactionFormulae, f.satisfactionFormulae);
+		append(satisfactionFormulae_Effects, f.satisfactionFormulae_Effects);
+		append(attemptFormulae, f.attemptFormulae);
+		append(senseConditions, f.senseConditions);
+		for (FluentSetter setter:f.fluentSetters) {
+			// the first effect setting a fluent brings its restoreSitArg fact
+			if (fluents.add(setter.fluent, setter.effect)) {
+				restoreSitArg.append("restoreSitArg(" + setter.fluent + ",S," + setter.fluent + "(S)).\n");
+			}
+		}
+		append(restoreSitArg, f.restoreSitArg);
+	}
+	
+	private void append(SectionEmitter.Section section, StringBuilder fragment) {
+		if (fragment.length() > 0) {
+			section.append(fragment.toString());
+		}
+	}
+	
+	
+	/**
+	 * The pieces of each section contributed by a single task or goal. Fragments are 
+	 * produced independently of each other and merged into the sections in source order,
+	 * so the output does not depend on the order in which they are produced.
+	 */
+	private static class Fragments {
+		final List<String> agentActionList = new ArrayList<>();
+		final StringBuilder agentActions = new StringBuilder();
+		final List<String> stochasticActionList = new ArrayList<>();
+		final StringBuilder stochasticActions = new StringBuilder();
+		final StringBuilder nonDetActions = new StringBuilder();
+		final StringBuilder probabilities = new StringBuilder();
+		final StringBuilder procedures = new StringBuilder();
+		SectionEmitter.Fragment deferredProcedures;
+		final List<FluentSetter> fluentSetters = new ArrayList<>();
+		final StringBuilder preconditionAxioms = new StringBuilder();
+		final StringBuilder preconditionAxiomsTasks = new StringBuilder();
+		final StringBuilder satisfactionFormulae = new StringBuilder();
+		final StringBuilder satisfactionFormulae_Effects = new StringBuilder();
+		final StringBuilder attemptFormulae = new StringBuilder();
+		final StringBuilder senseConditions = new StringBuilder();
+		final StringBuilder restoreSitArg = new StringBuilder();
 	}
 
+	/**
+	 * An effect making a fluent true, registered with the {@link FluentRegistry} on merge.
+	 */
+	private static class FluentSetter {
+		final String fluent;
+		final String effect;
+
+		FluentSetter(String fluent, String effect) {
+			this.fluent = fluent;
+			this.effect = effect;
+		}
+	}
 	
 	
-	private boolean isInCrossRun(Element e,CrossRunSet crs) {
-		boolean found = false;
-		for (Element cr: crs.getElements()) {
-			found = found || cr.getName().equals(e.getName());
+	/**
+	 * Opens the sections produced while walking tasks, goals, qualities and conditions,
+	 * in the order in which they appear in the specification. Headings between them are
+	 * closed at once, so that they do not hold back the sections after them.
+	 */
+	private void openSections() throws IOException {
+		emitter.write("\n\n%\n% ACTION LISTS \n% \n\n");
+		agentActionList = emitter.openList("agentActionList([", ",", "]).\n\n");
+		agentActions = emitter.open("");
+		emitter.write("\n");
+		stochasticActionList = emitter.openList("stochasticActionList([", ",", "]).\n\n");
+		stochasticActions = emitter.open("");
+		emitter.write("\n");
+		nonDetActions = emitter.open("");
+		emitter.write("\n");
+		probabilities = emitter.open("");
+		
+		emitter.write("\n\n\n%\n% PROCEDURES \n% \n\n");
+		procedures = emitter.open("");
+		
+		emitter.write("\n\n\n%\n% FLUENT LISTS \n% \n\n");
+		fluentList = emitter.openList("fluentList([", ",", "]).\n\n");
+		
+		emitter.write("%\n% SUCCESSOR STATE AXIOMS \n% \n\n");
+		successorStateAxioms = emitter.open("");
+		
+		emitter.write("\n%\n% PRECONDITION AXIOMS \n% \n\n");
+		preconditionAxioms = emitter.open("");
+		emitter.write("\n\n");
+		preconditionAxiomsTasks = emitter.open("");
+		
+		emitter.write("\n%\n% SATISFACTION FORMULAE \n% \n\n");
+		satisfactionFormulae = emitter.open("");
+		satisfactionFormulae_Effects = emitter.open("\n\n% Effect Related\n");
+		
+		emitter.write("\n\n%\n% ATTEMPT FORMULAE \n% \n\n");
+		attemptFormulae = emitter.open("");
+		
+		emitter.write("\n%\n% ROOT SATISFACTION \n% \n\n");
+		rootSat = emitter.open("");
+		
+		emitter.write("\n%\n% REWARD FORMULAE \n% \n\n");
+		rewardFormulae = emitter.open("");
+		
+		emitter.write("\n%\n% SENSE CONDITIONS \n% \n\n");
+		senseConditions = emitter.open("");
+		
+		emitter.write("\n%\n% RESTORE SITUATION ARGUMENT \n% \n\n");
+		restoreSitArg = emitter.open("");
+		// filled before the qualities are, but written after theirs
+		restoreSitArgConditions = emitter.open("");
+		emitter.write("\n");
+	}
+	
+	
+	/**
+	 * Pre-flight check on the number of proc/2 clauses AND-decomposed goals expand to, for
+	 * every actor this translator translates. {@link #translate(boolean)} runs it before 
+	 * opening any output file; callers passing their own writer can run it before opening it.
+	 * 
+	 * @throws PermutationBudgetException if a goal exceeds the budget and truncation is off
+	 */
+	public void checkPermutationBudget() {
+		if (actor != null) {
+			checkPermutationBudget(actor, false);
+		} else {
+			for (Actor a:model.getActors()) {
+				checkPermutationBudget(a, false);
+			}
+		}
+	}
+	
+	/**
+	 * Checks the goals of one actor against the permutation budget.
+	 * 
+	 * @param a the actor being translated
+	 * @param warn whether to warn about goals that will be truncated
+	 * @throws PermutationBudgetException if a goal exceeds the budget and truncation is off
+	 */
+	private void checkPermutationBudget(Actor a, boolean warn) {
+		if (compactAnd) {
+			return;
+		}
+		for (Goal g:a.getGoals()) {
+			if (g.getDecompType() != DecompType.AND) {
+				continue;
+			}
+			int children = g.getChildren().size();
+			long count = PermutationsGenerator.countPermutations(children);
+			if (count > maxPermutations) {
+				String issue = "AND-decomposed goal " + g.getName() + " has " + children + " children, i.e. " 
+						+ (count == Long.MAX_VALUE ? "more than " + Long.MAX_VALUE : count) 
+						+ " orderings; the budget is " + maxPermutations + ".";
+				if (!truncatePermutations) {
+					throw new PermutationBudgetException(g.getName(), issue);
+				}
+				if (warn) {
+					System.err.println("WARNING: " + issue + " Only the first " + maxPermutations + " orderings are emitted.");
+				}
+			}
 		}
-		return found;
 	}
 	
 	
@@ -517,72 +917,6 @@ public class com2dtg {
 	    return(now.format(formatter));
 	}
 
-	private String getSpecFromVars(boolean printDate) {
-		return (
-		
-		"% DT-Golog Specification for Model: " + modelName + " \n" +
-		"% Date Translated: " + (printDate ? getCurrentTime():"TEST")  + " \n" +
-		"% From source: " + modelName + " \n" +
-		"% Using DTTRanslate \n" +
-		header + "\n\n" +
-		
-		"%\n% OPTIONS \n% \n\n" +
-		numRuns + "\n" +
-		problemType + "\n" +
-		
-		"\n\n%\n% CROSS-RUN ELEMENTS \n% \n\n" +
-		crossRunSet + "\n\n" +
-		
-		"\n\n%\n% EXPORTED STATE ELEMENTS \n% \n\n" +
-		discreteExportedSet + "\n\n" +
-		continuousExportedSet + "\n\n" +
-		
-		"\n\n%\n% INITIALIZATIONS \n% \n\n" +
-		initList + "\n\n" +
-		
-		
-		"\n\n%\n% ACTION LISTS \n% \n\n" +
-		agentActionList + "\n" +
-		agentActions + "\n" +
-		stochasticActionList + "\n" +
-		stochasticActions + "\n" +
-		nonDetActions + "\n" +
-		probabilities + "\n" +
-
-		"\n\n%\n% PROCEDURES \n% \n\n" +
-		procedures + "\n" +
-		
-		"\n\n%\n% FLUENT LISTS \n% \n\n" +
-		fluentList + "\n" +
-		
-		"%\n% SUCCESSOR STATE AXIOMS \n% \n\n" +
-		successorStateAxioms + "\n" +
-
-		"%\n% PRECONDITION AXIOMS \n% \n\n" +
-		preconditionAxioms + "\n\n" +
-		preconditionAxiomsTasks + "\n" +
-		
-		"%\n% SATISFACTION FORMULAE \n% \n\n" +
-		satisfactionFormulae + "\n" +
-		
-		"%\n% ATTEMPT FORMULAE \n% \n\n" +
-		attemptFormulae + "\n" +
-		
-		"%\n% ROOT SATISFACTION \n% \n\n" +
-		rootSat + "\n" +
-
-		
-		"%\n% REWARD FORMULAE \n% \n\n" +
-		rewardFormulae + "\n" +
-		
-		"%\n% SENSE CONDITIONS \n% \n\n" +
-		senseConditions + "\n" +
-		
-		"%\n% RESTORE SITUATION ARGUMENT \n% \n\n" +
-		restoreSitArg + "\n");
-	}
-	
-
 	
 	private String getHeader() {
 		return (":-style_check(-discontiguous).\n"
@@ -595,27 +929,4 @@ public class com2dtg {
 				+ ":-dynamic(init/1).\n\n");
 	}
 
-	
-	private void printToFile(String s) {
-		
-        File outFile = new File(this.outputFile);
-
-        // Ensure the "output" directory exists
-        File parentDir = outFile.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outFile))) {
-	    	writer.write(s);
-	        System.out.println("Written to file successfully.");
-	    } catch (IOException e) {
-	        e.printStackTrace();
-	    }
-	}
-
-	private void printToStdOut(String s) {
-		System.out.println(s);
-	}
-
 }
@@ -1,11 +1,18 @@
 package ca.yorku.cmg.istardt.translators.dtx2dtg;
 
-import io.github.nina2dv.xmlvalidation.XmlValidation;
 import ca.yorku.cmg.istardt.xmlparser.objects.*;
 import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+import ca.yorku.cmg.istardt.xmlparser.xml.ModelLoader;
+import ca.yorku.cmg.istardt.xmlparser.xml.snapshot.ModelCache;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ValidationException;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.w3c.dom.Document;
 import java.util.List;
 
 /**
@@ -13,8 +20,6 @@ import java.util.List;
  */
 public class dtx2dtg {
 
-    private static final String XSD_SCHEMA_PATH = "src/main/resources/xsd/istar_dt_x_schema.xsd";
-    private static final String SCHEMATRON_SCHEMA_PATH = "src/main/resources/schematron/istar_dt_x_schematron.sch";
 
     private static final CustomLogger LOGGER = CustomLogger.getInstance();
     static boolean debugMode = false;
@@ -25,8 +30,17 @@ public class dtx2dtg {
     
 	static boolean translate = true;
 	static boolean validate = true;
+	static boolean useSchematron = false;
 	static boolean print = false;
 	static boolean unmarshal = true;
+	static long maxPermutations = com2dtg.DEFAULT_MAX_PERMUTATIONS;
+	static boolean truncatePermutations = false;
+	static boolean compactAnd = false;
+	static String batchInput = "";
+	static int workers = Runtime.getRuntime().availableProcessors();
+	static int serverPort = -1;
+	static int maxQueued = -1;
+	static String cacheDir = "";
 	
     
     
@@ -36,55 +50,58 @@ public class dtx2dtg {
 
         try {
         	processArgs(args);
+        	
+        	if (serverPort >= 0) {
+        		runServer();
+        		return;
+        	}
+        	
+        	if (!batchInput.isEmpty()) {
+        		runBatch();
+        		return;
+        	}
+        	
         	File xmlFile = new File(inputFile);
 
-            if (validate) {
-                File xsdFile = new File(XSD_SCHEMA_PATH);
-                File schematronFile = new File(SCHEMATRON_SCHEMA_PATH);
-                
-                if (!xsdFile.exists()) {
-                    System.err.println("Error: XSD schema file not found: " + XSD_SCHEMA_PATH);
-                    System.exit(1);
-                }
-
-                if (!schematronFile.exists()) {
-                    System.err.println("Error: Schematron schema file not found: " + SCHEMATRON_SCHEMA_PATH);
-                    System.exit(1);
-                }
-
-	            // Validate XML against XSD schema
-	            System.out.println("Validating XML against XSD schema...");
-	            try {
-	                XmlValidation.validate("xsd", xsdFile.getAbsolutePath(), xmlFile.getAbsolutePath());
-	            } catch (Exception e) {
-	                System.err.println("XSD validation failed:");
-	                System.err.println(e.getMessage());
-	                System.exit(1);
-	            }
-	
-	            // Validate XML against Schematron schema
-	            System.out.println("Validating XML against Schematron schema...");
-	            try {
-	                XmlValidation.validate("schematron", schematronFile.getAbsolutePath(), xmlFile.getAbsolutePath());
-	            } catch (Exception e) {
-	                System.err.println("Schematron validation failed:");
-	                System.err.println(e.getMessage());
-	                System.exit(1);
-	            }
-
-            }
-            
-            
             //Unmarshall only if you are asked to translate, print, or both
             unmarshal = print || translate;
             
+            // packaged schemas, with the Schematron rules precompiled at build time
+            SchemaValidator validator = validate ? SchemaValidator.getInstance() : null;
+            IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
+            // XSD check and (speculative) unmarshalling side by side, then the ModelChecker
+            // rules on the model; with -x, the Schematron check runs alongside instead
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            Model model = null;
+            try {
+            	ModelLoader loader = new ModelLoader(unmarshaller, validator, executor);
+            	loader.setUseSchematron(useSchematron);
+            	if (validate) {
+            		System.out.println(useSchematron ? "Validating XML against XSD and Schematron schemas..." : "Validating XML against XSD schema and semantic rules...");
+            	}
+            	if (unmarshal && !cacheDir.isEmpty()) {
+            		// validated and unmarshalled only if not cached yet
+            		System.out.println("Unmarshalling XML...");
+            		model = new ModelCache(new File(cacheDir)).load(xmlFile, loader);
+            	} else {
+            		// parsed once, for validation and unmarshalling alike
+            		Document document = ModelLoader.parse(xmlFile);
+            		if (unmarshal) {
+            			System.out.println("Unmarshalling XML...");
+            			model = loader.load(document);
+            		} else {
+            			loader.validate(document);
+            		}
+            	}
+            } catch (ValidationException e) {
+            	System.err.println(e.getStage() + " failed:");
+            	System.err.println(e.getMessage());
+            	System.exit(1);
+            } finally {
+            	executor.shutdownNow();
+            }
+            
             if (unmarshal) {
-                // Create unmarshaller
-                System.out.println("Unmarshalling XML...");
-                IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
-                // Unmarshal XML to model
-                Model model = unmarshaller.unmarshalToModel(xmlFile);
-
                 if (print) {
                     printModelInformation(model);
                    }
@@ -92,7 +109,17 @@ public class dtx2dtg {
                 if (translate) {
                     System.out.println("Tranlsating...");
                     com2dtg trans = new com2dtg(model,outputFile);
-                    trans.translate(true);
+                    trans.setMaxPermutations(maxPermutations);
+                    trans.setTruncatePermutations(truncatePermutations);
+                    trans.setCompactAnd(compactAnd);
+                    try {
+                    	trans.translate(true);
+                    } catch (PermutationBudgetException e) {
+                    	System.err.println("Translation failed: goal " + e.getGoal() + " is over the permutation budget:");
+                    	System.err.println(e.getMessage());
+                    	System.err.println("Raise the budget with -m, truncate with -w or use -c.");
+                    	System.exit(1);
+                    }
                 }            	
             }
             
@@ -103,6 +130,46 @@ public class dtx2dtg {
     }
 
     
+    /**
+     * Translates all files given with -b, -o naming the output directory.
+     */
+    private static void runBatch() throws Exception {
+    	List<File> inputs = BatchTranslator.findInputs(batchInput);
+    	if (inputs.isEmpty()) {
+    		System.err.println("No iStarDT-X files found in: " + batchInput);
+    		System.exit(1);
+    	}
+    	System.out.println("Translating " + inputs.size() + " files on " + workers + " workers...");
+    	
+    	BatchTranslator batch = new BatchTranslator(workers, outputFile);
+    	batch.setValidate(validate);
+    	batch.setMaxPermutations(maxPermutations);
+    	batch.setTruncatePermutations(truncatePermutations);
+    	batch.setCompactAnd(compactAnd);
+    	if (!cacheDir.isEmpty()) {
+    		batch.setCache(new ModelCache(new File(cacheDir)));
+    	}
+    	List<BatchTranslator.Result> results = batch.translate(inputs);
+    	
+    	System.out.print(BatchTranslator.summarize(results));
+    	if (results.stream().anyMatch(r -> !r.isOk())) {
+    		System.exit(1);
+    	}
+    }
+    
+    
+    /**
+     * Serves translations over HTTP on the -s port until the JVM is stopped.
+     */
+    private static void runServer() throws Exception {
+    	TranslationServer server = new TranslationServer(serverPort, workers, maxQueued < 0 ? 4 * workers : maxQueued);
+    	Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+    	server.start();
+    	System.out.println("Serving on http://localhost:" + server.getPort() + "/translate (stats at /stats), " + 
+    			workers + " translations at a time.");
+    }
+    
+    
     /** 
      * 
      * Argument Handling
@@ -114,10 +181,21 @@ public class dtx2dtg {
 		s = "Usage: dtx2dtg [-options]\n" + 
 				"where options are:\n" +
 				"    -f filename \t iStarDT-X XML file \n" + 
-				"    -o filename \t DT-Golog PL file \n" +
+				"    -o filename \t DT-Golog PL file (output directory with -b) \n" +
+				"    -b dir|glob \t batch: translate all .istardt/.istardtx files of a directory or glob \n" +
+				"    -j number \t number of files translated at the same time with -b or -s (default: number of cores) \n" +
+				"    -s port \t\t serve translations over HTTP on localhost:port \n" +
+				"    -q number \t max requests waiting for a translation with -s (default: 4 times -j) \n" +
 				"    -t \t\t\t translate only (skip validation) \n" +
 				"    -v \t\t\t validate only (skip tranlsation) \n" +
+				"    -x \t\t\t check the semantic rules with the Schematron stylesheet (slower) \n" +
+				"    -u \t\t\t unmarshal in a single streaming pass instead of through Jackson \n" +
+				"    -l \t\t\t build low-footprint models (sequential ids, shared names) \n" +
+				"    -k dir \t\t cache the unmarshalled models in dir, unchanged files are loaded from there \n" +
 				"    -p \t\t\t print model info  \n" +
+				"    -m number \t max orderings per AND-decomposed goal (default " + com2dtg.DEFAULT_MAX_PERMUTATIONS + ") \n" +
+				"    -w \t\t\t warn and truncate goals over the -m limit instead of aborting \n" +
+				"    -c \t\t\t compact any-order encoding of AND-decomposed goals \n" +
 				"    -h \t\t\t prints this help \n";
 		return(s);
 	}
@@ -153,9 +231,98 @@ public class dtx2dtg {
 		            	case 'v':
 		            		translate = false;
 		            		break;
+		            	case 'x':
+		            		useSchematron = true;
+		            		break;
+		            	case 'u':
+		            		// picked up by every unmarshaller, also those of -b and -s
+		            		System.setProperty(IStarUnmarshaller.STREAMING_PROPERTY, "true");
+		            		break;
+		            	case 'l':
+		            		System.setProperty(IStarUnmarshaller.COMPACT_PROPERTY, "true");
+		            		break;
+		            	case 'k':
+		                    if (i + 1 < args.length) {
+		                        cacheDir = args[i + 1];
+		                        i++;
+		                    } else {
+		                    	printUsage = true;
+			                	throw new Exception("Option -k requires a directory.");
+		                    }
+		                    break;
 		            	case 'p':
 		            		print = true;
 		            		break;
+		            	case 'm':
+		                    if (i + 1 < args.length) {
+		                    	try {
+		                    		maxPermutations = Long.parseLong(args[i + 1]);
+		                    	} catch (NumberFormatException e) {
+		                    		printUsage = true;
+		                    		throw new Exception("Option -m requires a number.");
+		                    	}
+		                        i++;
+		                    } else {
+		                    	printUsage = true;
+			                	throw new Exception("Option -m requires a number.");
+		                    }
+		                    break;
+		            	case 'b':
+		                    if (i + 1 < args.length) {
+		                        batchInput = args[i + 1];
+		                        i++;
+		                    } else {
+		                    	printUsage = true;
+			                	throw new Exception("Option -b requires a directory or glob.");
+		                    }
+		                    break;
+		            	case 'j':
+		                    if (i + 1 < args.length) {
+		                    	try {
+		                    		workers = Integer.parseInt(args[i + 1]);
+		                    	} catch (NumberFormatException e) {
+		                    		printUsage = true;
+		                    		throw new Exception("Option -j requires a number.");
+		                    	}
+		                        i++;
+		                    } else {
+		                    	printUsage = true;
+			                	throw new Exception("Option -j requires a number.");
+		                    }
+		                    if (workers < 1) {
+		                    	throw new Exception("Option -j requires a positive number.");
+		                    }
+		                    break;
+		            	case 's':
+		            	case 'q':
+		                    if (i + 1 < args.length) {
+		                    	int n;
+		                    	try {
+		                    		n = Integer.parseInt(args[i + 1]);
+		                    	} catch (NumberFormatException e) {
+		                    		printUsage = true;
+		                    		throw new Exception("Option -" + option + " requires a number.");
+		                    	}
+		                    	if (n < 0) {
+		                    		throw new Exception("Option -" + option + " requires a non-negative number.");
+		                    	}
+		                    	if (option == 's') {
+		                    		serverPort = n;
+		                    	} else {
+		                    		maxQueued = n;
+		                    	}
+		                        i++;
+		                    } else {
+		                    	printUsage = true;
+			                	throw new Exception("Option -" + option + " requires a number.");
+		                    }
+		                    break;
+		            	case 'w':
+		            		truncatePermutations = true;
+		            		break;
+		            	case 'c':
+		            		compactAnd = true;
+		            		break;
 		            	case 'h':
 		                    System.out.println(printUsage());
 		                    System.exit(0);
@@ -174,6 +341,22 @@ public class dtx2dtg {
 	       		throw new Exception("No arguments provided. Use -h for help.");
 	       }
 
+	       if (serverPort >= 0) {
+	    	   if (!inputFile.isEmpty() || !batchInput.isEmpty()) {
+	    		   printUsage = true;
+	    		   throw new Exception("Option -s cannot be used with -f or -b.");
+	    	   }
+	    	   return;
+	       }
+
+	       if (!batchInput.isEmpty()) {
+	    	   if (!inputFile.isEmpty()) {
+	    		   printUsage = true;
+	    		   throw new Exception("Options -f and -b cannot be used together.");
+	    	   }
+	    	   return;
+	       }
+
 	       if (inputFile.isEmpty()) {
 	    	   printUsage = true;
 	    	   throw new Exception("No input file specified. Use -f to specify input file.");
@@ -18,4 +18,9 @@ public class ANDOperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " AND " + right.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitAND(this);
+    }
 }
@@ -1,11 +1,15 @@
 package ca.yorku.cmg.istardt.xmlparser.objects;
 
+import java.util.Objects;
+
 public class Atom extends Formula {
     private String id;
     private String titleText;
     private String titleHTMLText;
     private String description;
     private Element element;
+    // In compact models the HTML title text is "<h>" + titleText + "</h>", built when asked for
+    private boolean titleHTMLDerived;
 
     /**
      * Get the ID of this atom
@@ -29,9 +33,13 @@ public class Atom extends Formula {
     }
 
     /**
-     * Set the title text of this atom
+     * Set the title text of this atom. A derived HTML title text keeps the old title.
      */
     public void setTitleText(String titleText) {
+        if (titleHTMLDerived && !Objects.equals(this.titleText, titleText)) {
+            this.titleHTMLText = getTitleHTMLText();
+            this.titleHTMLDerived = false;
+        }
         this.titleText = titleText;
     }
 
@@ -39,6 +47,9 @@ public class Atom extends Formula {
      * Get the HTML title text of this atom
      */
     public String getTitleHTMLText() {
+        if (titleHTMLDerived) {
+            return "<h>" + titleText + "</h>";
+        }
         return titleHTMLText;
     }
 
@@ -47,6 +58,23 @@ public class Atom extends Formula {
      */
     public void setTitleHTMLText(String titleHTMLText) {
         this.titleHTMLText = titleHTMLText;
+        this.titleHTMLDerived = false;
+    }
+
+    /**
+     * Makes the HTML title text {@code <h>title</h>} for the current title text, built when
+     * asked for instead of kept as a string of its own. Used by compact models.
+     */
+    public void deriveTitleHTMLText() {
+        this.titleHTMLText = null;
+        this.titleHTMLDerived = true;
+    }
+
+    /**
+     * Check if the HTML title text is derived from the title text
+     */
+    public boolean isTitleHTMLDerived() {
+        return titleHTMLDerived;
     }
 
     /**
@@ -83,7 +111,7 @@ public class Atom extends Formula {
         return "Atom{" +
                 "id='" + id + '\'' +
                 ", titleText='" + titleText + '\'' +
-                ", titleHTMLText='" + titleHTMLText + '\'' +
+                ", titleHTMLText='" + getTitleHTMLText() + '\'' +
                 ", description='" + description + '\'' +
                 '}';
     }
@@ -92,7 +120,7 @@ public class Atom extends Formula {
     public String toString() {
         return "Atom{id=" + id +
                 ", titleText=" + titleText +
-                ", titleHTMLText=" + titleHTMLText +
+                ", titleHTMLText=" + getTitleHTMLText() +
                 ", description=" + description + "}";
     }
 
@@ -103,16 +131,23 @@ public class Atom extends Formula {
 
         if (getTitleText() != null ? !getTitleText().equals(atom.getTitleText()) : atom.getTitleText() != null)
             return false;
-        if (getTitleHTMLText() != null ? !getTitleHTMLText().equals(atom.getTitleHTMLText()) : atom.getTitleHTMLText() != null)
+        // two derived HTML texts are equal if the titles are, without building them
+        if (!(titleHTMLDerived && atom.titleHTMLDerived)
+                && !Objects.equals(getTitleHTMLText(), atom.getTitleHTMLText()))
             return false;
         return getDescription() != null ? getDescription().equals(atom.getDescription()) : atom.getDescription() == null;
     }
 
     @Override
     public int hashCode() {
+        // the HTML title text is left out, it is derived from the title text in compact models
         int result = getTitleText() != null ? getTitleText().hashCode() : 0;
-        result = 31 * result + (getTitleHTMLText() != null ? getTitleHTMLText().hashCode() : 0);
         result = 31 * result + (getDescription() != null ? getDescription().hashCode() : 0);
         return result;
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitAtom(this);
+    }
 }
\ No newline at end of file
@@ -17,4 +17,9 @@ public class BooleanConstant extends Formula {
     public String getFormula() {
         return String.valueOf(content);
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitBooleanConstant(this);
+    }
 }
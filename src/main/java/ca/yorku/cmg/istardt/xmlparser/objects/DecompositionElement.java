@@ -1,7 +1,5 @@
 package ca.yorku.cmg.istardt.xmlparser.objects;
 
-import com.fasterxml.jackson.databind.JsonNode;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,24 +10,6 @@ public class DecompositionElement extends Element {
     protected Formula preFormula;
     protected Formula nprFormula;
     protected DecompositionElement parent;
-    protected JsonNode rawPreFormulaNode;
-    protected JsonNode rawNprFormulaNode;
-
-    public JsonNode getRawPreFormulaNode() {
-        return rawPreFormulaNode;
-    }
-
-    public void setRawPreFormulaNode(JsonNode rawPreFormulaNode) {
-        this.rawPreFormulaNode = rawPreFormulaNode;
-    }
-
-    public JsonNode getRawNprFormulaNode() {
-        return rawNprFormulaNode;
-    }
-
-    public void setRawNprFormulaNode(JsonNode rawNprFormulaNode) {
-        this.rawNprFormulaNode = rawNprFormulaNode;
-    }
 
     public DecompositionElement() {
         this.children = new ArrayList<>();
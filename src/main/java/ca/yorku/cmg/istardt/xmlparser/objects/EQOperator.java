@@ -10,4 +10,9 @@ public class EQOperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " == " + right.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitEQ(this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package ca.yorku.cmg.istardt.xmlparser.objects;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map to float values keeping the keys and the values in two arrays, in insertion order,
+ * without boxing the values or allocating an entry per mapping. Lookups scan the keys:
+ * it is meant for the few variable assignments of an effect, not for large maps.
+ * Null keys are allowed, null values are not.
+ *
+ * @param <K> The type of the keys
+ */
+public class FloatMap<K> extends AbstractMap<K, Float> {
+    private static final Object[] NO_KEYS = new Object[0];
+    private static final float[] NO_VALUES = new float[0];
+
+    private Object[] keys = NO_KEYS;
+    private float[] values = NO_VALUES;
+    private int size;
+
+    public FloatMap() {
+    }
+
+    public FloatMap(Map<? extends K, Float> m) {
+        keys = new Object[m.size()];
+        values = new float[m.size()];
+        putAll(m);
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(keys[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value of a key without boxing it.
+     */
+    public float getFloat(Object key, float defaultValue) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    /**
+     * Sets the value of a key without boxing it.
+     */
+    public void putFloat(K key, float value) {
+        int i = indexOf(key);
+        if (i < 0) {
+            if (size == keys.length) {
+                int capacity = Math.max(2, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            i = size++;
+            keys[i] = key;
+        }
+        values[i] = value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Float get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    @Override
+    public Float put(K key, Float value) {
+        int i = indexOf(key);
+        Float old = i >= 0 ? values[i] : null;
+        putFloat(key, value);
+        return old;
+    }
+
+    @Override
+    public Float remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        float old = values[i];
+        removeAt(i);
+        return old;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        keys[--size] = null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Drops the spare room left in the arrays by the insertions.
+     */
+    public void trimToSize() {
+        if (size < keys.length) {
+            keys = size == 0 ? NO_KEYS : Arrays.copyOf(keys, size);
+            values = size == 0 ? NO_VALUES : Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public Set<Entry<K, Float>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<K, Float>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<K, Float> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next++;
+                        return new MappingEntry(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Entry reading and writing through to the arrays.
+     */
+    private class MappingEntry implements Entry<K, Float> {
+        private final int index;
+
+        MappingEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) keys[index];
+        }
+
+        @Override
+        public Float getValue() {
+            return values[index];
+        }
+
+        @Override
+        public Float setValue(Float value) {
+            float old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> e && Objects.equals(getKey(), e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Float.hashCode(values[index]);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
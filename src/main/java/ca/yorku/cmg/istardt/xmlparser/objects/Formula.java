@@ -3,6 +3,13 @@ package ca.yorku.cmg.istardt.xmlparser.objects;
 public abstract class Formula {
     public abstract String getFormula();
 
+    /**
+     * Dispatches to the visit method of the given visitor that matches the type of this formula.
+     */
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitFormula(this);
+    }
+
     // Factory methods to create different formula types
     public static Formula createConstantFormula(final String value) {
         return new Formula() {
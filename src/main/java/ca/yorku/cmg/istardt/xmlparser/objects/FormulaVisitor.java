@@ -0,0 +1,40 @@
+package ca.yorku.cmg.istardt.xmlparser.objects;
+
+/**
+ * Visitor over the formula hierarchy, dispatched through {@link Formula#accept(FormulaVisitor)}.
+ * <p>
+ * Every visit method defaults to {@link #visitFormula(Formula)}, so implementations only
+ * override the formula types they handle.
+ *
+ * @param <R> the result type of the visit
+ */
+public interface FormulaVisitor<R> {
+
+    /**
+     * Visits a formula type that is not handled by a more specific method.
+     */
+    R visitFormula(Formula f);
+
+    default R visitAtom(Atom f) { return visitFormula(f); }
+    default R visitNumericConstant(NumericConstant f) { return visitFormula(f); }
+    default R visitBooleanConstant(BooleanConstant f) { return visitFormula(f); }
+
+    default R visitAND(ANDOperator f) { return visitFormula(f); }
+    default R visitOR(OROperator f) { return visitFormula(f); }
+    default R visitNOT(NOTOperator f) { return visitFormula(f); }
+
+    default R visitGT(GTOperator f) { return visitFormula(f); }
+    default R visitGTE(GTEOperator f) { return visitFormula(f); }
+    default R visitLT(LTOperator f) { return visitFormula(f); }
+    default R visitLTE(LTEOperator f) { return visitFormula(f); }
+    default R visitEQ(EQOperator f) { return visitFormula(f); }
+    default R visitNEQ(NEQOperator f) { return visitFormula(f); }
+
+    default R visitPlus(PlusOperator f) { return visitFormula(f); }
+    default R visitMinus(MinusOperator f) { return visitFormula(f); }
+    default R visitMultiply(MultiplyOperator f) { return visitFormula(f); }
+    default R visitDivide(DivideOperator f) { return visitFormula(f); }
+    default R visitNegate(NegateOperator f) { return visitFormula(f); }
+
+    default R visitPrevious(PreviousOperator f) { return visitFormula(f); }
+}
@@ -19,4 +19,9 @@ public class GTEOperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " >= " + right.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitGTE(this);
+    }
 }
\ No newline at end of file
@@ -18,4 +18,9 @@ public class GTOperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " > " + right.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitGT(this);
+    }
 }
\ No newline at end of file
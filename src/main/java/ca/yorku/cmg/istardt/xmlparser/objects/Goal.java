@@ -8,7 +8,9 @@ import java.util.List;
 @JsonDeserialize(using = GoalDeserializer.class)
 public class Goal extends DecompositionElement {
     private int runs;
+    private boolean runsDeclared;
     private boolean root;
+    private boolean terminal;
     private List<String> childGoalRefs;
     private List<String> childTaskRefs;
     private Actor actor;
@@ -27,6 +29,25 @@ public class Goal extends DecompositionElement {
         this.runs = runs;
     }
 
+    /**
+     * Tells whether the runs were given by an episodeLength attribute, rather than defaulted.
+     */
+    public boolean isRunsDeclared() {
+        return runsDeclared;
+    }
+
+    public void setRunsDeclared(boolean runsDeclared) {
+        this.runsDeclared = runsDeclared;
+    }
+
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    public void setTerminal(boolean terminal) {
+        this.terminal = terminal;
+    }
+
     public boolean isRoot() {
         return root;
     }
@@ -12,6 +12,8 @@ public class Model {
 
     private Options options;
 
+    private volatile ModelIndex index;
+
     public Model() {
         this.actors = new ArrayList<>();
     }
@@ -20,6 +22,7 @@ public class Model {
     }
     public void setActors(List<Actor> actors) {
         this.actors = actors;
+        this.index = null;
     }
 
     public Header getHeader() {
@@ -37,4 +40,24 @@ public class Model {
     public void setOptions(Options options) {
         this.options = options;
     }
+
+    /**
+     * Gets the index of the elements of this model: the one last built by
+     * {@link #buildIndex()}, or a new one if there is none. The index is a snapshot and
+     * does not follow changes to the actors and elements: whoever changes the model after
+     * it was built calls {@link #buildIndex()} again (the translators build their own).
+     */
+    public ModelIndex getIndex() {
+        ModelIndex i = index;
+        return (i != null) ? i : buildIndex();
+    }
+
+    /**
+     * Indexes the elements of this model as they are now, replacing any earlier index.
+     */
+    public synchronized ModelIndex buildIndex() {
+        ModelIndex i = new ModelIndex(this);
+        index = i;
+        return i;
+    }
 }
\ No newline at end of file
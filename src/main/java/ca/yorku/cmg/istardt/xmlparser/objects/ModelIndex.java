@@ -0,0 +1,346 @@
+package ca.yorku.cmg.istardt.xmlparser.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only, int-addressed view of the element graph of a model.
+ * <p>
+ * Each element gets a dense id, in the order of the actors and, within an actor, of its
+ * goals, tasks, effects, qualities, conditions, predicates and variables. The parents,
+ * children and siblings of an element are kept as ids, its kind in one bitset per
+ * {@link Kind}, and the roots and cross-run and export memberships are answered without
+ * scanning lists. Elements are told apart by identity, not by {@link Element#equals(Object)},
+ * except for cross-run membership, which goes by name.
+ * <p>
+ * The index is a snapshot of the model when it is built (see {@link Model#getIndex()}):
+ * it does not follow later changes to the model.
+ */
+public class ModelIndex {
+
+    /**
+     * Kinds of indexed elements.
+     */
+    public enum Kind {
+        ACTOR, GOAL, TASK, EFFECT, QUALITY, CONDITION, PREDICATE, VARIABLE
+    }
+
+    private static final int[] NONE = new int[0];
+
+    private final Element[] elements;
+    private final Map<Element, Integer> ids;
+    private final BitSet[] kinds;
+
+    // Per element: its actor, its parent (or -1) and its children
+    private final int[] actor;
+    private final int[] parent;
+    private final int[][] children;
+
+    // Per element: the ids it is a sibling among (the children of its parent, or the
+    // effects of its task) and its position in them, or null and -1
+    private final int[][] siblingGroup;
+    private final int[] siblingPosition;
+
+    // Per element, if it is an actor: its roots, or -1
+    private final int[] goalRoot;
+    private final int[] qualityRoot;
+
+    // Per actor id: the names of its cross-run elements
+    private final Map<Integer, Set<String>> crossRunNames = new HashMap<>();
+    private final BitSet exported = new BitSet();
+
+    /**
+     * Indexes the elements of a model, once its references are resolved.
+     */
+    public ModelIndex(Model model) {
+        List<Element> all = new ArrayList<>();
+        List<Kind> allKinds = new ArrayList<>();
+        ids = new IdentityHashMap<>();
+        for (Actor a : model.getActors()) {
+            add(a, Kind.ACTOR, all, allKinds);
+            addAll(a.getGoals(), Kind.GOAL, all, allKinds);
+            addAll(a.getTasks(), Kind.TASK, all, allKinds);
+            addAll(a.getEffects(), Kind.EFFECT, all, allKinds);
+            for (Task t : a.getTasks()) {
+                // effects are collected by the reference processor, hand-built models may lack them
+                addAll(t.getEffects(), Kind.EFFECT, all, allKinds);
+            }
+            addAll(a.getQualities(), Kind.QUALITY, all, allKinds);
+            addAll(a.getConditions(), Kind.CONDITION, all, allKinds);
+            addAll(a.getPredicates(), Kind.PREDICATE, all, allKinds);
+            addAll(a.getVariables(), Kind.VARIABLE, all, allKinds);
+        }
+
+        int n = all.size();
+        elements = all.toArray(new Element[0]);
+        kinds = new BitSet[Kind.values().length];
+        for (int k = 0; k < kinds.length; k++) {
+            kinds[k] = new BitSet(n);
+        }
+        for (int i = 0; i < n; i++) {
+            kinds[allKinds.get(i).ordinal()].set(i);
+        }
+
+        actor = new int[n];
+        parent = new int[n];
+        children = new int[n][];
+        siblingGroup = new int[n][];
+        siblingPosition = new int[n];
+        goalRoot = new int[n];
+        qualityRoot = new int[n];
+        Arrays.fill(parent, -1);
+        Arrays.fill(siblingPosition, -1);
+        Arrays.fill(goalRoot, -1);
+        Arrays.fill(qualityRoot, -1);
+
+        int current = -1;
+        for (int i = 0; i < n; i++) {
+            Element e = elements[i];
+            if (e instanceof Actor) {
+                current = i;
+                index((Actor) e, i);
+            }
+            actor[i] = current;
+            children[i] = NONE;
+            if (e instanceof DecompositionElement && !(e instanceof Effect)) {
+                DecompositionElement d = (DecompositionElement) e;
+                parent[i] = idOf(d.getParent());
+                children[i] = idsOf(d.getChildren());
+                if (children[i].length > 0) {
+                    group(children[i]);
+                }
+            }
+            if (e instanceof Task) {
+                int[] effects = idsOf(((Task) e).getEffects());
+                if (effects.length > 0) {
+                    group(effects);
+                }
+            }
+        }
+    }
+
+    private void add(Element e, Kind kind, List<Element> all, List<Kind> allKinds) {
+        if (e != null && !ids.containsKey(e)) {
+            ids.put(e, all.size());
+            all.add(e);
+            allKinds.add(kind);
+        }
+    }
+
+    private void addAll(List<? extends Element> list, Kind kind, List<Element> all, List<Kind> allKinds) {
+        if (list != null) {
+            for (Element e : list) {
+                add(e, kind, all, allKinds);
+            }
+        }
+    }
+
+    private void index(Actor a, int id) {
+        goalRoot[id] = idOf(a.getGoalRoot());
+        qualityRoot[id] = idOf(a.getQualityRoot());
+        if (a.getCrossRunSet() != null) {
+            Set<String> names = new HashSet<>();
+            for (Element e : a.getCrossRunSet().getElements()) {
+                if (e != null && e.getName() != null) {
+                    names.add(e.getName());
+                }
+            }
+            crossRunNames.put(id, names);
+        }
+        if (a.getExportedSet() != null) {
+            for (Export e : a.getExportedSet().getExports()) {
+                setIfIndexed(exported, e.getElement());
+            }
+        }
+    }
+
+    private void setIfIndexed(BitSet set, Element e) {
+        int id = idOf(e);
+        if (id >= 0) {
+            set.set(id);
+        }
+    }
+
+    private void group(int[] members) {
+        for (int p = 0; p < members.length; p++) {
+            siblingGroup[members[p]] = members;
+            siblingPosition[members[p]] = p;
+        }
+    }
+
+    private int idOf(Element e) {
+        if (e == null) {
+            return -1;
+        }
+        Integer id = ids.get(e);
+        return id != null ? id : -1;
+    }
+
+    private int[] idsOf(List<? extends Element> list) {
+        if (list == null || list.isEmpty()) {
+            return NONE;
+        }
+        int[] result = new int[list.size()];
+        int count = 0;
+        for (Element e : list) {
+            int id = idOf(e);
+            if (id >= 0) {
+                result[count++] = id;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Gets the number of indexed elements; ids go from 0 to this, excluded.
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Gets the id of an element.
+     *
+     * @return The id, or -1 if the element is not part of the indexed model
+     */
+    public int getId(Element e) {
+        return idOf(e);
+    }
+
+    public Element getElement(int id) {
+        return elements[id];
+    }
+
+    public Kind getKind(int id) {
+        for (Kind k : Kind.values()) {
+            if (kinds[k.ordinal()].get(id)) {
+                return k;
+            }
+        }
+        throw new IndexOutOfBoundsException("No element with id " + id);
+    }
+
+    public boolean is(int id, Kind kind) {
+        return kinds[kind.ordinal()].get(id);
+    }
+
+    /**
+     * Gets the ids of the elements of a kind.
+     *
+     * @return A copy of the bitset of the kind
+     */
+    public BitSet getIds(Kind kind) {
+        return (BitSet) kinds[kind.ordinal()].clone();
+    }
+
+    /**
+     * Gets the id of the actor an element belongs to.
+     */
+    public int getActor(int id) {
+        return actor[id];
+    }
+
+    /**
+     * Gets the id of the parent of a decomposition element.
+     *
+     * @return The id, or -1 if the element is a root or not a goal or task
+     */
+    public int getParent(int id) {
+        return parent[id];
+    }
+
+    /**
+     * Gets the ids of the children of a decomposition element, in order.
+     */
+    public int[] getChildren(int id) {
+        return children[id].clone();
+    }
+
+    public int getChildCount(int id) {
+        return children[id].length;
+    }
+
+    /**
+     * Gets the ids of the siblings of an element: the other children of its parent or, for
+     * an effect, the other effects of its task.
+     */
+    public int[] getSiblings(int id) {
+        int[] group = siblingGroup[id];
+        if (group == null) {
+            return NONE;
+        }
+        int p = siblingPosition[id];
+        int[] result = new int[group.length - 1];
+        System.arraycopy(group, 0, result, 0, p);
+        System.arraycopy(group, p + 1, result, p, group.length - p - 1);
+        return result;
+    }
+
+    public boolean isSibling(int id, int other) {
+        return id != other && siblingGroup[id] != null && siblingGroup[id] == siblingGroup[other];
+    }
+
+    /**
+     * Gets the root goal of an actor.
+     *
+     * @return The root goal, or null if there is none or the actor is not indexed
+     */
+    public Goal getGoalRoot(Actor a) {
+        int id = idOf(a);
+        return (id >= 0 && goalRoot[id] >= 0) ? (Goal) elements[goalRoot[id]] : null;
+    }
+
+    /**
+     * Gets the root quality of an actor.
+     *
+     * @return The root quality, or null if there is none or the actor is not indexed
+     */
+    public Quality getQualityRoot(Actor a) {
+        int id = idOf(a);
+        return (id >= 0 && qualityRoot[id] >= 0) ? (Quality) elements[qualityRoot[id]] : null;
+    }
+
+    /**
+     * Checks if an element is in the cross-run set of its actor. As everywhere in the
+     * translators, the set is matched by name: any element of the actor named like a
+     * cross-run element is in it.
+     */
+    public boolean isCrossRun(Element e) {
+        int id = idOf(e);
+        if (id < 0 || e.getName() == null) {
+            return false;
+        }
+        Set<String> names = crossRunNames.get(actor[id]);
+        return names != null && names.contains(e.getName());
+    }
+
+    /**
+     * Checks if an element is in the exported set of its actor.
+     */
+    public boolean isExported(Element e) {
+        int id = idOf(e);
+        return id >= 0 && exported.get(id);
+    }
+
+    /**
+     * Gets the elements with the given ids, in order.
+     */
+    public List<Element> getElements(int[] ids) {
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Element> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(elements[id]);
+        }
+        return result;
+    }
+}
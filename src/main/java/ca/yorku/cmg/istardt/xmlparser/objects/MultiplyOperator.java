@@ -10,6 +10,9 @@ public class MultiplyOperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " * " + right.getFormula() + ")";
     }
-}
-
 
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitMultiply(this);
+    }
+}
@@ -19,4 +19,9 @@ public class NOTOperator extends OperatorDecorator {
     public String getFormula() {
         return "NOT(" + left.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitNOT(this);
+    }
 }
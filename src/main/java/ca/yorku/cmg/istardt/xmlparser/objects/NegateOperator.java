@@ -10,4 +10,9 @@ public class NegateOperator extends OperatorDecorator {
     public String getFormula() {
         return "-(" + left.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitNegate(this);
+    }
 }
\ No newline at end of file
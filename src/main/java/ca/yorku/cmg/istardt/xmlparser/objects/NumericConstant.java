@@ -19,4 +19,9 @@ public class NumericConstant extends Formula {
     public String getFormula() {
         return String.valueOf(content);
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitNumericConstant(this);
+    }
 }
@@ -18,4 +18,9 @@ public class OROperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " OR " + right.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitOR(this);
+    }
 }
@@ -11,4 +11,18 @@ public abstract class OperatorDecorator extends Formula {
     public Formula getRight(){
         return this.right;
     }
+
+    /**
+     * Replaces the left operand, e.g. a placeholder once the element it stands for is known.
+     */
+    public void setLeft(Formula left){
+        this.left = left;
+    }
+
+    /**
+     * Replaces the right operand.
+     */
+    public void setRight(Formula right){
+        this.right = right;
+    }
 }
@@ -10,6 +10,9 @@ public class PlusOperator extends OperatorDecorator {
     public String getFormula() {
         return "(" + left.getFormula() + " + " + right.getFormula() + ")";
     }
-}
-
 
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitPlus(this);
+    }
+}
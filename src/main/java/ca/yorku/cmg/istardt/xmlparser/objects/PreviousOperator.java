@@ -10,4 +10,9 @@ public class PreviousOperator extends OperatorDecorator {
     public String getFormula() {
         return "PREVIOUS(" + left.getFormula() + ")";
     }
+
+    @Override
+    public <R> R accept(FormulaVisitor<R> visitor) {
+        return visitor.visitPrevious(this);
+    }
 }
\ No newline at end of file
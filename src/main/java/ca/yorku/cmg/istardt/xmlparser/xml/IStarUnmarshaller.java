@@ -4,25 +4,90 @@ import ca.yorku.cmg.istardt.xmlparser.objects.Model;
 import ca.yorku.cmg.istardt.xmlparser.xml.deserializers.IStarDTXModule;
 import ca.yorku.cmg.istardt.xmlparser.xml.processing.ReferenceProcessor;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.dom.DOMSource;
+
+import org.w3c.dom.Document;
+
 /**
  * Main entry point for unmarshalling iStarDT-X XML to the domain model using Jackson XML.
+ * <p>
+ * A streaming unmarshaller can be used instead, which reads the document in a single pass
+ * with StAX and builds the same model without the intermediate JsonNode trees (see
+ * {@link StreamingUnmarshaller}). It is chosen with {@link #IStarUnmarshaller(boolean)} or,
+ * for the default constructor, the system property {@value #STREAMING_PROPERTY}.
+ * <p>
+ * Models can also be built with a smaller footprint, for large documents: sequential
+ * generated ids, shared names and compact variable assignments (see
+ * {@link ReferenceResolver#ReferenceResolver(boolean)}). This is chosen with
+ * {@link #IStarUnmarshaller(boolean, boolean)} or the system property {@value #COMPACT_PROPERTY}.
+ * <p>
+ * Each document gets its own {@link ReferenceResolver}, so an unmarshaller can be used from
+ * several threads at once.
  */
 public class IStarUnmarshaller {
+    /**
+     * System property making the default constructor pick the streaming unmarshaller.
+     */
+    public static final String STREAMING_PROPERTY = "istardt.streaming";
+
+    /**
+     * System property making the constructors without it build compact models.
+     */
+    public static final String COMPACT_PROPERTY = "istardt.compact";
+
     private final XmlMapper xmlMapper;
     private final ReferenceProcessor referenceProcessor;
+    private final StreamingUnmarshaller streamingUnmarshaller;
+    private final boolean compact;
 
     /**
-     * Constructor with default configuration.
+     * Constructor with default configuration: Jackson, unless the system property
+     * {@value #STREAMING_PROPERTY} is true.
      */
     public IStarUnmarshaller() {
+        this(Boolean.getBoolean(STREAMING_PROPERTY));
+    }
+
+    /**
+     * @param streaming true to read documents in a single StAX pass, false to go through Jackson
+     */
+    public IStarUnmarshaller(boolean streaming) {
+        this(streaming, Boolean.getBoolean(COMPACT_PROPERTY));
+    }
+
+    /**
+     * @param streaming true to read documents in a single StAX pass, false to go through Jackson
+     * @param compact true to build models with a small footprint
+     */
+    public IStarUnmarshaller(boolean streaming, boolean compact) {
         this.xmlMapper = createXmlMapper();
-        this.referenceProcessor = new ReferenceProcessor(this.xmlMapper);
+        this.referenceProcessor = new ReferenceProcessor();
+        this.streamingUnmarshaller = streaming ? new StreamingUnmarshaller() : null;
+        this.compact = compact;
+    }
+
+    /**
+     * Tells whether documents are read by the {@link StreamingUnmarshaller}.
+     */
+    public boolean isStreaming() {
+        return streamingUnmarshaller != null;
+    }
+
+    /**
+     * Tells whether models are built with a small footprint.
+     */
+    public boolean isCompact() {
+        return compact;
     }
 
     /**
@@ -47,14 +112,18 @@ public class IStarUnmarshaller {
      * @throws IOException If there's an error during unmarshalling
      */
     public Model unmarshalToModel(File xmlFile) throws IOException {
-        // Clear any existing references before processing a new file
-        ReferenceResolver.getInstance().clear();
+        if (isStreaming()) {
+            try (InputStream in = new FileInputStream(xmlFile)) {
+                return unmarshalStream(xmlFile.toURI().toString(), in);
+            }
+        }
+        ReferenceResolver resolver = new ReferenceResolver(compact);
 
         // Parse XML to domain model
-        Model model = xmlMapper.readValue(xmlFile, Model.class);
+        Model model = readerFor(resolver).readValue(xmlFile);
 
         // Process references to link objects
-        referenceProcessor.processReferences(model);
+        referenceProcessor.processReferences(model, resolver);
         return model;
     }
 
@@ -66,14 +135,83 @@ public class IStarUnmarshaller {
      * @throws IOException If there's an error during unmarshalling
      */
     public Model unmarshalToModel(InputStream xmlStream) throws IOException {
-        // Clear any existing references before processing a new file
-        ReferenceResolver.getInstance().clear();
+        if (isStreaming()) {
+            return unmarshalStream(null, xmlStream);
+        }
+        ReferenceResolver resolver = new ReferenceResolver(compact);
 
         // Parse XML to domain model
-        Model model = xmlMapper.readValue(xmlStream, Model.class);
+        Model model = readerFor(resolver).readValue(xmlStream);
 
         // Process references to link objects
-        referenceProcessor.processReferences(model);
+        referenceProcessor.processReferences(model, resolver);
         return model;
     }
-}
\ No newline at end of file
+
+    /**
+     * Unmarshals an already parsed XML document to the domain model, without parsing it again.
+     *
+     * @param document The parsed document (namespace-aware)
+     * @return The populated domain model
+     * @throws IOException If there's an error during unmarshalling
+     */
+    public Model unmarshalToModel(Document document) throws IOException {
+        try {
+            return unmarshalToModel(xmlMapper.getFactory().getXMLInputFactory().createXMLStreamReader(new DOMSource(document)));
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read document: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshals the document read by a StAX reader to the domain model.
+     *
+     * @param reader The reader, positioned at the start of the document
+     * @return The populated domain model
+     * @throws IOException If there's an error during unmarshalling
+     */
+    public Model unmarshalToModel(XMLStreamReader reader) throws IOException {
+        ReferenceResolver resolver = new ReferenceResolver(compact);
+
+        // Stream the events to the domain model
+        Model model;
+        if (isStreaming()) {
+            try {
+                model = streamingUnmarshaller.unmarshal(reader, resolver);
+            } catch (XMLStreamException e) {
+                throw new IOException("Cannot read document: " + e.getMessage(), e);
+            }
+        } else {
+            model = readerFor(resolver).readValue(xmlMapper.getFactory().createParser(reader));
+        }
+
+        // Process references to link objects
+        referenceProcessor.processReferences(model, resolver);
+        return model;
+    }
+
+    /**
+     * Creates a reader for the model handing the given resolver to the deserializers.
+     */
+    private ObjectReader readerFor(ReferenceResolver resolver) {
+        return xmlMapper.readerFor(Model.class).withAttribute(ReferenceResolver.CONTEXT_ATTRIBUTE, resolver);
+    }
+
+    private Model unmarshalStream(String systemId, InputStream in) throws IOException {
+        XMLStreamReader reader;
+        try {
+            reader = xmlMapper.getFactory().getXMLInputFactory().createXMLStreamReader(systemId, in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read document: " + e.getMessage(), e);
+        }
+        try {
+            return unmarshalToModel(reader);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // the stream is closed by the caller
+            }
+        }
+    }
+}
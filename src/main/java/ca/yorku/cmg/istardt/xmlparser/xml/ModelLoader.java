@@ -0,0 +1,370 @@
+package ca.yorku.cmg.istardt.xmlparser.xml;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ModelChecker;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ValidationException;
+import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stax.StAXSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Loads iStarDT-X documents, parsing each one only once: the document is read into a DOM
+ * that is then handed to the XSD validator and the unmarshaller. The semantic rules are
+ * checked on the resulting model by a {@link ModelChecker}, or, if asked, on the DOM by
+ * the Schematron stylesheet.
+ * <p>
+ * Given an executor, the loader runs the XSD (and Schematron) checks at the same time and
+ * starts unmarshalling while they run, throwing the model away if the document turns out
+ * to be invalid. The first check to fail stops the unmarshalling and the XSD check, which
+ * both read the DOM through a reader that gives up when interrupted; the Schematron
+ * stylesheet cannot be stopped midway and is left to finish on its own. The DOM is built
+ * fully expanded, so that these readers can walk it concurrently.
+ * <p>
+ * Instances are thread-safe if the unmarshaller is.
+ */
+public class ModelLoader {
+    // DocumentBuilders are not thread-safe, but can parse one document after another
+    private static final ThreadLocal<DocumentBuilder> BUILDERS = ThreadLocal.withInitial(ModelLoader::newDocumentBuilder);
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    private final IStarUnmarshaller unmarshaller;
+    private final SchemaValidator validator;
+    private final ExecutorService executor;
+    private final ModelChecker checker = new ModelChecker();
+    private boolean useSchematron = false;
+
+    /**
+     * @param unmarshaller The unmarshaller building the model
+     * @param validator The validator to check documents with, or null not to validate
+     */
+    public ModelLoader(IStarUnmarshaller unmarshaller, SchemaValidator validator) {
+        this(unmarshaller, validator, null);
+    }
+
+    /**
+     * @param unmarshaller The unmarshaller building the model
+     * @param validator The validator to check documents with, or null not to validate
+     * @param executor The executor running the checks and the unmarshalling concurrently,
+     *                 or null to run them one after the other in the calling thread
+     */
+    public ModelLoader(IStarUnmarshaller unmarshaller, SchemaValidator validator, ExecutorService executor) {
+        this.unmarshaller = unmarshaller;
+        this.validator = validator;
+        this.executor = executor;
+    }
+
+    /**
+     * Checks the semantic rules with the Schematron stylesheet instead of the
+     * {@link ModelChecker}. Much slower, but the reference the checker is held to.
+     */
+    public void setUseSchematron(boolean useSchematron) {
+        this.useSchematron = useSchematron;
+    }
+
+    /**
+     * Tells whether the loader validates the documents it loads.
+     */
+    public boolean isValidating() {
+        return validator != null;
+    }
+
+    /**
+     * Gets the unmarshaller building the models.
+     */
+    public IStarUnmarshaller getUnmarshaller() {
+        return unmarshaller;
+    }
+
+    /**
+     * Identifies the rules documents are checked against: the schema files and which of
+     * the Schematron stylesheet and the {@link ModelChecker} (and its version) is used.
+     *
+     * @return The rules, or null if the loader does not validate
+     * @throws IOException If a schema file cannot be read
+     */
+    public String getRules() throws IOException {
+        if (validator == null) {
+            return null;
+        }
+        return validator.getDigest() + (useSchematron ? " schematron" : " checker " + ModelChecker.VERSION);
+    }
+
+    /**
+     * Loads a model from a file.
+     *
+     * @throws ValidationException If the file is not well-formed or not valid
+     * @throws IOException If the file cannot be read or unmarshalled
+     */
+    public Model load(File xmlFile) throws ValidationException, IOException {
+        return load(parse(xmlFile));
+    }
+
+    /**
+     * Loads a model from a stream.
+     *
+     * @throws ValidationException If the document is not well-formed or not valid
+     * @throws IOException If the stream cannot be read or unmarshalled
+     */
+    public Model load(InputStream xmlStream) throws ValidationException, IOException {
+        return load(parse(new InputSource(xmlStream)));
+    }
+
+    /**
+     * Loads a model from an already parsed document.
+     *
+     * @throws ValidationException If the document is not valid
+     * @throws IOException If the document cannot be unmarshalled
+     */
+    public Model load(Document document) throws ValidationException, IOException {
+        return load(document, null);
+    }
+
+    /**
+     * Loads a model from an already parsed document. Validation warnings are logged.
+     *
+     * @param warnings gets the validation warnings as well, may be null
+     * @throws ValidationException If the document is not valid
+     * @throws IOException If the document cannot be unmarshalled
+     */
+    public Model load(Document document, List<String> warnings) throws ValidationException, IOException {
+        if (validator == null) {
+            return unmarshaller.unmarshalToModel(document);
+        }
+        if (executor == null) {
+            checkSchemas(document, warnings);
+            return check(unmarshaller.unmarshalToModel(document), warnings);
+        }
+
+        // the checks run at the same time
+        List<String> sink = warnings == null ? null : Collections.synchronizedList(warnings);
+
+        // speculative, only kept if the document is valid
+        Future<Model> model = executor.submit(() -> unmarshaller.unmarshalToModel(newReader(document)));
+        try {
+            checkSchemas(document, sink);
+            return check(model.get(), sink);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + document.getDocumentURI());
+        } finally {
+            model.cancel(true);
+        }
+    }
+
+    /**
+     * Checks a document against the XSD schema and the semantic rules, without keeping
+     * the model.
+     *
+     * @throws ValidationException If the document is not valid
+     * @throws IOException If a check cannot be run
+     */
+    public void validate(Document document) throws ValidationException, IOException {
+        if (validator == null) {
+            return;
+        }
+        if (useSchematron) {
+            checkSchemas(document, null);
+        } else {
+            load(document);
+        }
+    }
+
+    private Model check(Model model, List<String> warnings) throws ValidationException {
+        if (!useSchematron) {
+            checker.validate(model, warnings);
+        }
+        return model;
+    }
+
+    /**
+     * Checks a document against the XSD schema and, if asked, the Schematron rules, at
+     * the same time if the loader has an executor. Once one check fails the other is
+     * cancelled; if it had already failed as well, the errors of both are reported.
+     */
+    private void checkSchemas(Document document, List<String> warnings) throws ValidationException, IOException {
+        if (executor == null) {
+            validator.validateXsd(new DOMSource(document, document.getDocumentURI()), warnings);
+            if (useSchematron) {
+                validator.validateSchematron(new DOMSource(document, document.getDocumentURI()), warnings);
+            }
+            return;
+        }
+
+        CompletionService<Void> checks = new ExecutorCompletionService<>(executor);
+        List<Future<Void>> futures = new ArrayList<>();
+        futures.add(checks.submit(() -> {
+            validator.validateXsd(new StAXSource(newReader(document)), warnings);
+            return null;
+        }));
+        if (useSchematron) {
+            futures.add(checks.submit(() -> {
+                validator.validateSchematron(new DOMSource(document, document.getDocumentURI()), warnings);
+                return null;
+            }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Void> done = checks.take();
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    // fail fast, but keep the report of the other check if it is already in
+                    List<ValidationException> failures = new ArrayList<>();
+                    for (Future<Void> f : futures) {
+                        if (f == done || !f.cancel(true)) {
+                            try {
+                                f.get();
+                            } catch (ExecutionException other) {
+                                if (!(other.getCause() instanceof ValidationException)) {
+                                    throw rethrow(other.getCause());
+                                }
+                                failures.add((ValidationException) other.getCause());
+                            }
+                        }
+                    }
+                    throw merge(failures);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while validating " + document.getDocumentURI());
+        } finally {
+            for (Future<Void> f : futures) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private static ValidationException merge(List<ValidationException> failures) {
+        if (failures.size() == 1) {
+            return failures.get(0);
+        }
+        List<String> errors = new ArrayList<>();
+        for (ValidationException f : failures) {
+            for (String error : f.getErrors()) {
+                errors.add(f.getStage() + ": " + error);
+            }
+        }
+        return new ValidationException(failures.get(0).getStage(), errors);
+    }
+
+    private static IOException rethrow(Throwable cause) throws ValidationException {
+        if (cause instanceof ValidationException) {
+            throw (ValidationException) cause;
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    /**
+     * Gets a StAX reader over a DOM that stops with an exception once its thread is
+     * interrupted.
+     */
+    private static XMLStreamReader newReader(Document document) throws XMLStreamException {
+        return new StreamReaderDelegate(INPUT_FACTORY.createXMLStreamReader(new DOMSource(document, document.getDocumentURI()))) {
+            @Override
+            public int next() throws XMLStreamException {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new XMLStreamException("Cancelled");
+                }
+                return super.next();
+            }
+        };
+    }
+
+    /**
+     * Parses a file into a namespace-aware DOM.
+     *
+     * @throws ValidationException If the file is not well-formed
+     */
+    public static Document parse(File xmlFile) throws ValidationException, IOException {
+        return parse(new InputSource(xmlFile.getAbsoluteFile().toURI().toString()));
+    }
+
+    /**
+     * Parses a document into a namespace-aware DOM.
+     *
+     * @throws ValidationException If the document is not well-formed
+     */
+    public static Document parse(InputSource source) throws ValidationException, IOException {
+        try {
+            return BUILDERS.get().parse(source);
+        } catch (SAXParseException e) {
+            throw new ValidationException(ValidationException.Stage.PARSE, Collections.singletonList(
+                    "line " + e.getLineNumber() + ", column " + e.getColumnNumber() + ": " + e.getMessage()));
+        } catch (SAXException e) {
+            throw new ValidationException(ValidationException.Stage.PARSE, Collections.singletonList(e.getMessage()));
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            // lazily expanded nodes are filled in when first read, which is not thread-safe
+            factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+        } catch (ParserConfigurationException e) {
+            // not Xerces, nothing deferred
+        }
+        try {
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setErrorHandler(SILENT);
+            return builder;
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot create XML parser: " + e.getMessage(), e);
+        }
+    }
+
+    // the default handler prints to stderr before the exception is thrown
+    private static final ErrorHandler SILENT = new ErrorHandler() {
+        @Override
+        public void warning(SAXParseException e) {
+        }
+
+        @Override
+        public void error(SAXParseException e) {
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXParseException {
+            throw e;
+        }
+    };
+}
@@ -1,18 +1,34 @@
 package ca.yorku.cmg.istardt.xmlparser.xml;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.Element;
+import ca.yorku.cmg.istardt.xmlparser.objects.FloatMap;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+import com.fasterxml.jackson.databind.DeserializationContext;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Reference resolver for managing object references during deserialization.
+ * <p>
+ * One resolver holds the elements of one document: the unmarshaller creates it for each
+ * document and hands it to the deserializers as an attribute of the deserialization
+ * context (see {@link #from(DeserializationContext)}), so that several documents can be
+ * unmarshalled at the same time. It is not thread-safe itself.
+ * <p>
+ * It also decides how compact the elements of its document are (see
+ * {@link #ReferenceResolver(boolean)}): the unmarshallers take ids, names and value maps
+ * for new elements from it.
  */
 public class ReferenceResolver {
     private static final CustomLogger LOGGER = CustomLogger.getInstance();
-    private static final ReferenceResolver INSTANCE = new ReferenceResolver();
+
+    /**
+     * Key of the resolver among the attributes of a deserialization context.
+     */
+    public static final Class<ReferenceResolver> CONTEXT_ATTRIBUTE = ReferenceResolver.class;
 
     // Map of elements by ID for quick lookup
     private final Map<String, Element> elementsById = new HashMap<>();
@@ -20,19 +36,74 @@ public class ReferenceResolver {
     // Map of elements by name (titleText) for content-based lookup
     private final Map<String, Element> elementsByName = new HashMap<>();
 
+    private final boolean compact;
+
+    // In compact mode: the last generated id, and one copy of each name
+    private int lastId;
+    private final Map<String, String> names;
+
+    /**
+     * Creates a resolver for a document whose elements get random UUIDs as ids.
+     */
+    public ReferenceResolver() {
+        this(false);
+    }
+
+    /**
+     * @param compact true for elements with a small footprint: generated ids taken from a
+     *                sequence, names shared by all the elements and references using them,
+     *                and variable assignments in {@link FloatMap}s
+     */
+    public ReferenceResolver(boolean compact) {
+        this.compact = compact;
+        this.names = compact ? new HashMap<>() : null;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
     /**
-     * Private constructor for singleton pattern
+     * Generates an id for an element or atom the document gives none. In compact mode the
+     * ids are {@code #1}, {@code #2}... which no XML id can be, so they cannot clash with
+     * the ids of the document.
      */
-    private ReferenceResolver() {
+    public String newId() {
+        return compact ? "#" + (++lastId) : UUID.randomUUID().toString();
+    }
+
+    /**
+     * Gets the copy of a name shared by the document in compact mode, the name itself otherwise.
+     */
+    public String intern(String name) {
+        if (!compact || name == null) {
+            return name;
+        }
+        String shared = names.putIfAbsent(name, name);
+        return shared != null ? shared : name;
     }
 
     /**
-     * Gets the singleton instance of the reference resolver.
+     * Creates the map holding the variable assignments of an effect.
+     */
+    public <K> Map<K, Float> newAssignments() {
+        return compact ? new FloatMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Gets the resolver of the document being deserialized. If the caller did not set one,
+     * a new one is attached to the context, for the rest of that call.
      *
-     * @return The shared ReferenceResolver instance
+     * @param ctxt The deserialization context
+     * @return The resolver of the current document
      */
-    public static ReferenceResolver getInstance() {
-        return INSTANCE;
+    public static ReferenceResolver from(DeserializationContext ctxt) {
+        ReferenceResolver resolver = (ReferenceResolver) ctxt.getAttribute(CONTEXT_ATTRIBUTE);
+        if (resolver == null) {
+            resolver = new ReferenceResolver();
+            ctxt.setAttribute(CONTEXT_ATTRIBUTE, resolver);
+        }
+        return resolver;
     }
 
     /**
@@ -62,7 +133,7 @@ public class ReferenceResolver {
     public Element getElementById(String id) {
         Element element = elementsById.get(id);
         if (element == null) {
-            LOGGER.warning(getClass(), "Element with ID '" + id + "' not found in reference resolver");
+            LOGGER.warning(getClass(), () -> "Element with ID '" + id + "' not found in reference resolver");
         }
         return element;
     }
@@ -77,7 +148,7 @@ public class ReferenceResolver {
     public Element getElementByName(String name) {
         Element element = elementsByName.get(name);
         if (element == null) {
-            LOGGER.warning(getClass(),"Element with name '" + name + "' not found in reference resolver");
+            LOGGER.warning(getClass(), () -> "Element with name '" + name + "' not found in reference resolver");
         }
         return element;
     }
@@ -97,5 +168,8 @@ public class ReferenceResolver {
     public void clear() {
         elementsById.clear();
         elementsByName.clear();
+        if (names != null) {
+            names.clear();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,763 @@
+package ca.yorku.cmg.istardt.xmlparser.xml;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+import ca.yorku.cmg.istardt.xmlparser.xml.formula.UnresolvedReference;
+import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Unmarshals iStarDT-X XML to the domain model in a single forward pass over a StAX reader,
+ * without building the intermediate JsonNode trees of the Jackson deserializers.
+ * <p>
+ * It builds the same model as the deserializers: same defaults, same formulas, with the
+ * elements they name left as {@link UnresolvedReference}s since they may come further down.
+ * Elements are registered with the given {@link ReferenceResolver} in the order the
+ * deserializers register them. The caller is expected to run the
+ * {@link ca.yorku.cmg.istardt.xmlparser.xml.processing.ReferenceProcessor} with the same
+ * resolver after, which resolves the formulas.
+ * <p>
+ * Instances are stateless and can be shared.
+ */
+public class StreamingUnmarshaller {
+    private static final CustomLogger LOGGER = CustomLogger.getInstance();
+
+    private static final String[] FORMULA_TYPES = {
+            "numConst", "boolConst", "predicateID", "goalID", "taskID", "variableID", "qualID", "effectID",
+            "conditionID", "add", "subtract", "multiply", "divide", "previous", "negate", "gt", "gte", "lt",
+            "lte", "eq", "neq", "and", "or", "not"
+    };
+
+    private static final String[] ID_TYPES = {
+            "predicateID", "goalID", "taskID", "variableID", "qualID", "effectID", "conditionID"
+    };
+
+    private static final Set<String> NUMERIC_OPERAND_TYPES = new HashSet<>(Arrays.asList(
+            "numConst", "variableID", "qualID", "predicateID", "goalID", "taskID", "effectID", "conditionID",
+            "add", "subtract", "multiply", "divide", "negate", "previous"));
+
+    private static final String[] BOOLEAN_OPERAND_TYPES = {
+            "boolConst", "predicateID", "goalID", "taskID", "effectID", "conditionID",
+            "and", "or", "not", "gt", "gte", "lt", "lte", "eq", "neq", "previous"
+    };
+
+    private static final Set<String> BOOLEAN_OPERAND_SET = new HashSet<>(Arrays.asList(BOOLEAN_OPERAND_TYPES));
+
+    private static final Set<String> OPERAND_TYPES = new HashSet<>(Arrays.asList(FORMULA_TYPES));
+
+    /**
+     * Reads a document into a model.
+     *
+     * @param reader The reader, positioned before the root element
+     * @param resolver The resolver the elements of the document are registered with
+     * @return The model, with references still to be processed
+     * @throws XMLStreamException If the document cannot be read
+     */
+    public Model unmarshal(XMLStreamReader reader, ReferenceResolver resolver) throws XMLStreamException {
+        while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            if (!reader.hasNext()) {
+                throw new XMLStreamException("No root element");
+            }
+        }
+
+        Model model = new Model();
+        List<Actor> actors = new ArrayList<>();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "header":
+                    model.setHeader(readHeader(reader));
+                    break;
+                case "options":
+                    model.setOptions(readOptions(reader));
+                    break;
+                case "actors":
+                    while (nextChild(reader)) {
+                        if ("actor".equals(reader.getLocalName())) {
+                            actors.add(readActor(reader, resolver));
+                        } else {
+                            skip(reader);
+                        }
+                    }
+                    break;
+                default:
+                    skip(reader);
+            }
+        }
+        if (model.getHeader() == null) {
+            model.setHeader(new Header());
+        }
+        if (model.getOptions() == null) {
+            model.setOptions(new Options());
+        }
+        model.setActors(actors);
+        return model;
+    }
+
+    private Header readHeader(XMLStreamReader reader) throws XMLStreamException {
+        Header header = new Header();
+        header.setTitle(attribute(reader, "title", ""));
+        header.setAuthor(attribute(reader, "author", ""));
+        header.setSource(attribute(reader, "source", ""));
+        header.setLastUpdated(attribute(reader, "lastUpdated", ""));
+        header.setNotes(text(reader).trim());
+        return header;
+    }
+
+    private Options readOptions(XMLStreamReader reader) throws XMLStreamException {
+        Options options = new Options();
+        options.setContinuous(asBoolean(reader.getAttributeValue(null, "continuous"), false));
+        options.setInfActionPenalty(asFloat(reader.getAttributeValue(null, "infeasibleActionPenalty"), 0.0f));
+        skip(reader);
+        return options;
+    }
+
+    private Actor readActor(XMLStreamReader reader, ReferenceResolver resolver) throws XMLStreamException {
+        Actor actor = new Actor();
+        readCommonAttributes(actor, reader, resolver);
+        resolver.registerElement(actor.getId(), actor);
+
+        List<Predicate> predicates = null;
+        List<Variable> variables = null;
+        List<Condition> conditions = null;
+        List<Quality> qualities = null;
+        List<Goal> goals = null;
+        List<Task> tasks = null;
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "predicates":
+                    while (nextChild(reader, "predicate")) {
+                        Predicate predicate = new Predicate();
+                        readNamedByText(predicate, reader, resolver);
+                        predicates = add(predicates, predicate);
+                    }
+                    break;
+                case "variables":
+                    while (nextChild(reader, "variable")) {
+                        Variable variable = new Variable();
+                        readNamedByText(variable, reader, resolver);
+                        variables = add(variables, variable);
+                    }
+                    break;
+                case "crossRuns":
+                    while (nextChild(reader, "crossRun")) {
+                        if (actor.getCrossRunSet() == null) {
+                            actor.setCrossRunSet(new CrossRunSet());
+                        }
+                        Map<String, String> refs = readLeaves(reader);
+                        String ref = first(refs, "qualID", "predicateID", "variableID", "conditionID");
+                        if (ref != null) {
+                            actor.getCrossRunSet().addRefs(ref);
+                        } else {
+                            LOGGER.warning(getClass(), () -> "Unknown reference type in CrossRun: " + refs);
+                        }
+                    }
+                    break;
+                case "exportedSet":
+                    while (nextChild(reader, "export")) {
+                        if (actor.getExportedSet() == null) {
+                            actor.setExportedSet(new ExportedSet());
+                        }
+                        readExport(reader, actor.getExportedSet());
+                    }
+                    break;
+                case "initializations":
+                    while (nextChild(reader, "initialization")) {
+                        if (actor.getInitializationSet() == null) {
+                            actor.setInitializationSet(new InitializationSet());
+                        }
+                        readInitialization(reader, actor.getInitializationSet());
+                    }
+                    break;
+                case "condBoxes":
+                    while (nextChild(reader, "condBox")) {
+                        Condition condition = new Condition();
+                        readCommonAttributes(condition, reader, resolver);
+                        condition.setFormula(readFormula(reader));
+                        conditions = add(conditions, condition);
+                    }
+                    break;
+                case "qualities":
+                    while (nextChild(reader, "quality")) {
+                        Quality quality = new Quality();
+                        readCommonAttributes(quality, reader, resolver);
+                        quality.setRoot(asBoolean(reader.getAttributeValue(null, "root"), false));
+                        quality.setFormula(readFormula(reader));
+                        qualities = add(qualities, quality);
+                    }
+                    break;
+                case "goals":
+                    while (nextChild(reader, "goal")) {
+                        goals = add(goals, readGoal(reader, resolver));
+                    }
+                    break;
+                case "tasks":
+                    while (nextChild(reader, "task")) {
+                        tasks = add(tasks, readTask(reader, resolver));
+                    }
+                    break;
+                default:
+                    skip(reader);
+            }
+        }
+
+        // register in the order of the deserializers, for the same winner among duplicate names
+        if (predicates != null) {
+            actor.setPredicates(register(predicates, resolver));
+        }
+        if (variables != null) {
+            actor.setVariables(register(variables, resolver));
+        }
+        if (conditions != null) {
+            actor.setConditions(register(conditions, resolver));
+        }
+        if (qualities != null) {
+            actor.setQualities(register(qualities, resolver));
+        }
+        if (goals != null) {
+            actor.setGoals(register(goals, resolver));
+        }
+        if (tasks != null) {
+            for (Task task : tasks) {
+                resolver.registerElement(task.getId(), task);
+                register(task.getEffects(), resolver);
+            }
+            actor.setTasks(tasks);
+        }
+        LOGGER.info(getClass(), () -> "Read actor: " + actor.getName());
+        return actor;
+    }
+
+    private void readExport(XMLStreamReader reader, ExportedSet exportedSet) throws XMLStreamException {
+        Export export = new Export();
+        boolean continuous = asBoolean(reader.getAttributeValue(null, "continuous"), false);
+        export.setContinuous(continuous);
+        if (continuous) {
+            export.setMinVal(asFloat(reader.getAttributeValue(null, "minVal"), 0.0f));
+            export.setMaxVal(asFloat(reader.getAttributeValue(null, "maxVal"), 0.0f));
+        }
+
+        Map<String, String> refs = readLeaves(reader);
+        String ref = first(refs, "goalID", "taskID", "predicateID", "variableID", "qualID", "conditionID");
+        if (ref != null) {
+            export.setRef(ref);
+            exportedSet.addExport(export);
+        } else {
+            LOGGER.warning(getClass(), () -> "Export without a valid reference: " + refs);
+        }
+    }
+
+    private void readInitialization(XMLStreamReader reader, InitializationSet initializationSet) throws XMLStreamException {
+        String element = attribute(reader, "element", null);
+        String value = text(reader).trim();
+        if (element == null) {
+            LOGGER.error(getClass(), "Initialization without an element attribute");
+        } else if (value.isEmpty()) {
+            LOGGER.warning(getClass(), () -> "Initialization of " + element + " without a value");
+        } else {
+            Initialization initialization = new Initialization();
+            initialization.setRef(element);
+            initialization.setValue(value);
+            initializationSet.addInitialization(initialization);
+        }
+    }
+
+    private Goal readGoal(XMLStreamReader reader, ReferenceResolver resolver) throws XMLStreamException {
+        Goal goal = new Goal();
+        readCommonAttributes(goal, reader, resolver);
+        goal.setRoot(asBoolean(reader.getAttributeValue(null, "root"), false));
+        String episodeLength = reader.getAttributeValue(null, "episodeLength");
+        goal.setRuns(asInt(episodeLength, 1));
+        goal.setRunsDeclared(episodeLength != null);
+        goal.setTerminal(asBoolean(reader.getAttributeValue(null, "terminal"), false));
+
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "pre":
+                    goal.setPreFormula(readFormula(reader));
+                    break;
+                case "npr":
+                    goal.setNprFormula(readFormula(reader));
+                    break;
+                case "refinement":
+                    String type = attribute(reader, "type", "TERM");
+                    if ("AND".equalsIgnoreCase(type)) {
+                        goal.setDecompType(DecompType.AND);
+                    } else if ("OR".equalsIgnoreCase(type)) {
+                        goal.setDecompType(DecompType.OR);
+                    } else {
+                        goal.setDecompType(DecompType.TERM);
+                    }
+                    while (nextChild(reader)) {
+                        String ref = reader.getAttributeValue(null, "ref");
+                        if ("childGoal".equals(reader.getLocalName()) && ref != null) {
+                            goal.addChildGoalRef(ref);
+                        } else if ("childTask".equals(reader.getLocalName()) && ref != null) {
+                            goal.addChildTaskRef(ref);
+                        }
+                        skip(reader);
+                    }
+                    break;
+                default:
+                    skip(reader);
+            }
+        }
+        return goal;
+    }
+
+    private Task readTask(XMLStreamReader reader, ReferenceResolver resolver) throws XMLStreamException {
+        Task task = new Task();
+        readCommonAttributes(task, reader, resolver);
+
+        List<Effect> effects = null;
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "pre":
+                    task.setPreFormula(readFormula(reader));
+                    break;
+                case "npr":
+                    task.setNprFormula(readFormula(reader));
+                    break;
+                case "effectGroup":
+                    while (nextChild(reader, "effect")) {
+                        effects = add(effects, readEffect(reader, resolver));
+                    }
+                    break;
+                default:
+                    skip(reader);
+            }
+        }
+        if (effects != null) {
+            task.setEffects(effects);
+        }
+        return task;
+    }
+
+    private Effect readEffect(XMLStreamReader reader, ReferenceResolver resolver) throws XMLStreamException {
+        Effect effect = new Effect();
+        readCommonAttributes(effect, reader, resolver);
+        effect.setSatisfying(asBoolean(reader.getAttributeValue(null, "satisfying"), true));
+        effect.setProbability(asFloat(reader.getAttributeValue(null, "probability"), 1.0f));
+
+        Map<String, Float> variables = resolver.newAssignments();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "pre":
+                    effect.setPreFormula(readFormula(reader));
+                    break;
+                case "npr":
+                    effect.setNprFormula(readFormula(reader));
+                    break;
+                case "turnsTrue":
+                    effect.addTurnsTrue(resolver.intern(text(reader)));
+                    break;
+                case "turnsFalse":
+                    effect.addTurnsFalse(resolver.intern(text(reader)));
+                    break;
+                case "set":
+                    String numConst = reader.getAttributeValue(null, "numConst");
+                    Map<String, String> leaves = readLeaves(reader);
+                    if (numConst == null) {
+                        numConst = leaves.get("numConst");
+                    }
+                    variables.put(resolver.intern(leaves.getOrDefault("variableID", "")), asFloat(numConst, 0));
+                    break;
+                default:
+                    skip(reader);
+            }
+        }
+        effect.setVariableNameSet(variables);
+        return effect;
+    }
+
+    /**
+     * Reads the id, name and description of an element and gives it its atom.
+     */
+    private void readCommonAttributes(Element element, XMLStreamReader reader, ReferenceResolver resolver) {
+        element.setId(id(reader, resolver));
+        setAtom(element, attribute(reader, "name", ""), attribute(reader, "description", ""), resolver);
+    }
+
+    /**
+     * Reads a predicate or variable, which are named by their text.
+     */
+    private void readNamedByText(Element element, XMLStreamReader reader, ReferenceResolver resolver) throws XMLStreamException {
+        element.setId(id(reader, resolver));
+        String description = attribute(reader, "description", "");
+        setAtom(element, text(reader).trim(), description, resolver);
+    }
+
+    private static String id(XMLStreamReader reader, ReferenceResolver resolver) {
+        String id = attribute(reader, "id", null);
+        return id != null ? id : resolver.newId();
+    }
+
+    private static void setAtom(Element element, String name, String description, ReferenceResolver resolver) {
+        Atom atom = new Atom();
+        atom.setId(resolver.newId()); // atom's id != element's id
+        atom.setTitleText(resolver.intern(name));
+        if (resolver.isCompact()) {
+            atom.deriveTitleHTMLText();
+        } else {
+            atom.setTitleHTMLText("<h>" + name + "</h>");
+        }
+        atom.setDescription(description);
+        element.setRepresentation(atom);
+        atom.setElement(element);
+    }
+
+    private static <T extends Element> List<T> register(List<T> elements, ReferenceResolver resolver) {
+        for (T element : elements) {
+            resolver.registerElement(element.getId(), element);
+        }
+        return elements;
+    }
+
+    private static <T> List<T> add(List<T> list, T item) {
+        if (list == null) {
+            list = new ArrayList<>();
+        }
+        list.add(item);
+        return list;
+    }
+
+
+    /*
+     * Formulas, built the way the FormulaDeserializer builds them
+     */
+
+    /**
+     * Reads the formula held by the current element (pre, npr, quality or condBox), up to
+     * its end tag.
+     */
+    private Formula readFormula(XMLStreamReader reader) throws XMLStreamException {
+        List<Operand> operands = readOperands(reader);
+        for (String type : FORMULA_TYPES) {
+            Operand operand = find(operands, type);
+            if (operand != null) {
+                return operand.formula;
+            }
+        }
+        LOGGER.warning(getClass(), "Unknown formula type encountered");
+        return Formula.createConstantFormula("Unknown Formula");
+    }
+
+    /**
+     * Reads the operands of the current element, and the left and right sides of comparisons.
+     */
+    private List<Operand> readOperands(XMLStreamReader reader) throws XMLStreamException {
+        List<Operand> operands = new ArrayList<>(2);
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if (OPERAND_TYPES.contains(name)) {
+                operands.add(new Operand(name, readOperand(reader, name)));
+            } else if ("left".equals(name) || "right".equals(name)) {
+                Operand side = first(readOperands(reader));
+                operands.add(new Operand(name, side != null ? side.formula : Formula.createConstantFormula("Unknown")));
+            } else {
+                skip(reader);
+            }
+        }
+        return operands;
+    }
+
+    private Formula readOperand(XMLStreamReader reader, String type) throws XMLStreamException {
+        switch (type) {
+            case "numConst":
+                String number = text(reader);
+                try {
+                    return new NumericConstant(Float.valueOf(number));
+                } catch (NumberFormatException e) {
+                    throw new XMLStreamException("Not a number: " + number, reader.getLocation(), e);
+                }
+            case "boolConst":
+                return new BooleanConstant(Boolean.parseBoolean(text(reader)));
+            case "predicateID":
+                return UnresolvedReference.to(text(reader), Predicate.class, "Unknown PredicateID");
+            case "goalID":
+                return UnresolvedReference.to(text(reader), Goal.class, "Unknown GoalID");
+            case "taskID":
+                return UnresolvedReference.to(text(reader), Task.class, "Unknown TaskID");
+            case "variableID":
+                return UnresolvedReference.to(text(reader), Variable.class, "Unknown VariableID");
+            case "qualID":
+                return UnresolvedReference.to(text(reader), Quality.class, "Unknown QualityID");
+            case "effectID":
+                return UnresolvedReference.to(text(reader), Effect.class, "Unknown EffectID");
+            case "conditionID":
+                return UnresolvedReference.to(text(reader), Condition.class, "Unknown ConditionID");
+            default:
+                return operator(type, readOperands(reader));
+        }
+    }
+
+    private Formula operator(String type, List<Operand> operands) {
+        switch (type) {
+            case "add":
+                return multiOperator(operands, NUMERIC_OPERAND_TYPES, PlusOperator::new, Formula.createConstantFormula("0"));
+            case "subtract":
+                return binaryOperator(operands, MinusOperator::new, Formula.createConstantFormula("0"));
+            case "multiply":
+                return multiOperator(operands, NUMERIC_OPERAND_TYPES, MultiplyOperator::new, Formula.createConstantFormula("1"));
+            case "divide":
+                return binaryOperator(operands, DivideOperator::new, Formula.createConstantFormula("1"));
+            case "previous":
+                for (String t : ID_TYPES) {
+                    Operand operand = find(operands, t);
+                    if (operand != null) {
+                        return new PreviousOperator(UnresolvedReference.toAny(((UnresolvedReference) operand.formula).getName()));
+                    }
+                }
+                LOGGER.warning(getClass(), "Previous node has no valid name fields");
+                return Formula.createConstantFormula("Unknown Previous");
+            case "negate":
+                Operand negated = first(operands);
+                return negated != null ? new NegateOperator(negated.formula) : Formula.createConstantFormula("0");
+            case "gt":
+                return binaryOperator(operands, GTOperator::new, Formula.createBooleanFormula(false));
+            case "gte":
+                return binaryOperator(operands, GTEOperator::new, Formula.createBooleanFormula(false));
+            case "lt":
+                return binaryOperator(operands, LTOperator::new, Formula.createBooleanFormula(false));
+            case "lte":
+                return binaryOperator(operands, LTEOperator::new, Formula.createBooleanFormula(false));
+            case "eq":
+                return binaryOperator(operands, EQOperator::new, Formula.createBooleanFormula(false));
+            case "neq":
+                return binaryOperator(operands, NEQOperator::new, Formula.createBooleanFormula(false));
+            case "and":
+                return multiOperator(operands, BOOLEAN_OPERAND_SET, ANDOperator::new, Formula.createBooleanFormula(true));
+            case "or":
+                return multiOperator(operands, BOOLEAN_OPERAND_SET, OROperator::new, Formula.createBooleanFormula(false));
+            case "not":
+                for (String t : BOOLEAN_OPERAND_TYPES) {
+                    Operand operand = find(operands, t);
+                    if (operand != null) {
+                        return new NOTOperator(operand.formula);
+                    }
+                }
+                return Formula.createBooleanFormula(false);
+            default:
+                return null;
+        }
+    }
+
+    private Formula binaryOperator(List<Operand> operands, BiFunction<Formula, Formula, Formula> operator,
+                                   Formula defaultValue) {
+        Operand left = find(operands, "left");
+        Operand right = find(operands, "right");
+        if (left == null || right == null) {
+            return defaultValue;
+        }
+        return operator.apply(left.formula, right.formula);
+    }
+
+    /**
+     * Folds the operands from the left. Like the JsonNode trees of the deserializers, repeated
+     * operand types are grouped at the place of their first occurrence.
+     */
+    private Formula multiOperator(List<Operand> operands, Set<String> types,
+                                  BiFunction<Formula, Formula, Formula> operator, Formula defaultValue) {
+        Map<String, List<Formula>> groups = new LinkedHashMap<>();
+        for (Operand operand : operands) {
+            if (types.contains(operand.name)) {
+                groups.computeIfAbsent(operand.name, k -> new ArrayList<>()).add(operand.formula);
+            }
+        }
+        Formula result = null;
+        for (List<Formula> group : groups.values()) {
+            for (Formula formula : group) {
+                result = (result == null) ? formula : operator.apply(result, formula);
+            }
+        }
+        return result != null ? result : defaultValue;
+    }
+
+    private static Operand find(List<Operand> operands, String name) {
+        for (Operand operand : operands) {
+            if (operand.name.equals(name)) {
+                return operand;
+            }
+        }
+        return null;
+    }
+
+    private static Operand first(List<Operand> operands) {
+        for (Operand operand : operands) {
+            if (OPERAND_TYPES.contains(operand.name)) {
+                return operand;
+            }
+        }
+        return null;
+    }
+
+
+    /*
+     * Reading
+     */
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return false once at the end tag of the current element
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next child element with the given name, skipping the others.
+     */
+    private static boolean nextChild(XMLStreamReader reader, String name) throws XMLStreamException {
+        while (nextChild(reader)) {
+            if (name.equals(reader.getLocalName())) {
+                return true;
+            }
+            skip(reader);
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the end tag of the current element.
+     */
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the text directly inside the current element, up to its end tag.
+     */
+    private static String text(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
+        StringBuilder more = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE)) {
+                // usually a single event, no need to copy it around
+                if (text == null) {
+                    text = reader.getText();
+                } else {
+                    if (more == null) {
+                        more = new StringBuilder(text);
+                    }
+                    more.append(reader.getText());
+                }
+            }
+        }
+        return more != null ? more.toString() : (text != null ? text : "");
+    }
+
+    /**
+     * Reads the text of the child elements of the current element, by name.
+     */
+    private static Map<String, String> readLeaves(XMLStreamReader reader) throws XMLStreamException {
+        Map<String, String> leaves = new LinkedHashMap<>();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            leaves.putIfAbsent(name, text(reader));
+        }
+        return leaves;
+    }
+
+    private static String first(Map<String, String> leaves, String... names) {
+        for (String name : names) {
+            String value = leaves.get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String attribute(XMLStreamReader reader, String name, String defaultValue) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    // lenient like JsonNode.asBoolean(), asDouble() and asInt()
+
+    private static boolean asBoolean(String value, boolean defaultValue) {
+        if (value != null) {
+            value = value.trim();
+            if ("true".equals(value)) {
+                return true;
+            }
+            if ("false".equals(value)) {
+                return false;
+            }
+        }
+        return defaultValue;
+    }
+
+    private static float asFloat(String value, float defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return (float) Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static int asInt(String value, int defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(value.trim());
+            } catch (NumberFormatException e2) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * A formula read inside an operator, with the name of its element.
+     */
+    private static class Operand {
+        final String name;
+        final Formula formula;
+
+        Operand(String name, Formula formula) {
+            this.name = name;
+            this.formula = formula;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ca.yorku.cmg.istardt.xmlparser.xml.deserializers;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
 import ca.yorku.cmg.istardt.xmlparser.objects.Element;
+import ca.yorku.cmg.istardt.xmlparser.objects.Formula;
 import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.DeserializerUtils;
@@ -13,7 +14,6 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Base deserializer with common functionality for all iStarDT-X elements.
@@ -22,6 +22,7 @@ import java.util.UUID;
  */
 public abstract class BaseDeserializer<T extends Element> extends StdDeserializer<T> {
     private static final CustomLogger LOGGER = CustomLogger.getInstance();
+    private static final FormulaDeserializer FORMULA_DESERIALIZER = new FormulaDeserializer();
 
     protected BaseDeserializer(Class<T> vc) {
         super(vc);
@@ -39,12 +40,15 @@ public abstract class BaseDeserializer<T extends Element> extends StdDeserialize
         T element = createNewElement();
 
         // Extract common attributes
-        extractCommonAttributes(element, node);
+        extractCommonAttributes(element, node, ReferenceResolver.from(ctxt));
+
+        // Register the element with the resolver of this document
+        registerElement(element, ctxt);
 
         // Handle specific attributes based on element type
         handleSpecificAttributes(element, node, p, ctxt);
 
-        LOGGER.info(getClass(), "Deserialized " + handledType().getSimpleName() + " with name: " + element.getName());
+        LOGGER.info(getClass(), () -> "Deserialized " + handledType().getSimpleName() + " with name: " + element.getName());
         return element;
     }
 
@@ -64,25 +68,22 @@ public abstract class BaseDeserializer<T extends Element> extends StdDeserialize
      *
      * @param element The element to set attributes on
      * @param node The JSON node to extract from
+     * @param resolver The resolver of the document, which generates the missing ids
      * @return The element with attributes set
      */
-    protected T extractCommonAttributes(T element, JsonNode node) {
-        // Generate a UUID for the element ID if not provided
-        String id = DeserializerUtils.getStringAttribute(node, "id", UUID.randomUUID().toString());
-        element.setId(id);
+    protected T extractCommonAttributes(T element, JsonNode node, ReferenceResolver resolver) {
+        // Generate an ID for the element if not provided
+        element.setId(getId(node, resolver));
 
         // Get the attributes from XML
         String name = DeserializerUtils.getStringAttribute(node, "name", "");
         String description = DeserializerUtils.getStringAttribute(node, "description", "");
 
         // Create atom and add bidirectional relationship
-        Atom atom = createAtom(name, description);
+        Atom atom = createAtom(name, description, resolver);
         element.setRepresentation(atom);
         atom.setElement(element);
 
-        // Register the element
-        registerElement(element);
-
         return element;
     }
 
@@ -91,14 +92,19 @@ public abstract class BaseDeserializer<T extends Element> extends StdDeserialize
      *
      * @param name The ID for the atom
      * @param description The description for the atom
+     * @param resolver The resolver of the document, which generates the atom's id
      * @return A new Atom object
      */
-    protected Atom createAtom(String name, String description) {
+    protected Atom createAtom(String name, String description, ReferenceResolver resolver) {
         Atom atom = new Atom();
-        atom.setId(UUID.randomUUID().toString()); // atom's id != element's id
+        atom.setId(resolver.newId()); // atom's id != element's id
 
-        atom.setTitleText(name);
-        atom.setTitleHTMLText("<h>" + name + "</h>");
+        atom.setTitleText(resolver.intern(name));
+        if (resolver.isCompact()) {
+            atom.deriveTitleHTMLText();
+        } else {
+            atom.setTitleHTMLText("<h>" + name + "</h>");
+        }
 
         if (description != null) {
             atom.setDescription(description);
@@ -107,13 +113,38 @@ public abstract class BaseDeserializer<T extends Element> extends StdDeserialize
     }
 
     /**
-     * Registers the element in the reference resolver.
+     * Gets the id attribute of a node, or a new id if it has none.
+     */
+    protected String getId(JsonNode node, ReferenceResolver resolver) {
+        String id = DeserializerUtils.getStringAttribute(node, "id", null);
+        return id != null ? id : resolver.newId();
+    }
+
+    /**
+     * Registers the element in the reference resolver of the document being deserialized.
      *
      * @param element The element to register
+     * @param ctxt The deserialization context carrying the resolver
      */
-    protected void registerElement(T element) {
+    protected void registerElement(T element, DeserializationContext ctxt) {
         if (element != null && element.getId() != null) {
-            ReferenceResolver.getInstance().registerElement(element.getId(), element);
+            ReferenceResolver.from(ctxt).registerElement(element.getId(), element);
+        }
+    }
+
+    /**
+     * Deserializes the formula held by a node. The elements it names are placeholders until
+     * the ReferenceProcessor resolves them.
+     *
+     * @param node The node holding the formula
+     * @return The formula, or null if it cannot be deserialized
+     */
+    protected Formula deserializeFormula(JsonNode node) {
+        try {
+            return FORMULA_DESERIALIZER.deserialize(node);
+        } catch (Exception e) {
+            LOGGER.error(getClass(), "Error deserializing formula: " + e.getMessage(), e);
+            return null;
         }
     }
 
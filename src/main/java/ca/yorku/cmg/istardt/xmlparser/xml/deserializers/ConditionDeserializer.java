@@ -18,6 +18,6 @@ public class ConditionDeserializer extends BaseDeserializer<Condition> {
 
     @Override
     protected void handleSpecificAttributes(Condition condition, JsonNode node, JsonParser p, DeserializationContext ctxt) throws IOException {
-        condition.setRawFormulaNode(node);
+        condition.setFormula(deserializeFormula(node));
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package ca.yorku.cmg.istardt.xmlparser.xml.deserializers;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.Effect;
+import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.DeserializerUtils;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -28,12 +29,13 @@ public class EffectDeserializer extends BaseDeserializer<Effect> {
         float probability = DeserializerUtils.getFloatAttribute(node, "probability", 1.0f);
         effect.setSatisfying(satisfying);
         effect.setProbability(probability);
+        ReferenceResolver resolver = ReferenceResolver.from(ctxt);
 
         if (node.has("pre")) {
-            effect.setRawPreFormulaNode(node.get("pre"));
+            effect.setPreFormula(deserializeFormula(node.get("pre")));
         }
         if (node.has("npr")) {
-            effect.setRawNprFormulaNode(node.get("npr"));
+            effect.setNprFormula(deserializeFormula(node.get("npr")));
         }
 
         // Process string list properties for turnsTrue and turnsFalse
@@ -43,22 +45,23 @@ public class EffectDeserializer extends BaseDeserializer<Effect> {
         // Apply list-based properties
         for (Map.Entry<String, BiConsumer<Effect, List<String>>> entry : turnsSetter.entrySet()) {
             List<String> values = DeserializerUtils.getStringList(node, entry.getKey());
+            values.replaceAll(resolver::intern);
             entry.getValue().accept(effect, values);
         }
 
-        Map<String, Float> variableMap = new HashMap<>();
+        Map<String, Float> variableMap = resolver.newAssignments();
         JsonNode setsNode = node.get("set");
         if (setsNode != null) {
             if (setsNode.isArray()) {
                 for (JsonNode setElem : setsNode) {
                     String varId = setElem.path("variableID").asText();
                     float numConst = DeserializerUtils.getFloatAttribute(setElem, "numConst", 0);
-                    variableMap.put(varId, numConst);
+                    variableMap.put(resolver.intern(varId), numConst);
                 }
             } else {
                 String varId = setsNode.path("variableID").asText();
                 float numConst = DeserializerUtils.getFloatAttribute(setsNode, "numConst", 0);
-                variableMap.put(varId, numConst);
+                variableMap.put(resolver.intern(varId), numConst);
             }
         }
         effect.setVariableNameSet(variableMap);
@@ -29,13 +29,16 @@ public class GoalDeserializer extends BaseDeserializer<Goal> {
         // Set episode length (runs)
         int episodeLength = DeserializerUtils.getIntAttribute(node, "episodeLength", 1);
         goal.setRuns(episodeLength);
+        goal.setRunsDeclared(node.has("episodeLength"));
 
-        // Store formula nodes for future processing
+        goal.setTerminal(DeserializerUtils.getBooleanAttribute(node, "terminal", false));
+
+        // Build the formulas, their references are resolved after the whole document
         if (node.has("pre")) {
-            goal.setRawPreFormulaNode(node.get("pre"));
+            goal.setPreFormula(deserializeFormula(node.get("pre")));
         }
         if (node.has("npr")) {
-            goal.setRawNprFormulaNode(node.get("npr"));
+            goal.setNprFormula(deserializeFormula(node.get("npr")));
         }
 
         // Process refinements
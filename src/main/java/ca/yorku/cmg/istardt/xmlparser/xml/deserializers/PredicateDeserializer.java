@@ -2,10 +2,10 @@ package ca.yorku.cmg.istardt.xmlparser.xml.deserializers;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
 import ca.yorku.cmg.istardt.xmlparser.objects.Predicate;
+import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.DeserializerUtils;
 
 import java.io.IOException;
-import java.util.UUID;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -25,9 +25,8 @@ public class PredicateDeserializer extends BaseDeserializer<Predicate> {
     protected void handleSpecificAttributes(Predicate element, JsonNode node, JsonParser p, DeserializationContext ctxt) throws IOException {
     }
     @Override
-    protected Predicate extractCommonAttributes(Predicate element, JsonNode node) {
-        String id = DeserializerUtils.getStringAttribute(node, "id", UUID.randomUUID().toString());
-        element.setId(id);
+    protected Predicate extractCommonAttributes(Predicate element, JsonNode node, ReferenceResolver resolver) {
+        element.setId(getId(node, resolver));
 
         String name = null;
         if (node.has("")) {
@@ -36,13 +35,10 @@ public class PredicateDeserializer extends BaseDeserializer<Predicate> {
         String description = DeserializerUtils.getStringAttribute(node, "description", "");
 
         // Create atom and add bidirectional relationship
-        Atom atom = createAtom(name, description);
+        Atom atom = createAtom(name, description, resolver);
         element.setRepresentation(atom);
         atom.setElement(element);
 
-        // Register the element
-        registerElement(element);
-
         return element;
     }
 }
\ No newline at end of file
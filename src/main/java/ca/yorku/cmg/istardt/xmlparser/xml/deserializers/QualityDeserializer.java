@@ -21,6 +21,6 @@ public class QualityDeserializer extends BaseDeserializer<Quality> {
     protected void handleSpecificAttributes(Quality quality, JsonNode node, JsonParser p, DeserializationContext ctxt) throws IOException {
         boolean root = DeserializerUtils.getBooleanAttribute(node, "root", false);
         quality.setRoot(root);
-        quality.setRawFormulaNode(node);
+        quality.setFormula(deserializeFormula(node));
     }
 }
\ No newline at end of file
@@ -25,22 +25,22 @@ public class TaskDeserializer extends BaseDeserializer<Task> {
 
     @Override
     protected void handleSpecificAttributes(Task task, JsonNode node, JsonParser p, DeserializationContext ctxt) throws IOException {
-        // Store formula nodes for future processing
+        // Build the formulas, their references are resolved after the whole document
         if (node.has("pre")) {
-            task.setRawPreFormulaNode(node.get("pre"));
+            task.setPreFormula(deserializeFormula(node.get("pre")));
         }
         if (node.has("npr")) {
-            task.setRawNprFormulaNode(node.get("npr"));
+            task.setNprFormula(deserializeFormula(node.get("npr")));
         }
         // Process effect group
         try {
             if (node.has("effectGroup") && node.get("effectGroup").has("effect")) {
                 JsonNode effectGroupNode = node.get("effectGroup");
                 JsonNode effectNodes = effectGroupNode.get("effect");
-                LOGGER.info(getClass(),"Processing effect group for task " + task.getName());
+                LOGGER.info(getClass(), () -> "Processing effect group for task " + task.getName());
                 List<Effect> effects = DeserializerUtils.deserializeList(effectNodes, p, ctxt, Effect.class);
                 task.setEffects(effects); // bidirectional relationship
-                LOGGER.info(getClass(), "Successfully processed " + effects.size() + " effects for task " + task.getName());
+                LOGGER.info(getClass(), () -> "Successfully processed " + effects.size() + " effects for task " + task.getName());
             }
         } catch (IOException e) {
             LOGGER.error(getClass(), "Error processing effects for task " + task.getName() + ": " + e.getMessage(), e);
@@ -2,13 +2,13 @@ package ca.yorku.cmg.istardt.xmlparser.xml.deserializers;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
 import ca.yorku.cmg.istardt.xmlparser.objects.Variable;
+import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.DeserializerUtils;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
-import java.util.UUID;
 
 public class VariableDeserializer extends BaseDeserializer<Variable> {
     public VariableDeserializer() {
@@ -24,9 +24,8 @@ public class VariableDeserializer extends BaseDeserializer<Variable> {
     protected void handleSpecificAttributes(Variable element, JsonNode node, JsonParser p, DeserializationContext ctxt) throws IOException {
     }
     @Override
-    protected Variable extractCommonAttributes(Variable element, JsonNode node) {
-        String id = DeserializerUtils.getStringAttribute(node, "id", UUID.randomUUID().toString());
-        element.setId(id);
+    protected Variable extractCommonAttributes(Variable element, JsonNode node, ReferenceResolver resolver) {
+        element.setId(getId(node, resolver));
 
         String name = null;
         if (node.has("")) {
@@ -35,13 +34,10 @@ public class VariableDeserializer extends BaseDeserializer<Variable> {
         String description = DeserializerUtils.getStringAttribute(node, "description", "");
 
         // Create atom and add bidirectional relationship
-        Atom atom = createAtom(name, description);
+        Atom atom = createAtom(name, description, resolver);
         element.setRepresentation(atom);
         atom.setElement(element);
 
-        // Register the element
-        registerElement(element);
-
         return element;
     }
 }
\ No newline at end of file
@@ -9,6 +9,13 @@ import java.io.IOException;
  * Visitor interface for processing formula JSON nodes.
  */
 public interface FormulaNodeVisitor {
+    /**
+     * Visits the formula held by a node, whichever type it is.
+     *
+     * @return The formula, or null if the node holds none
+     */
+    Formula visit(JsonNode node) throws IOException;
+
     Formula visitNumConst(JsonNode node);
     Formula visitBoolConst(JsonNode node);
     Formula visitPredicateID(JsonNode node);
@@ -1,71 +1,129 @@
 package ca.yorku.cmg.istardt.xmlparser.xml.formula;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.*;
-import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.function.BiFunction;
 
+/**
+ * Builds formulas from the nodes read by the Jackson deserializers.
+ * <p>
+ * Formula elements are dispatched through one immutable table keyed on the element name,
+ * so a node costs a lookup per field rather than a probe per formula type. The visitor keeps
+ * no state and a single instance, {@link #INSTANCE}, serves all formulas.
+ */
 public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
     private static final CustomLogger LOGGER = CustomLogger.getInstance();
 
+    /**
+     * The shared visitor.
+     */
+    public static final FormulaNodeVisitorImpl INSTANCE = new FormulaNodeVisitorImpl();
+
+    // Formula types, by precedence when a node holds several
+    private static final String[] FORMULA_TYPES = {
+            "numConst", "boolConst", "predicateID", "goalID", "taskID", "variableID", "qualID", "effectID",
+            "conditionID", "add", "subtract", "multiply", "divide", "previous", "negate", "gt", "gte", "lt",
+            "lte", "eq", "neq", "and", "or", "not"
+    };
+
     private static final String[] NUMERIC_OPERAND_TYPES = {
             "numConst", "variableID", "qualID", "predicateID", "goalID", "taskID", "effectID", "conditionID",
             "add", "subtract", "multiply", "divide", "negate", "previous"
     };
 
+    // Also by precedence, for the operand of not
     private static final String[] BOOLEAN_OPERAND_TYPES = {
             "boolConst", "predicateID", "goalID", "taskID", "effectID", "conditionID",
             "and", "or", "not", "gt", "gte", "lt", "lte", "eq", "neq", "previous"
     };
-    private final JsonParser parser;
-    private final DeserializationContext context;
-    private final ReferenceResolver referenceResolver = ReferenceResolver.getInstance();
 
-    // Maps to match node types to visitor methods
-    private final Map<String, OperandVisitor> operandVisitors = new HashMap<>();
+    // Dispatch table from formula element names to their visitor methods
+    private static final Map<String, FormulaType> TYPES = createTypes();
 
-    public FormulaNodeVisitorImpl(JsonParser parser, DeserializationContext context) {
-        this.parser = parser;
-        this.context = context;
-        initializeOperandVisitors();
+    /**
+     * What the dispatch table knows of a formula element.
+     */
+    private static class FormulaType {
+        final String name;
+        final OperandVisitor visitor;
+        final int precedence;
+        final boolean numeric;
+        // -1 if it is not a boolean operand
+        final int booleanPrecedence;
+
+        FormulaType(String name, OperandVisitor visitor) {
+            this.name = name;
+            this.visitor = visitor;
+            this.precedence = Arrays.asList(FORMULA_TYPES).indexOf(name);
+            this.numeric = Arrays.asList(NUMERIC_OPERAND_TYPES).contains(name);
+            this.booleanPrecedence = Arrays.asList(BOOLEAN_OPERAND_TYPES).indexOf(name);
+        }
+    }
+
+    private static Map<String, FormulaType> createTypes() {
+        Map<String, FormulaType> types = new HashMap<>();
+        add(types, "numConst", FormulaNodeVisitorImpl::visitNumConst);
+        add(types, "boolConst", FormulaNodeVisitorImpl::visitBoolConst);
+
+        add(types, "predicateID", FormulaNodeVisitorImpl::visitPredicateID);
+        add(types, "goalID", FormulaNodeVisitorImpl::visitGoalID);
+        add(types, "taskID", FormulaNodeVisitorImpl::visitTaskID);
+        add(types, "variableID", FormulaNodeVisitorImpl::visitVariableID);
+        add(types, "qualID", FormulaNodeVisitorImpl::visitQualID);
+        add(types, "effectID", FormulaNodeVisitorImpl::visitEffectID);
+        add(types, "conditionID", FormulaNodeVisitorImpl::visitConditionID);
+
+        add(types, "add", FormulaNodeVisitorImpl::visitAdd);
+        add(types, "subtract", FormulaNodeVisitorImpl::visitSubtract);
+        add(types, "multiply", FormulaNodeVisitorImpl::visitMultiply);
+        add(types, "divide", FormulaNodeVisitorImpl::visitDivide);
+        add(types, "gt", FormulaNodeVisitorImpl::visitGreaterThan);
+        add(types, "gte", FormulaNodeVisitorImpl::visitGreaterThanEquals);
+        add(types, "lt", FormulaNodeVisitorImpl::visitLessThan);
+        add(types, "lte", FormulaNodeVisitorImpl::visitLessThanEquals);
+        add(types, "eq", FormulaNodeVisitorImpl::visitEquals);
+        add(types, "neq", FormulaNodeVisitorImpl::visitNotEquals);
+        add(types, "and", FormulaNodeVisitorImpl::visitAnd);
+        add(types, "or", FormulaNodeVisitorImpl::visitOr);
+        add(types, "not", FormulaNodeVisitorImpl::visitNot);
+        add(types, "previous", FormulaNodeVisitorImpl::visitPrevious);
+        add(types, "negate", FormulaNodeVisitorImpl::visitNegate);
+        return Collections.unmodifiableMap(types);
+    }
+
+    private static void add(Map<String, FormulaType> types, String name, OperandVisitor visitor) {
+        types.put(name, new FormulaType(name, visitor));
+    }
+
+    private FormulaNodeVisitorImpl() {
     }
 
     /**
-     * Initialize the map of operand visitors
+     * Visits the formula held by a node, the one of highest precedence if it holds several.
+     *
+     * @param node The node holding the formula, e.g. a pre or a quality element
+     * @return The formula, or null if the node holds none
      */
-    private void initializeOperandVisitors() {
-        operandVisitors.put("numConst", this::visitNumConst);
-        operandVisitors.put("boolConst", this::visitBoolConst);
-
-        operandVisitors.put("predicateID", this::visitPredicateID);
-        operandVisitors.put("goalID", this::visitGoalID);
-        operandVisitors.put("taskID", this::visitTaskID);
-        operandVisitors.put("variableID", this::visitVariableID);
-        operandVisitors.put("qualID", this::visitQualID);
-        operandVisitors.put("effectID", this::visitEffectID);
-        operandVisitors.put("conditionID", this::visitConditionID);
-
-        operandVisitors.put("add", this::visitAdd);
-        operandVisitors.put("subtract", this::visitSubtract);
-        operandVisitors.put("multiply", this::visitMultiply);
-        operandVisitors.put("divide", this::visitDivide);
-        operandVisitors.put("gt", this::visitGreaterThan);
-        operandVisitors.put("gte", this::visitGreaterThanEquals);
-        operandVisitors.put("lt", this::visitLessThan);
-        operandVisitors.put("lte", this::visitLessThanEquals);
-        operandVisitors.put("eq", this::visitEquals);
-        operandVisitors.put("neq", this::visitNotEquals);
-        operandVisitors.put("and", this::visitAnd);
-        operandVisitors.put("or", this::visitOr);
-        operandVisitors.put("not", this::visitNot);
-        operandVisitors.put("previous", this::visitPrevious);
-        operandVisitors.put("negate", this::visitNegate);
+    @Override
+    public Formula visit(JsonNode node) throws IOException {
+        FormulaType type = null;
+        Iterator<String> names = node.fieldNames();
+        while (names.hasNext()) {
+            FormulaType candidate = TYPES.get(names.next());
+            if (candidate != null && (type == null || candidate.precedence < type.precedence)) {
+                type = candidate;
+            }
+        }
+        if (type == null) {
+            return null;
+        }
+        String name = type.name;
+        LOGGER.info(getClass(), () -> "Found " + name + " formula");
+        return type.visitor.visit(this, node.get(name));
     }
 
     @Override
@@ -80,93 +138,44 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
 
     @Override
     public Formula visitPredicateID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Predicate) {
-            LOGGER.info(getClass(), "Found predicate with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Predicate with name not found: " + name);
-            return Formula.createConstantFormula("Unknown PredicateID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Predicate.class, "Unknown PredicateID");
     }
 
     @Override
     public Formula visitGoalID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Goal) {
-            LOGGER.info(getClass(), "Found goal with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Goal with name not found: " + name);
-            return Formula.createConstantFormula("Unknown GoalID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Goal.class, "Unknown GoalID");
     }
 
     @Override
     public Formula visitTaskID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Task) {
-            LOGGER.info(getClass(), "Found task with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Task with name not found: " + name);
-            return Formula.createConstantFormula("Unknown TaskID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Task.class, "Unknown TaskID");
     }
 
     @Override
     public Formula visitVariableID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Variable) {
-            LOGGER.info(getClass(), "Found variable with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Variable with name not found: " + name);
-            return Formula.createConstantFormula("Unknown VariableID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Variable.class, "Unknown VariableID");
     }
 
     @Override
     public Formula visitQualID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Quality) {
-            LOGGER.info(getClass(), "Found quality with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Quality with name not found: " + name);
-            return Formula.createConstantFormula("Unknown QualityID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Quality.class, "Unknown QualityID");
     }
 
     @Override
     public Formula visitEffectID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Effect) {
-            LOGGER.info(getClass(), "Found effect with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Effect with name not found: " + name);
-            return Formula.createConstantFormula("Unknown EffectID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Effect.class, "Unknown EffectID");
     }
 
     @Override
     public Formula visitConditionID(JsonNode node) {
-        String name = node.asText();
-        Element element = referenceResolver.getElementByName(name);
-        if (element != null && element instanceof Condition) {
-            LOGGER.info(getClass(), "Found condition with name: " + name);
-            return element.getAtom();
-        } else {
-            LOGGER.error(getClass(), "Condition with name not found: " + name);
-            return Formula.createConstantFormula("Unknown ConditionID");
-        }
+        // resolved by name once all elements are known
+        return UnresolvedReference.to(node.asText(), Condition.class, "Unknown ConditionID");
     }
 
     @Override
@@ -193,26 +202,18 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
 
     @Override
     public Formula visitPrevious(JsonNode node) throws IOException {
-        LOGGER.info("Visiting Previous node: " + node);
+        LOGGER.info(getClass(), () -> "Visiting Previous node: " + node);
 
         String[] ids = {"predicateID", "goalID", "taskID", "variableID", "qualID", "effectID", "conditionID"};
 
         // Check if any ID fields exist in the node
         for (String type : ids) {
             if (node.has(type)) {
-                LOGGER.info(getClass(), "Found " + type + " in Previous node");
-                String name = node.get(type).asText();
-                Element element = referenceResolver.getElementByName(name);
-                if (element != null) {
-                    LOGGER.info(getClass(), "Creating PreviousOperator with Atom for: " + name);
-                    return new PreviousOperator(element.getAtom());
-                } else {
-                    LOGGER.warning(getClass(), "Element not found for " + type + ": " + name);
-                    return new PreviousOperator(Formula.createConstantFormula(name));
-                }
+                LOGGER.info(getClass(), () -> "Found " + type + " in Previous node");
+                return new PreviousOperator(UnresolvedReference.toAny(node.get(type).asText()));
             }
         }
-        LOGGER.warning(getClass(), "Previous node has no valid name fields: " + node);
+        LOGGER.warning(getClass(), () -> "Previous node has no valid name fields: " + node);
         return Formula.createConstantFormula("Unknown Previous");
     }
 
@@ -220,12 +221,9 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
     @Override
     public Formula visitNegate(JsonNode node) throws IOException {
         // Process the first child element found
-        for (Map.Entry<String, OperandVisitor> entry : operandVisitors.entrySet()) {
-            String type = entry.getKey();
-            if (node.has(type)) {
-                Formula formula = visitOperandByType(type, node.get(type));
-                return new NegateOperator(formula);
-            }
+        Map.Entry<String, JsonNode> operand = firstOperand(node);
+        if (operand != null) {
+            return new NegateOperator(visitOperandByType(operand.getKey(), operand.getValue()));
         }
         LOGGER.error(getClass(), "No valid operand found in negate operation");
         return Formula.createConstantFormula("0");
@@ -273,29 +271,16 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
                 this::collectBooleanOperands);
     }
 
-    private List<Formula> collectOperands(JsonNode node, String[] operandTypes) throws IOException {
+    private List<Formula> collectOperands(JsonNode node, boolean numeric) throws IOException {
         List<Formula> operands = new ArrayList<>();
 
-        // Create a set of valid types for quick lookup
-        Set<String> validTypes = new HashSet<>(Arrays.asList(operandTypes));
-
         // Iterate through the child nodes in the order they appear in the XML
         Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
         while (fields.hasNext()) {
             Map.Entry<String, JsonNode> field = fields.next();
-            String type = field.getKey();
-            JsonNode childNode = field.getValue();
-
-            if (validTypes.contains(type)) {
-                addNodeToOperands(childNode, operands,
-                        n -> {
-                            try {
-                                return visitOperandByType(type, n);
-                            } catch (IOException e) {
-                                LOGGER.error(getClass(), "Error processing operand: " + e.getMessage(), e);
-                                return null;
-                            }
-                        });
+            FormulaType type = TYPES.get(field.getKey());
+            if (type != null && (numeric ? type.numeric : type.booleanPrecedence >= 0)) {
+                addNodeToOperands(field.getValue(), operands, type.visitor);
             }
         }
         return operands;
@@ -303,15 +288,18 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
 
     @Override
     public Formula visitNot(JsonNode node) throws IOException {
-        for (String type : BOOLEAN_OPERAND_TYPES) {
-            if (node.has(type)) {
-                Formula operand = visitOperandByType(type, node.get(type));
-                if (operand != null) {
-                    return new NOTOperator(operand);
-                }
+        FormulaType type = null;
+        Iterator<String> names = node.fieldNames();
+        while (names.hasNext()) {
+            FormulaType candidate = TYPES.get(names.next());
+            if (candidate != null && candidate.booleanPrecedence >= 0
+                    && (type == null || candidate.booleanPrecedence < type.booleanPrecedence)) {
+                type = candidate;
             }
         }
-
+        if (type != null) {
+            return new NOTOperator(visitOperandByType(type.name, node.get(type.name)));
+        }
         return Formula.createBooleanFormula(false);
     }
 
@@ -369,11 +357,11 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
     }
 
     /**
-     * Interface for operand visitors
+     * Interface for operand visitors, the visitor methods taken unbound
      */
     @FunctionalInterface
     private interface OperandVisitor {
-        Formula visit(JsonNode node) throws IOException;
+        Formula visit(FormulaNodeVisitorImpl visitor, JsonNode node) throws IOException;
     }
 
     /**
@@ -388,9 +376,23 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
      * Visits a child operand based on its type.
      */
     private Formula visitOperandByType(String type, JsonNode node) throws IOException {
-        OperandVisitor visitor = operandVisitors.get(type);
-        if (visitor != null) {
-            return visitor.visit(node);
+        FormulaType formulaType = TYPES.get(type);
+        if (formulaType != null) {
+            return formulaType.visitor.visit(this, node);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first operand of a node, in document order.
+     */
+    private static Map.Entry<String, JsonNode> firstOperand(JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (TYPES.containsKey(field.getKey())) {
+                return field;
+            }
         }
         return null;
     }
@@ -403,11 +405,9 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
             return null;
         }
 
-        for (Map.Entry<String, OperandVisitor> entry : operandVisitors.entrySet()) {
-            String type = entry.getKey();
-            if (node.has(type)) {
-                return visitOperandByType(type, node.get(type));
-            }
+        Map.Entry<String, JsonNode> operand = firstOperand(node);
+        if (operand != null) {
+            return visitOperandByType(operand.getKey(), operand.getValue());
         }
         return Formula.createConstantFormula("Unknown");
     }
@@ -416,33 +416,37 @@ public class FormulaNodeVisitorImpl implements FormulaNodeVisitor {
      * Helper method to collect numeric operands from a node.
      */
     private List<Formula> collectNumericOperands(JsonNode node) throws IOException {
-        return collectOperands(node, NUMERIC_OPERAND_TYPES);
+        return collectOperands(node, true);
     }
 
     /**
      * Helper method to collect boolean operands from a node.
      */
     private List<Formula> collectBooleanOperands(JsonNode node) throws IOException {
-        return collectOperands(node, BOOLEAN_OPERAND_TYPES);
+        return collectOperands(node, false);
     }
 
     /**
      * Helper to add one or more nodes to the operands list using a visitor method
      */
-    private void addNodeToOperands(JsonNode node, List<Formula> operands,
-                                   java.util.function.Function<JsonNode, Formula> visitor) {
+    private void addNodeToOperands(JsonNode node, List<Formula> operands, OperandVisitor visitor) {
         if (node.isArray()) {
             for (JsonNode item : node) {
-                Formula formula = visitor.apply(item);
-                if (formula != null) {
-                    operands.add(formula);
-                }
+                addOperand(visitor, item, operands);
             }
         } else {
-            Formula formula = visitor.apply(node);
+            addOperand(visitor, node, operands);
+        }
+    }
+
+    private void addOperand(OperandVisitor visitor, JsonNode node, List<Formula> operands) {
+        try {
+            Formula formula = visitor.visit(this, node);
             if (formula != null) {
                 operands.add(formula);
             }
+        } catch (IOException e) {
+            LOGGER.error(getClass(), "Error processing operand: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
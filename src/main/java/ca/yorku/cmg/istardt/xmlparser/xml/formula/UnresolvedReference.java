@@ -0,0 +1,88 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.formula;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Element;
+import ca.yorku.cmg.istardt.xmlparser.objects.Formula;
+import ca.yorku.cmg.istardt.xmlparser.objects.OperatorDecorator;
+import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
+import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+
+/**
+ * Placeholder for an element named in a formula. Formulas are built while the document is
+ * read, before the elements they refer to may have been; {@link #resolve(Formula, ReferenceResolver)}
+ * swaps the placeholders for the atoms of the elements once all of them are registered.
+ */
+public class UnresolvedReference extends Formula {
+    private static final CustomLogger LOGGER = CustomLogger.getInstance();
+
+    private final String name;
+    private final Class<? extends Element> type;
+    private final String unknown;
+
+    private UnresolvedReference(String name, Class<? extends Element> type, String unknown) {
+        this.name = name;
+        this.type = type;
+        this.unknown = unknown;
+    }
+
+    /**
+     * A reference to an element of the given type, which becomes the constant {@code unknown}
+     * if there is no such element.
+     */
+    public static UnresolvedReference to(String name, Class<? extends Element> type, String unknown) {
+        return new UnresolvedReference(name, type, unknown);
+    }
+
+    /**
+     * A reference to an element of any type, which becomes a constant with the name itself
+     * if there is no such element (the operand of a previous operator).
+     */
+    public static UnresolvedReference toAny(String name) {
+        return new UnresolvedReference(name, Element.class, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getFormula() {
+        return name;
+    }
+
+    private Formula resolve(ReferenceResolver resolver) {
+        Element element = resolver.getElementByName(name);
+        if (type.isInstance(element)) {
+            return element.getAtom();
+        }
+        if (unknown == null) {
+            LOGGER.warning(getClass(), () -> "Element not found: " + name);
+            return Formula.createConstantFormula(name);
+        }
+        LOGGER.error(getClass(), type.getSimpleName() + " with name not found: " + name);
+        return Formula.createConstantFormula(unknown);
+    }
+
+    /**
+     * Replaces the placeholders of a formula by what they refer to.
+     *
+     * @return The formula, or what replaces it if it is a placeholder itself
+     */
+    public static Formula resolve(Formula formula, ReferenceResolver resolver) {
+        if (formula instanceof UnresolvedReference) {
+            return ((UnresolvedReference) formula).resolve(resolver);
+        }
+        // operands are folded to the left, walk down that side without recursing
+        Formula current = formula;
+        while (current instanceof OperatorDecorator) {
+            OperatorDecorator operator = (OperatorDecorator) current;
+            if (operator.getRight() != null) {
+                operator.setRight(resolve(operator.getRight(), resolver));
+            }
+            current = operator.getLeft();
+            if (current instanceof UnresolvedReference) {
+                operator.setLeft(((UnresolvedReference) current).resolve(resolver));
+            }
+        }
+        return formula;
+    }
+}
@@ -2,32 +2,29 @@ package ca.yorku.cmg.istardt.xmlparser.xml.processing;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.*;
 import ca.yorku.cmg.istardt.xmlparser.xml.ReferenceResolver;
+import ca.yorku.cmg.istardt.xmlparser.xml.formula.UnresolvedReference;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Post-processor for resolving references after deserialization.
+ * <p>
+ * The elements are looked up in the resolver the document was deserialized with, so one
+ * processor can serve several documents at the same time.
  */
 public class ReferenceProcessor {
     private static final CustomLogger LOGGER = CustomLogger.getInstance();
-    private final XmlMapper xmlMapper;
-
-    public ReferenceProcessor(XmlMapper xmlMapper) {
-        this.xmlMapper = xmlMapper;
-    }
 
     /**
      * Process the model to resolve all references between objects.
      *
      * @param model The model to process
+     * @param resolver The resolver holding the elements of the model
      */
-    public void processReferences(Model model) {
+    public void processReferences(Model model, ReferenceResolver resolver) {
         if (model == null) {
             LOGGER.warning(getClass(),"Cannot process references for null model");
             return;
@@ -35,7 +32,7 @@ public class ReferenceProcessor {
         // Process each actor and its elements
         for (Actor actor : model.getActors()) {
             // Process goal hierarchies and refinements
-            processGoalRefinements(actor.getGoals());
+            processGoalRefinements(actor.getGoals(), resolver);
 
             // Collect effects
             List<Effect> allEffects = new ArrayList<>();
@@ -49,43 +46,110 @@ public class ReferenceProcessor {
             // Process parent-child relationships in decomposition elements
             processDecompositionHierarchy(actor.getGoals());
 
-            processCrossRunSets(actor);
-            processExportedSet(actor);
-            processInitializationSet(actor);
+            processCrossRunSets(actor, resolver);
+            processExportedSet(actor, resolver);
+            processInitializationSet(actor, resolver);
 
-            processEffectSet(actor);
+            processEffectSet(actor, resolver);
+        }
+        processAllFormulas(model, resolver);
+        if (resolver.isCompact()) {
+            compact(model, resolver);
         }
-        processAllFormulas(model);
         LOGGER.info(getClass(),"Reference processing completed successfully");
     }
 
-    private void processEffectSet(Actor actor) {
-        Map<Variable, Float> variableMap = new HashMap<>();
+    private void processEffectSet(Actor actor, ReferenceResolver resolver) {
+        Map<Variable, Float> variableMap = resolver.newAssignments();
         for (Effect effect : actor.getEffects()){
             Map<String, Float> variableNameSet = effect.getVariableNameSet();
             for(String name: variableNameSet.keySet()){
-                variableMap.put((Variable) ReferenceResolver.getInstance().getElementByName(name), variableNameSet.get(name));
+                variableMap.put((Variable) resolver.getElementByName(name), variableNameSet.get(name));
             }
             effect.setVariableSet(variableMap);
         }
     }
 
+    /**
+     * Drops the spare capacity of the lists and maps of a compact model, now that it is
+     * complete, and makes the references share the names of the elements.
+     */
+    private void compact(Model model, ReferenceResolver resolver) {
+        trim(model.getActors());
+        for (Actor actor : model.getActors()) {
+            trim(actor.getGoals());
+            trim(actor.getTasks());
+            trim(actor.getEffects());
+            trim(actor.getQualities());
+            trim(actor.getConditions());
+            trim(actor.getPredicates());
+            trim(actor.getVariables());
+            for (Goal goal : actor.getGoals()) {
+                goal.getChildGoalRefs().replaceAll(resolver::intern);
+                goal.getChildTaskRefs().replaceAll(resolver::intern);
+                trim(goal.getChildGoalRefs());
+                trim(goal.getChildTaskRefs());
+                trim(goal.getChildren());
+            }
+            for (Task task : actor.getTasks()) {
+                trim(task.getChildren());
+                trim(task.getEffects());
+                for (Effect effect : task.getEffects()) {
+                    trim(effect.getChildren());
+                    trim(effect.getTurnsTrue());
+                    trim(effect.getTurnsFalse());
+                    trim(effect.getVariableNameSet());
+                    trim(effect.getVariableSet());
+                }
+            }
+            if (actor.getCrossRunSet() != null) {
+                actor.getCrossRunSet().getRefs().replaceAll(resolver::intern);
+                trim(actor.getCrossRunSet().getRefs());
+                trim(actor.getCrossRunSet().getElements());
+            }
+            if (actor.getExportedSet() != null) {
+                for (Export export : actor.getExportedSet().getExports()) {
+                    export.setRef(resolver.intern(export.getRef()));
+                }
+                trim(actor.getExportedSet().getExports());
+            }
+            if (actor.getInitializationSet() != null) {
+                for (Initialization init : actor.getInitializationSet().getInitializations()) {
+                    init.setRef(resolver.intern(init.getRef()));
+                }
+                trim(actor.getInitializationSet().getInitializations());
+            }
+        }
+    }
+
+    private static void trim(List<?> list) {
+        if (list instanceof ArrayList<?> l) {
+            l.trimToSize();
+        }
+    }
+
+    private static void trim(Map<?, Float> map) {
+        if (map instanceof FloatMap<?> m) {
+            m.trimToSize();
+        }
+    }
+
     /**
      * Process CrossRunSet references to resolve them to elements.
      */
-    private void processCrossRunSets(Actor actor) {
+    private void processCrossRunSets(Actor actor, ReferenceResolver resolver) {
         CrossRunSet crossRunSet = actor.getCrossRunSet();
         if (crossRunSet == null || crossRunSet.getRefs().isEmpty()) {
             return;
         }
         LOGGER.info(getClass(),"Processing CrossRunSet references");
         for (String ref : crossRunSet.getRefs()) {
-            Element element = ReferenceResolver.getInstance().getElementByName(ref);
+            Element element = resolver.getElementByName(ref);
             if (element != null) {
                 crossRunSet.addElement(element);
-                LOGGER.info(getClass(), "Resolved CrossRunSet reference: " + ref + " to element: " + element.getClass().getSimpleName());
+                LOGGER.info(getClass(), () -> "Resolved CrossRunSet reference: " + ref + " to element: " + element.getClass().getSimpleName());
             } else {
-                LOGGER.warning(getClass(), "Failed to resolve CrossRunSet reference: " + ref);
+                LOGGER.warning(getClass(), () -> "Failed to resolve CrossRunSet reference: " + ref);
             }
         }
     }
@@ -94,20 +158,20 @@ public class ReferenceProcessor {
     /**
      * Process ExportedSet references to resolve them to elements.
      */
-    private void processExportedSet(Actor actor) {
+    private void processExportedSet(Actor actor, ReferenceResolver resolver) {
         ExportedSet exportedSet = actor.getExportedSet();
         if (exportedSet == null || exportedSet.getExports().isEmpty()) {
             return;
         }
-        LOGGER.info(getClass(), "Processing ExportedSet references for actor: " + actor.getId());
+        LOGGER.info(getClass(), () -> "Processing ExportedSet references for actor: " + actor.getId());
         for (Export export : exportedSet.getExports()) {
             String ref = export.getRef();
-            Element element = ReferenceResolver.getInstance().getElementByName(ref);
+            Element element = resolver.getElementByName(ref);
             if (element != null) {
                 export.setElement(element);
-                LOGGER.info(getClass(),"Resolved export reference: " + ref + " to element: " + element.getId());
+                LOGGER.info(getClass(), () -> "Resolved export reference: " + ref + " to element: " + element.getId());
             } else {
-                LOGGER.warning(getClass(),"Failed to resolve export reference: " + ref);
+                LOGGER.warning(getClass(), () -> "Failed to resolve export reference: " + ref);
             }
         }
     }
@@ -115,22 +179,22 @@ public class ReferenceProcessor {
     /**
      * Process InitializationSet references to resolve them to elements.
      */
-    private void processInitializationSet(Actor actor) {
+    private void processInitializationSet(Actor actor, ReferenceResolver resolver) {
         InitializationSet initializationSet = actor.getInitializationSet();
         if (initializationSet == null || initializationSet.getInitializations().isEmpty()) {
             return;
         }
-        LOGGER.info(getClass(),"Processing InitializationSet references for actor: " + actor.getId());
+        LOGGER.info(getClass(), () -> "Processing InitializationSet references for actor: " + actor.getId());
         for (Initialization init : initializationSet.getInitializations()) {
             String ref = init.getRef();
-            Element element = ReferenceResolver.getInstance().getElementByName(ref);
+            Element element = resolver.getElementByName(ref);
             if (element != null) {
                 init.setElement(element);
-                LOGGER.info(getClass(),"Resolved initialization reference: " + ref +
+                LOGGER.info(getClass(), () -> "Resolved initialization reference: " + ref +
                         " to element: " + element.getName() +
                         " with value: " + init.getValue());
             } else {
-                LOGGER.warning(getClass(),"Failed to resolve initialization reference: " + ref);
+                LOGGER.warning(getClass(), () -> "Failed to resolve initialization reference: " + ref);
             }
         }
     }
@@ -139,8 +203,9 @@ public class ReferenceProcessor {
      * Process goal refinements to establish parent-child relationships.
      *
      * @param goals The list of goals to process
+     * @param resolver The resolver holding the elements of the model
      */
-    private void processGoalRefinements(List<Goal> goals) {
+    private void processGoalRefinements(List<Goal> goals, ReferenceResolver resolver) {
         if (goals == null) return;
 
         for (Goal goal : goals) {
@@ -151,7 +216,7 @@ public class ReferenceProcessor {
             // Process child goal refs
             if (childGoalRefs != null) {
                 for (String ref : childGoalRefs) {
-                    Element element = ReferenceResolver.getInstance().getElementByName(ref);
+                    Element element = resolver.getElementByName(ref);
                     if (element instanceof Goal) {
                         if (goal.getDecompType() == DecompType.AND) {
                             goal.addANDChild((Goal) element);
@@ -165,7 +230,7 @@ public class ReferenceProcessor {
             // Process child task refs
             if (childTaskRefs != null) {
                 for (String ref : childTaskRefs) {
-                    Element element = ReferenceResolver.getInstance().getElementByName(ref);
+                    Element element = resolver.getElementByName(ref);
                     if (element instanceof Task) {
                         if (goal.getDecompType() == DecompType.AND) {
                             goal.addANDChild((Task) element);
@@ -197,43 +262,30 @@ public class ReferenceProcessor {
         }
     }
 
-    private void processAllFormulas(Model model) {
+    /**
+     * Resolves the elements named in the formulas, which were built with placeholders while
+     * the document was read.
+     */
+    private void processAllFormulas(Model model, ReferenceResolver resolver) {
         LOGGER.info(getClass(),"Processing formulas...");
         for (Actor actor : model.getActors()) {
-            // Process goal formulas
             for (Goal goal : actor.getGoals()) {
-                processElementFormulas(goal);
+                processElementFormulas(goal, resolver);
             }
-
-            // Process task formulas
             for (Task task : actor.getTasks()) {
-                processElementFormulas(task);
-
-                // Process effect formulas
+                processElementFormulas(task, resolver);
                 for (Effect effect : task.getEffects()) {
-                    processElementFormulas(effect);
+                    processElementFormulas(effect, resolver);
                 }
             }
-
-            // Process quality formulas
             for (Quality quality : actor.getQualities()) {
-                if (quality.getRawFormulaNode() != null) {
-                    Formula formula = deserializeFormula(quality.getRawFormulaNode());
-                    if (formula != null) {
-                        quality.setFormula(formula);
-                        LOGGER.info(getClass(),"Set formula for quality: " + quality.getId());
-                    }
+                if (quality.getFormula() != null) {
+                    quality.setFormula(UnresolvedReference.resolve(quality.getFormula(), resolver));
                 }
             }
-
-            // Process condition formulas
             for (Condition condition : actor.getConditions()) {
-                if (condition.getRawFormulaNode() != null) {
-                    Formula formula = deserializeFormula(condition.getRawFormulaNode());
-                    if (formula != null) {
-                        condition.setFormula(formula);
-                        LOGGER.info(getClass(),"Set formula for condition: " + condition.getName());
-                    }
+                if (condition.getFormula() != null) {
+                    condition.setFormula(UnresolvedReference.resolve(condition.getFormula(), resolver));
                 }
             }
         }
@@ -243,50 +295,12 @@ public class ReferenceProcessor {
     /**
      * Process pre and npr formulas for decomposition elements.
      */
-    private void processElementFormulas(Object element) {
-        JsonNode preNode = null;
-        JsonNode nprNode = null;
-
-        // Extract raw formula nodes based on element type
-        if (element instanceof DecompositionElement) {
-            DecompositionElement decompElement = (DecompositionElement) element;
-            preNode = decompElement.getRawPreFormulaNode();
-            nprNode = decompElement.getRawNprFormulaNode();
-        }
-
-        // Process pre formula
-        if (preNode != null) {
-            Formula preFormula = deserializeFormula(preNode);
-            if (preFormula != null) {
-                if (element instanceof DecompositionElement) {
-                    ((DecompositionElement) element).setPreFormula(preFormula);
-                    LOGGER.info(getClass(),"Set pre formula for element: " + ((DecompositionElement) element).getId());
-                }
-            }
-        }
-
-        // Process npr formula
-        if (nprNode != null) {
-            Formula nprFormula = deserializeFormula(nprNode);
-            if (nprFormula != null) {
-                if (element instanceof DecompositionElement) {
-                    ((DecompositionElement) element).setNprFormula(nprFormula);
-                    LOGGER.info(getClass(),"Set npr formula for element: " + ((DecompositionElement) element).getId());
-                }
-            }
+    private void processElementFormulas(DecompositionElement element, ReferenceResolver resolver) {
+        if (element.getPreFormula() != null) {
+            element.setPreFormula(UnresolvedReference.resolve(element.getPreFormula(), resolver));
         }
-    }
-
-
-    /**
-     * Deserialize a formula from a JSON node.
-     */
-    private Formula deserializeFormula(JsonNode node) {
-        try {
-            return xmlMapper.convertValue(node, Formula.class);
-        } catch (Exception e) {
-            LOGGER.error(getClass(),"Error deserializing formula: " + e.getMessage(), e);
-            return null;
+        if (element.getNprFormula() != null) {
+            element.setNprFormula(UnresolvedReference.resolve(element.getNprFormula(), resolver));
         }
     }
 }
\ No newline at end of file
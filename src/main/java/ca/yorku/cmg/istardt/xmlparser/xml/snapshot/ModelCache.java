@@ -0,0 +1,148 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.snapshot;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
+import ca.yorku.cmg.istardt.xmlparser.xml.ModelLoader;
+import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ValidationException;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directory of {@link ModelSnapshot}s keyed by the SHA-256 of the documents they were built
+ * from, the kind of model built (compact or not, streaming or not) and the snapshot format
+ * version. A document that was loaded before is read back from its snapshot, memory-mapped,
+ * instead of being validated and unmarshalled again.
+ * <p>
+ * A snapshot keeps the rules its document was validated against and the warnings found. A
+ * loader that validates does not use a snapshot of a document loaded without validation or
+ * checked against other rules, and logs the warnings again when it uses one. Snapshots that
+ * cannot be read (another format version, a truncated file) are ignored and replaced. Several processes can share a directory: snapshots are written to a
+ * temporary file first and then moved in place.
+ */
+public class ModelCache {
+    private static final CustomLogger LOGGER = CustomLogger.getInstance();
+
+    private static final String SUFFIX = ".v" + ModelSnapshot.VERSION + ".model";
+
+    private final File directory;
+
+    /**
+     * @param directory The directory holding the snapshots, created if needed
+     */
+    public ModelCache(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Loads a model from a file, from its snapshot if there is one.
+     *
+     * @param xmlFile The document
+     * @param loader The loader to use if there is no snapshot
+     * @throws ValidationException If the document is not well-formed or not valid
+     * @throws IOException If the file cannot be read or unmarshalled
+     */
+    public Model load(File xmlFile, ModelLoader loader) throws ValidationException, IOException {
+        byte[] content = Files.readAllBytes(xmlFile.toPath());
+        File snapshot = getSnapshotFile(content, loader);
+        String rules = loader.getRules();
+
+        if (snapshot.isFile()) {
+            try {
+                Model model = read(snapshot, rules);
+                if (model != null) {
+                    LOGGER.info(getClass(), () -> "Loaded " + xmlFile + " from " + snapshot);
+                    return model;
+                }
+            } catch (IOException e) {
+                LOGGER.warning(getClass(), () -> "Ignoring snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+
+        InputSource source = new InputSource(new ByteArrayInputStream(content));
+        source.setSystemId(xmlFile.getAbsoluteFile().toURI().toString());
+        List<String> warnings = new ArrayList<>();
+        Model model = loader.load(ModelLoader.parse(source), warnings);
+        try {
+            write(snapshot, ModelSnapshot.write(model, rules, warnings));
+        } catch (IOException e) {
+            // the model is fine, it only is not cached
+            LOGGER.warning(getClass(), () -> "Cannot write snapshot " + snapshot + ": " + e.getMessage());
+        }
+        return model;
+    }
+
+    /**
+     * Gets the file the snapshot of a document loaded by a loader is kept in.
+     */
+    public File getSnapshotFile(byte[] content, ModelLoader loader) {
+        IStarUnmarshaller unmarshaller = loader.getUnmarshaller();
+        return new File(directory, hash(content)
+                + (unmarshaller.isCompact() ? ".compact" : "")
+                + (unmarshaller.isStreaming() ? ".streaming" : "") + SUFFIX);
+    }
+
+    /**
+     * Reads a snapshot through a memory mapping of its file, logging its validation
+     * warnings if it is read for a loader that validates.
+     *
+     * @param rules The rules the loader validates against, null if it does not
+     * @return The model, or null if the snapshot was not validated against these rules
+     */
+    private Model read(File snapshot, String rules) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (rules != null && !rules.equals(ModelSnapshot.getRules(data))) {
+                return null;
+            }
+            Model model = ModelSnapshot.read(data);
+            if (rules != null) {
+                for (String w : ModelSnapshot.getWarnings(data)) {
+                    LOGGER.warning(getClass(), w);
+                }
+            }
+            return model;
+        }
+    }
+
+    private void write(File snapshot, byte[] data) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Path temp = Files.createTempFile(directory.toPath(), "snapshot", ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
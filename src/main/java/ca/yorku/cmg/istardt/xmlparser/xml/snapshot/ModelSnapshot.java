@@ -0,0 +1,741 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.snapshot;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Compact binary form of a fully resolved model: the elements with their atoms, the
+ * decomposition links, the formulas and the cross-run, export and initialization sets.
+ * Reading one back gives the model the unmarshaller and the ReferenceProcessor would build,
+ * without going through the XML.
+ * <p>
+ * The elements are written first, as a table, and everything else refers to them by their
+ * index in it, so that the links (including those from formula atoms) are restored to the
+ * same objects. Strings are written once and then referred to by index.
+ */
+public class ModelSnapshot {
+    private static final int MAGIC = 0x49534454; // "ISDT"
+
+    /**
+     * Version of the format, snapshots of other versions are not read.
+     */
+    public static final int VERSION = 3;
+
+    // element kinds
+    private static final byte ACTOR = 0;
+    private static final byte PREDICATE = 1;
+    private static final byte VARIABLE = 2;
+    private static final byte CONDITION = 3;
+    private static final byte QUALITY = 4;
+    private static final byte GOAL = 5;
+    private static final byte TASK = 6;
+    private static final byte EFFECT = 7;
+
+    // formula kinds
+    private static final byte NULL = 0;
+    private static final byte ATOM = 1;
+    private static final byte DETACHED_ATOM = 2;
+    private static final byte NUMERIC = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte CONSTANT = 5;
+    private static final byte UNARY = 6;
+    private static final byte BINARY = 7;
+
+    // operators, by the index of their class
+    private static final List<Class<? extends OperatorDecorator>> UNARY_OPERATORS = List.of(
+            NOTOperator.class, NegateOperator.class, PreviousOperator.class);
+    private static final List<Function<Formula, Formula>> UNARY_FACTORIES = List.of(
+            NOTOperator::new, NegateOperator::new, PreviousOperator::new);
+    private static final List<Class<? extends OperatorDecorator>> BINARY_OPERATORS = List.of(
+            ANDOperator.class, OROperator.class, GTOperator.class, GTEOperator.class, LTOperator.class,
+            LTEOperator.class, EQOperator.class, NEQOperator.class, PlusOperator.class, MinusOperator.class,
+            MultiplyOperator.class, DivideOperator.class);
+    private static final List<BiFunction<Formula, Formula, Formula>> BINARY_FACTORIES = List.of(
+            ANDOperator::new, OROperator::new, GTOperator::new, GTEOperator::new, LTOperator::new,
+            LTEOperator::new, EQOperator::new, NEQOperator::new, PlusOperator::new, MinusOperator::new,
+            MultiplyOperator::new, DivideOperator::new);
+
+    private static final DecompType[] DECOMP_TYPES = DecompType.values();
+
+    private ModelSnapshot() {
+    }
+
+    /**
+     * Writes a model.
+     *
+     * @param model The model, with its references processed
+     * @param rules The rules the document of the model was validated against (see
+     *              {@code ModelLoader.getRules()}), or null if it was not validated
+     * @param warnings The validation warnings of the document
+     * @return The snapshot
+     * @throws IOException If the model holds a formula that cannot be written
+     */
+    public static byte[] write(Model model, String rules, List<String> warnings) throws IOException {
+        return new Writer().write(model, rules, warnings);
+    }
+
+    /**
+     * Tells whether a snapshot was written from a validated document.
+     *
+     * @throws IOException If the data is not a snapshot of this version
+     */
+    public static boolean isValidated(ByteBuffer data) throws IOException {
+        return getRules(data) != null;
+    }
+
+    /**
+     * Gets the rules the document of a snapshot was validated against.
+     *
+     * @return The rules, or null if the document was not validated
+     * @throws IOException If the data is not a snapshot of this version
+     */
+    public static String getRules(ByteBuffer data) throws IOException {
+        return header(data).rules;
+    }
+
+    /**
+     * Gets the validation warnings of the document of a snapshot.
+     *
+     * @throws IOException If the data is not a snapshot of this version
+     */
+    public static List<String> getWarnings(ByteBuffer data) throws IOException {
+        return header(data).warnings;
+    }
+
+    private static Reader header(ByteBuffer data) throws IOException {
+        Reader header = new Reader(data.duplicate());
+        try {
+            header.readHeader();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted model snapshot", e);
+        }
+        return header;
+    }
+
+    /**
+     * Reads a model back.
+     *
+     * @param data The snapshot, from its current position
+     * @return The model, as it was written
+     * @throws IOException If the data is not a snapshot of this version or is corrupted
+     */
+    public static Model read(ByteBuffer data) throws IOException {
+        getRules(data);
+        try {
+            return new Reader(data.duplicate()).read();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupted model snapshot", e);
+        }
+    }
+
+    private static class Writer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Element, Integer> elements = new IdentityHashMap<>();
+        private final List<Element> table = new ArrayList<>();
+        // effects of an actor share one map of variables
+        private final Map<Map<Variable, Float>, Integer> variableSets = new IdentityHashMap<>();
+
+        byte[] write(Model model, String rules, List<String> warnings) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(rules);
+            writeStrings(warnings);
+
+            for (Actor actor : model.getActors()) {
+                collect(actor);
+                collectAll(actor.getPredicates());
+                collectAll(actor.getVariables());
+                collectAll(actor.getConditions());
+                collectAll(actor.getQualities());
+                collectAll(actor.getGoals());
+                collectAll(actor.getTasks());
+                for (Task task : actor.getTasks()) {
+                    collectAll(task.getEffects());
+                }
+                collectAll(actor.getEffects());
+            }
+            // whatever else the links reach, normally elements of the lists above
+            for (Actor actor : model.getActors()) {
+                for (Goal goal : actor.getGoals()) {
+                    collectAll(goal.getChildren());
+                }
+                if (actor.getCrossRunSet() != null) {
+                    collectAll(actor.getCrossRunSet().getElements());
+                }
+                if (actor.getExportedSet() != null) {
+                    for (Export export : actor.getExportedSet().getExports()) {
+                        collect(export.getElement());
+                    }
+                }
+                if (actor.getInitializationSet() != null) {
+                    for (Initialization init : actor.getInitializationSet().getInitializations()) {
+                        collect(init.getElement());
+                    }
+                }
+            }
+            out.writeInt(table.size());
+            for (Element element : table) {
+                out.writeByte(kind(element));
+                writeString(element.getId());
+                Atom atom = element.getAtom();
+                out.writeBoolean(atom != null);
+                if (atom != null) {
+                    writeAtom(atom);
+                }
+            }
+
+            Header header = model.getHeader();
+            out.writeBoolean(header != null);
+            if (header != null) {
+                writeString(header.getTitle());
+                writeString(header.getAuthor());
+                writeString(header.getSource());
+                writeString(header.getLastUpdated());
+                writeString(header.getNotes());
+            }
+            Options options = model.getOptions();
+            out.writeBoolean(options != null);
+            if (options != null) {
+                out.writeBoolean(options.isContinuous());
+                out.writeFloat(options.getInfActionPenalty());
+            }
+            writeElements(model.getActors());
+
+            for (Element element : table) {
+                writeDetails(element);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private void collect(Element element) {
+            if (element != null && !elements.containsKey(element)) {
+                elements.put(element, table.size());
+                table.add(element);
+            }
+        }
+
+        private void collectAll(List<? extends Element> list) {
+            if (list != null) {
+                for (Element element : list) {
+                    collect(element);
+                }
+            }
+        }
+
+        private byte kind(Element element) throws IOException {
+            if (element instanceof Actor) return ACTOR;
+            if (element instanceof Predicate) return PREDICATE;
+            if (element instanceof Variable) return VARIABLE;
+            if (element instanceof Condition) return CONDITION;
+            if (element instanceof Quality) return QUALITY;
+            if (element instanceof Goal) return GOAL;
+            if (element instanceof Task) return TASK;
+            if (element instanceof Effect) return EFFECT;
+            throw new IOException("Cannot write element of type " + element.getClass().getName());
+        }
+
+        private void writeDetails(Element element) throws IOException {
+            if (element instanceof Actor) {
+                writeActor((Actor) element);
+            } else if (element instanceof NonDecompositionElement) {
+                if (element instanceof Quality) {
+                    out.writeBoolean(((Quality) element).isRoot());
+                }
+                writeFormula(((NonDecompositionElement) element).getFormula());
+            } else if (element instanceof DecompositionElement) {
+                DecompositionElement d = (DecompositionElement) element;
+                out.writeByte(d.getDecompType() == null ? -1 : d.getDecompType().ordinal());
+                writeElements(d.getChildren());
+                writeFormula(d.getPreFormula());
+                writeFormula(d.getNprFormula());
+                if (element instanceof Goal) {
+                    Goal goal = (Goal) element;
+                    writeReference(goal.getParent());
+                    out.writeInt(goal.getRuns());
+                    out.writeBoolean(goal.isRunsDeclared());
+                    out.writeBoolean(goal.isRoot());
+                    out.writeBoolean(goal.isTerminal());
+                    writeStrings(goal.getChildGoalRefs());
+                    writeStrings(goal.getChildTaskRefs());
+                } else if (element instanceof Task) {
+                    writeReference(d.getParent());
+                    writeElements(((Task) element).getEffects());
+                } else if (element instanceof Effect) {
+                    writeEffect((Effect) element);
+                }
+            }
+        }
+
+        private void writeActor(Actor actor) throws IOException {
+            writeElements(actor.getPredicates());
+            writeElements(actor.getVariables());
+            writeElements(actor.getConditions());
+            writeElements(actor.getQualities());
+            writeElements(actor.getGoals());
+            writeElements(actor.getTasks());
+            writeElements(actor.getEffects());
+
+            CrossRunSet crossRuns = actor.getCrossRunSet();
+            out.writeBoolean(crossRuns != null);
+            if (crossRuns != null) {
+                writeStrings(crossRuns.getRefs());
+                writeElements(crossRuns.getElements());
+            }
+            ExportedSet exports = actor.getExportedSet();
+            out.writeBoolean(exports != null);
+            if (exports != null) {
+                out.writeInt(exports.getExports().size());
+                for (Export export : exports.getExports()) {
+                    writeString(export.getRef());
+                    out.writeFloat(export.getMinVal());
+                    out.writeFloat(export.getMaxVal());
+                    out.writeBoolean(export.isContinuous());
+                    writeReference(export.getElement());
+                }
+            }
+            InitializationSet initializations = actor.getInitializationSet();
+            out.writeBoolean(initializations != null);
+            if (initializations != null) {
+                out.writeInt(initializations.getInitializations().size());
+                for (Initialization init : initializations.getInitializations()) {
+                    writeString(init.getRef());
+                    writeString(init.getValue());
+                    writeReference(init.getElement());
+                }
+            }
+        }
+
+        private void writeEffect(Effect effect) throws IOException {
+            writeReference(effect.getTask());
+            out.writeFloat(effect.getProbability());
+            out.writeBoolean(effect.isSatisfying());
+            writeStrings(effect.getTurnsTrue());
+            writeStrings(effect.getTurnsFalse());
+
+            Map<String, Float> names = effect.getVariableNameSet();
+            out.writeInt(names == null ? -1 : names.size());
+            if (names != null) {
+                for (Map.Entry<String, Float> e : names.entrySet()) {
+                    writeString(e.getKey());
+                    writeFloat(e.getValue());
+                }
+            }
+            Map<Variable, Float> variables = effect.getVariableSet();
+            Integer shared = variables == null ? null : variableSets.get(variables);
+            if (variables == null) {
+                out.writeInt(-1);
+            } else if (shared != null) {
+                out.writeInt(-2 - shared);
+            } else {
+                variableSets.put(variables, variableSets.size());
+                out.writeInt(variables.size());
+                for (Map.Entry<Variable, Float> e : variables.entrySet()) {
+                    writeReference(e.getKey());
+                    writeFloat(e.getValue());
+                }
+            }
+        }
+
+        private void writeFormula(Formula formula) throws IOException {
+            if (formula == null) {
+                out.writeByte(NULL);
+            } else if (formula instanceof Atom) {
+                Atom atom = (Atom) formula;
+                Integer index = atom.getElement() == null ? null : elements.get(atom.getElement());
+                if (index != null && atom.getElement().getAtom() == atom) {
+                    out.writeByte(ATOM);
+                    out.writeInt(index);
+                } else {
+                    out.writeByte(DETACHED_ATOM);
+                    writeAtom(atom);
+                }
+            } else if (formula instanceof NumericConstant) {
+                out.writeByte(NUMERIC);
+                out.writeFloat(((NumericConstant) formula).getContent());
+            } else if (formula instanceof BooleanConstant) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(((BooleanConstant) formula).getContent());
+            } else if (UNARY_OPERATORS.contains(formula.getClass())) {
+                out.writeByte(UNARY);
+                out.writeByte(UNARY_OPERATORS.indexOf(formula.getClass()));
+                writeFormula(((OperatorDecorator) formula).getLeft());
+            } else if (BINARY_OPERATORS.contains(formula.getClass())) {
+                out.writeByte(BINARY);
+                out.writeByte(BINARY_OPERATORS.indexOf(formula.getClass()));
+                writeFormula(((OperatorDecorator) formula).getLeft());
+                writeFormula(((OperatorDecorator) formula).getRight());
+            } else if (formula.getClass().isAnonymousClass() && formula.getClass().getSuperclass() == Formula.class) {
+                // the constants of Formula.createConstantFormula and createBooleanFormula
+                out.writeByte(CONSTANT);
+                writeString(formula.getFormula());
+            } else {
+                throw new IOException("Cannot write formula of type " + formula.getClass().getName());
+            }
+        }
+
+        private void writeAtom(Atom atom) throws IOException {
+            writeString(atom.getId());
+            writeString(atom.getTitleText());
+            out.writeBoolean(atom.isTitleHTMLDerived());
+            if (!atom.isTitleHTMLDerived()) {
+                writeString(atom.getTitleHTMLText());
+            }
+            writeString(atom.getDescription());
+        }
+
+        private void writeReference(Element element) throws IOException {
+            Integer index = element == null ? null : elements.get(element);
+            out.writeInt(index == null ? -1 : index);
+        }
+
+        private void writeElements(List<? extends Element> list) throws IOException {
+            out.writeInt(list == null ? -1 : list.size());
+            if (list != null) {
+                for (Element element : list) {
+                    writeReference(element);
+                }
+            }
+        }
+
+        private void writeStrings(List<String> list) throws IOException {
+            out.writeInt(list == null ? -1 : list.size());
+            if (list != null) {
+                for (String s : list) {
+                    writeString(s);
+                }
+            }
+        }
+
+        private void writeFloat(Float value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeFloat(value);
+            }
+        }
+
+        /**
+         * Writes -1 for null, the index of a string already written as -2 - index, or the
+         * length of a new one followed by its UTF-8 bytes.
+         */
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(-2 - index);
+                return;
+            }
+            strings.put(s, strings.size());
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer in;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Map<Variable, Float>> variableSets = new ArrayList<>();
+        private Element[] table;
+        private String rules;
+        private List<String> warnings;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        void readHeader() throws IOException {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a model snapshot of version " + VERSION);
+            }
+            rules = readString();
+            warnings = readStrings();
+        }
+
+        Model read() throws IOException {
+            readHeader();
+
+            table = new Element[in.getInt()];
+            for (int i = 0; i < table.length; i++) {
+                Element element = newElement(in.get());
+                element.setId(readString());
+                if (in.get() != 0) {
+                    Atom atom = readAtom();
+                    element.setRepresentation(atom);
+                    atom.setElement(element);
+                }
+                table[i] = element;
+            }
+
+            Model model = new Model();
+            if (in.get() != 0) {
+                Header header = new Header();
+                header.setTitle(readString());
+                header.setAuthor(readString());
+                header.setSource(readString());
+                header.setLastUpdated(readString());
+                header.setNotes(readString());
+                model.setHeader(header);
+            }
+            if (in.get() != 0) {
+                Options options = new Options();
+                options.setContinuous(in.get() != 0);
+                options.setInfActionPenalty(in.getFloat());
+                model.setOptions(options);
+            }
+            model.setActors(readElements(Actor.class));
+
+            for (Element element : table) {
+                readDetails(element);
+            }
+            return model;
+        }
+
+        private Element newElement(byte kind) throws IOException {
+            switch (kind) {
+                case ACTOR: return new Actor();
+                case PREDICATE: return new Predicate();
+                case VARIABLE: return new Variable();
+                case CONDITION: return new Condition();
+                case QUALITY: return new Quality();
+                case GOAL: return new Goal();
+                case TASK: return new Task();
+                case EFFECT: return new Effect();
+                default: throw new IOException("Unknown element kind " + kind);
+            }
+        }
+
+        private void readDetails(Element element) throws IOException {
+            if (element instanceof Actor) {
+                readActor((Actor) element);
+            } else if (element instanceof NonDecompositionElement) {
+                if (element instanceof Quality) {
+                    ((Quality) element).setRoot(in.get() != 0);
+                }
+                ((NonDecompositionElement) element).setFormula(readFormula());
+            } else if (element instanceof DecompositionElement) {
+                DecompositionElement d = (DecompositionElement) element;
+                byte decompType = in.get();
+                d.setDecompType(decompType < 0 ? null : DECOMP_TYPES[decompType]);
+                d.setChildren(readElements(DecompositionElement.class));
+                d.setPreFormula(readFormula());
+                d.setNprFormula(readFormula());
+                if (element instanceof Goal) {
+                    Goal goal = (Goal) element;
+                    goal.setParent(readReference(DecompositionElement.class));
+                    goal.setRuns(in.getInt());
+                    goal.setRunsDeclared(in.get() != 0);
+                    goal.setRoot(in.get() != 0);
+                    goal.setTerminal(in.get() != 0);
+                    goal.setChildGoalRefs(readStrings());
+                    goal.setChildTaskRefs(readStrings());
+                } else if (element instanceof Task) {
+                    d.setParent(readReference(DecompositionElement.class));
+                    // not setEffects, the effects get their task themselves
+                    Task task = (Task) element;
+                    List<Effect> effects = readElements(Effect.class);
+                    task.getEffects().clear();
+                    if (effects != null) {
+                        task.getEffects().addAll(effects);
+                    }
+                } else if (element instanceof Effect) {
+                    readEffect((Effect) element);
+                }
+            }
+        }
+
+        private void readActor(Actor actor) throws IOException {
+            actor.setPredicates(readElements(Predicate.class));
+            actor.setVariables(readElements(Variable.class));
+            actor.setConditions(readElements(Condition.class));
+            actor.setQualities(readElements(Quality.class));
+            actor.setGoals(readElements(Goal.class));
+            actor.setTasks(readElements(Task.class));
+            actor.setEffects(readElements(Effect.class));
+
+            if (in.get() != 0) {
+                CrossRunSet crossRuns = new CrossRunSet();
+                crossRuns.setRefs(readStrings());
+                crossRuns.setElements(readElements(Element.class));
+                actor.setCrossRunSet(crossRuns);
+            }
+            if (in.get() != 0) {
+                ExportedSet exports = new ExportedSet();
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    Export export = new Export();
+                    export.setRef(readString());
+                    export.setMinVal(in.getFloat());
+                    export.setMaxVal(in.getFloat());
+                    export.setContinuous(in.get() != 0);
+                    export.setElement(readReference(Element.class));
+                    exports.addExport(export);
+                }
+                actor.setExportedSet(exports);
+            }
+            if (in.get() != 0) {
+                InitializationSet initializations = new InitializationSet();
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    Initialization init = new Initialization();
+                    init.setRef(readString());
+                    init.setValue(readString());
+                    init.setElement(readReference(Element.class));
+                    initializations.addInitialization(init);
+                }
+                actor.setInitializationSet(initializations);
+            }
+        }
+
+        private void readEffect(Effect effect) throws IOException {
+            effect.setTask(readReference(Task.class));
+            effect.setProbability(in.getFloat());
+            effect.setSatisfying(in.get() != 0);
+            effect.setTurnsTrue(readStrings());
+            effect.setTurnsFalse(readStrings());
+
+            int count = in.getInt();
+            if (count < 0) {
+                effect.setVariableNameSet(null);
+            } else {
+                Map<String, Float> names = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    names.put(readString(), readFloat());
+                }
+                effect.setVariableNameSet(names);
+            }
+            count = in.getInt();
+            if (count == -1) {
+                effect.setVariableSet(null);
+            } else if (count < -1) {
+                effect.setVariableSet(variableSets.get(-2 - count));
+            } else {
+                Map<Variable, Float> variables = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    variables.put(readReference(Variable.class), readFloat());
+                }
+                variableSets.add(variables);
+                effect.setVariableSet(variables);
+            }
+        }
+
+        private Formula readFormula() throws IOException {
+            byte kind = in.get();
+            switch (kind) {
+                case NULL:
+                    return null;
+                case ATOM:
+                    return table[in.getInt()].getAtom();
+                case DETACHED_ATOM:
+                    return readAtom();
+                case NUMERIC:
+                    return new NumericConstant(in.getFloat());
+                case BOOLEAN:
+                    return new BooleanConstant(in.get() != 0);
+                case CONSTANT:
+                    return Formula.createConstantFormula(readString());
+                case UNARY: {
+                    Function<Formula, Formula> factory = UNARY_FACTORIES.get(in.get());
+                    return factory.apply(readFormula());
+                }
+                case BINARY: {
+                    BiFunction<Formula, Formula, Formula> factory = BINARY_FACTORIES.get(in.get());
+                    Formula left = readFormula();
+                    return factory.apply(left, readFormula());
+                }
+                default:
+                    throw new IOException("Unknown formula kind " + kind);
+            }
+        }
+
+        private Atom readAtom() throws IOException {
+            Atom atom = new Atom();
+            atom.setId(readString());
+            atom.setTitleText(readString());
+            if (in.get() != 0) {
+                atom.deriveTitleHTMLText();
+            } else {
+                atom.setTitleHTMLText(readString());
+            }
+            atom.setDescription(readString());
+            return atom;
+        }
+
+        private <T extends Element> T readReference(Class<T> type) throws IOException {
+            int index = in.getInt();
+            if (index < 0) {
+                return null;
+            }
+            Element element = table[index];
+            if (!type.isInstance(element)) {
+                throw new IOException("Expected " + type.getSimpleName() + " at " + index + ", found "
+                        + element.getClass().getSimpleName());
+            }
+            return type.cast(element);
+        }
+
+        private <T extends Element> List<T> readElements(Class<T> type) throws IOException {
+            int count = in.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<T> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(readReference(type));
+            }
+            return list;
+        }
+
+        private List<String> readStrings() throws IOException {
+            int count = in.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<String> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(readString());
+            }
+            return list;
+        }
+
+        private Float readFloat() {
+            return in.get() != 0 ? in.getFloat() : null;
+        }
+
+        private String readString() throws IOException {
+            int code = in.getInt();
+            if (code == -1) {
+                return null;
+            }
+            if (code < -1) {
+                return strings.get(-2 - code);
+            }
+            if (code > in.remaining()) {
+                throw new IOException("Corrupted model snapshot: string of " + code + " bytes");
+            }
+            byte[] utf8 = new byte[code];
+            in.get(utf8);
+            String s = new String(utf8, StandardCharsets.UTF_8);
+            strings.add(s);
+            return s;
+        }
+    }
+}
@@ -1,21 +1,101 @@
 package ca.yorku.cmg.istardt.xmlparser.xml.utils;
 
-import java.time.LocalDateTime;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * Singleton logger class for the XML unmarshalling
+ * <p>
+ * Messages below the current {@link Level} cost nothing but the check when given as a
+ * {@link Supplier}, which is only called if the message is logged. Messages can also be
+ * handed to a background thread (see {@link #setAsync(boolean)}) so that the callers do not
+ * wait for the console; the queue is bounded, a caller blocks when it is full. This is
+ * also turned on by the system property {@value #ASYNC_PROPERTY}.
  */
 public class CustomLogger {
-    private static CustomLogger instance =  new CustomLogger();
-    private boolean debugEnabled = false;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /**
+     * System property making messages written by a background thread from the start.
+     */
+    public static final String ASYNC_PROPERTY = "istardt.log.async";
+
+    private static final DateTimeFormatter formatter =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
 
     private static final String ANSI_RESET = "\u001B[0m";
     private static final String ANSI_RED = "\u001B[31m";
     private static final String ANSI_BLUE = "\u001B[34m";
 
+    // Probed once, it does not change while running
+    private static final boolean COLORS = System.console() != null;
+
+    private static final int QUEUE_CAPACITY = 8192;
+
+    /**
+     * Logging levels, from the most verbose.
+     */
+    public enum Level {
+        INFO, WARNING, ERROR, OFF
+    }
+
+    private volatile Level level = Level.WARNING;
+
+    // Timestamp of the last message, formatted once per second (guarded by its own lock:
+    // setAsync holds the logger's while it waits for the writer to print)
+    private final Object timestampLock = new Object();
+    private long lastSecond = -1;
+    private String lastTimestamp;
+
+    // Non-null while messages are written by the background thread. Callers hold the
+    // read lock while handing a message over, turning it off takes the write lock, so no
+    // message is put in a queue the writer has stopped draining.
+    private volatile BlockingQueue<Entry> queue;
+    private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
+    private volatile Thread writer;
+    private boolean flushOnExit;
+
+    // Messages handed to the background thread, and written by it (guarded by progress,
+    // which is notified as messages are written)
+    private final AtomicLong queued = new AtomicLong();
+    private final Object progress = new Object();
+    private long written;
+
+    /**
+     * A message waiting to be written.
+     */
+    private static class Entry {
+        final long time;
+        final String level;
+        final String color;
+        final String message;
+        final boolean error;
+
+        Entry(String level, String color, String message, boolean error) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.color = color;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    private static CustomLogger instance =  new CustomLogger();
+
     private CustomLogger() {
+        if (Boolean.getBoolean(ASYNC_PROPERTY)) {
+            setAsync(true);
+        }
     }
     public static CustomLogger getInstance() {
         return instance;
@@ -25,22 +105,41 @@ public class CustomLogger {
      * Enable/disable debug logging
      */
     public void setDebugEnabled(boolean enabled) {
-        this.debugEnabled = enabled;
+        this.level = enabled ? Level.INFO : Level.WARNING;
     }
 
     /**
      * Check if debug logging is enabled
      */
     public boolean isDebugEnabled() {
-        return debugEnabled;
+        return level == Level.INFO;
+    }
+
+    /**
+     * Sets the lowest level logged. Info messages are logged only in debug mode, which is
+     * {@link Level#INFO}.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Check if messages of a level are logged
+     */
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0 && level != Level.OFF;
     }
 
     /**
      * Log an info message
      */
     public void info(String message) {
-        if (debugEnabled) {
-            System.out.println(formatMessage("INFO", message, ANSI_BLUE));
+        if (isEnabled(Level.INFO)) {
+            write(new Entry("INFO", ANSI_BLUE, message, false));
         }
     }
 
@@ -48,8 +147,17 @@ public class CustomLogger {
      * Log an info message from a specific class
      */
     public void info(Class<?> clazz, String message) {
-        if (debugEnabled) {
-            System.out.println(formatMessage("INFO", clazz.getSimpleName() + ": " + message, ANSI_BLUE));
+        if (isEnabled(Level.INFO)) {
+            write(new Entry("INFO", ANSI_BLUE, clazz.getSimpleName() + ": " + message, false));
+        }
+    }
+
+    /**
+     * Log an info message built only if debug logging is enabled
+     */
+    public void info(Class<?> clazz, Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            write(new Entry("INFO", ANSI_BLUE, clazz.getSimpleName() + ": " + message.get(), false));
         }
     }
 
@@ -57,37 +165,49 @@ public class CustomLogger {
      * Log a warning message
      */
     public void warning(String message) {
-        System.err.println(formatMessage("WARNING", message, ANSI_RED));
+        if (isEnabled(Level.WARNING)) {
+            write(new Entry("WARNING", ANSI_RED, message, true));
+        }
     }
 
     /**
      * Log a warning message from a specific class
      */
     public void warning(Class<?> clazz, String message) {
-        System.err.println(formatMessage("WARNING", clazz.getSimpleName() + ": " + message, ANSI_RED));
+        if (isEnabled(Level.WARNING)) {
+            write(new Entry("WARNING", ANSI_RED, clazz.getSimpleName() + ": " + message, true));
+        }
+    }
+
+    /**
+     * Log a warning message built only if warnings are logged
+     */
+    public void warning(Class<?> clazz, Supplier<String> message) {
+        if (isEnabled(Level.WARNING)) {
+            write(new Entry("WARNING", ANSI_RED, clazz.getSimpleName() + ": " + message.get(), true));
+        }
     }
 
     /**
      * Log an error message
      */
     public void error(String message) {
-        System.err.println(formatMessage("ERROR", message, ANSI_RED));
+        error(message, (Throwable) null);
     }
 
     /**
      * Log an error message from a specific class
      */
     public void error(Class<?> clazz, String message) {
-        System.err.println(formatMessage("ERROR", clazz.getSimpleName() + ": " + message, ANSI_RED));
+        error(clazz, message, null);
     }
 
     /**
      * Log an error message with exception
      */
     public void error(String message, Throwable throwable) {
-        System.err.println(formatMessage("ERROR", message, ANSI_RED));
-        if (throwable != null) {
-            throwable.printStackTrace(System.err);
+        if (isEnabled(Level.ERROR)) {
+            write(new Entry("ERROR", ANSI_RED, withStackTrace(message, throwable), true));
         }
     }
 
@@ -95,23 +215,168 @@ public class CustomLogger {
      * Log an error message with exception
      */
     public void error(Class<?> clazz, String message, Throwable throwable) {
-        System.err.println(formatMessage("ERROR", clazz.getSimpleName() + ": " + message, ANSI_RED));
-        if (throwable != null) {
-            throwable.printStackTrace(System.err);
+        if (isEnabled(Level.ERROR)) {
+            write(new Entry("ERROR", ANSI_RED, withStackTrace(clazz.getSimpleName() + ": " + message, throwable), true));
+        }
+    }
+
+    /**
+     * Writes the messages from a background thread instead of the logging one. Turning it
+     * off writes out what is still queued first.
+     */
+    public synchronized void setAsync(boolean async) {
+        if (async == (queue != null)) {
+            return;
+        }
+        if (async) {
+            BlockingQueue<Entry> q = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            writer = new Thread(() -> drain(q), "istardt-logger");
+            writer.setDaemon(true);
+            queue = q;
+            writer.start();
+            if (!flushOnExit) {
+                Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "istardt-logger-flush"));
+                flushOnExit = true;
+            }
+        } else {
+            // new messages are written directly, the writer finishes the queued ones
+            BlockingQueue<Entry> q = queue;
+            queueLock.writeLock().lock();
+            try {
+                queue = null;
+            } finally {
+                queueLock.writeLock().unlock();
+            }
+            writer.interrupt();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+            // left over if the join was interrupted
+            List<Entry> rest = new ArrayList<>();
+            q.drainTo(rest);
+            printAll(rest);
+        }
+    }
+
+    public boolean isAsync() {
+        return queue != null;
+    }
+
+    /**
+     * Waits until the queued messages are written, if they are written asynchronously.
+     */
+    public void flush() {
+        long target = queued.get();
+        Thread w = writer;
+        synchronized (progress) {
+            while (w != null && w.isAlive() && written < target) {
+                try {
+                    // timed, in case the writer dies
+                    progress.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        System.out.flush();
+        System.err.flush();
+    }
+
+    private void write(Entry entry) {
+        if (queue == null) {
+            print(entry);
+            return;
+        }
+        queueLock.readLock().lock();
+        try {
+            // rechecked, it may have been turned off meanwhile
+            BlockingQueue<Entry> q = queue;
+            if (q == null) {
+                print(entry);
+                return;
+            }
+            q.put(entry);
+            queued.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            print(entry);
+        } finally {
+            queueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the queued messages in batches, until interrupted and the queue is empty.
+     */
+    private void drain(BlockingQueue<Entry> q) {
+        List<Entry> batch = new ArrayList<>();
+        boolean running = true;
+        while (running || !q.isEmpty()) {
+            try {
+                if (running) {
+                    batch.add(q.take());
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            q.drainTo(batch);
+            printAll(batch);
+            batch.clear();
+        }
+    }
+
+    private void printAll(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
         }
+        for (Entry entry : entries) {
+            print(entry);
+        }
+        synchronized (progress) {
+            written += entries.size();
+            progress.notifyAll();
+        }
+    }
+
+    private void print(Entry entry) {
+        PrintStream out = entry.error ? System.err : System.out;
+        out.println(formatMessage(entry));
+    }
+
+    private static String withStackTrace(String message, Throwable throwable) {
+        if (throwable == null) {
+            return message;
+        }
+        StringWriter trace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(trace));
+        return message + System.lineSeparator() + trace.toString().stripTrailing();
     }
 
     /**
      * Format message with timestamp and level
      */
-    private String formatMessage(String level, String message, String colorCode) {
-        String timestamp = LocalDateTime.now().format(formatter);
+    private String formatMessage(Entry entry) {
+        String timestamp = timestamp(entry.time);
         // Only use colors if supported
-        if (System.console() != null) {
-            return String.format("%s[%s] [%s%s%s] %s",
-                    ANSI_RESET, timestamp, colorCode, level, ANSI_RESET, message);
+        if (COLORS) {
+            return ANSI_RESET + "[" + timestamp + "] [" + entry.color + entry.level + ANSI_RESET + "] " + entry.message;
         } else {
-            return String.format("[%s] [%s] %s", timestamp, level, message);
+            return "[" + timestamp + "] [" + entry.level + "] " + entry.message;
+        }
+    }
+
+    private String timestamp(long time) {
+        synchronized (timestampLock) {
+            long second = time / 1000;
+            if (second != lastSecond) {
+                lastSecond = second;
+                lastTimestamp = formatter.format(Instant.ofEpochMilli(time));
+            }
+            return lastTimestamp;
         }
     }
-}
\ No newline at end of file
+}
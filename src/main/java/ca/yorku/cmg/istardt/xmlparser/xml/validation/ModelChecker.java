@@ -0,0 +1,435 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.validation;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the rules of the iStarDT-X Schematron schema on an unmarshalled {@link Model}
+ * rather than on the XML: reference integrity, unique names, effect probabilities, episode
+ * lengths, initializations, roots and the like. It reports the same errors and warnings
+ * as the Schematron rules, with the same wording, so it can stand in for them after the
+ * XSD check.
+ * <p>
+ * References are checked within their actor, as in the Schematron rules. Formula
+ * references are checked on the atoms the unmarshaller resolved them to: one that could
+ * not be resolved is reported without its name, which the unmarshaller does not keep.
+ * Export and cross-run references must name an element of the actor of a kind that may
+ * appear there; the model does not keep which kind of identifier the XML used.
+ * <p>
+ * Instances are stateless and thread-safe.
+ */
+public class ModelChecker {
+    private static final CustomLogger LOGGER = CustomLogger.getInstance();
+
+    /**
+     * Version of the rules, to be increased whenever they change, so that models checked
+     * against older ones are checked again.
+     */
+    public static final int VERSION = 1;
+
+    // what xs:decimal accepts
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?(\\d+(\\.\\d*)?|\\.\\d+)");
+
+    // the identifier elements unresolved formula references are replaced with
+    private static final Map<String, String> UNKNOWN_IDS = new HashMap<>();
+
+    static {
+        UNKNOWN_IDS.put("Unknown PredicateID", "predicateID");
+        UNKNOWN_IDS.put("Unknown GoalID", "goalID");
+        UNKNOWN_IDS.put("Unknown TaskID", "taskID");
+        UNKNOWN_IDS.put("Unknown VariableID", "variableID");
+        UNKNOWN_IDS.put("Unknown QualityID", "qualID");
+        UNKNOWN_IDS.put("Unknown EffectID", "effectID");
+        UNKNOWN_IDS.put("Unknown ConditionID", "conditionID");
+    }
+
+    /**
+     * Checks a model, logging the warnings.
+     *
+     * @throws ValidationException listing every error found
+     */
+    public void validate(Model model) throws ValidationException {
+        validate(model, null);
+    }
+
+    /**
+     * Checks a model, logging the warnings.
+     *
+     * @param warnings gets the warnings as well, may be null
+     * @throws ValidationException listing every error found
+     */
+    public void validate(Model model, List<String> warnings) throws ValidationException {
+        List<String> found = new ArrayList<>();
+        List<String> errors = check(model, found);
+        for (String w : found) {
+            LOGGER.warning(ModelChecker.class, w);
+        }
+        if (warnings != null) {
+            warnings.addAll(found);
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(ValidationException.Stage.RULES, errors);
+        }
+    }
+
+    /**
+     * Checks a model.
+     *
+     * @param warnings gets the warnings found, may be null
+     * @return the errors found
+     */
+    public List<String> check(Model model, List<String> warnings) {
+        Report r = new Report(warnings);
+        checkUniqueNames(model, r);
+        for (Actor a : model.getActors()) {
+            new ActorChecker(a, r).check();
+        }
+        return r.errors;
+    }
+
+
+    /*
+     * U N I Q U E   N A M E S
+     */
+
+    private void checkUniqueNames(Model model, Report r) {
+        // elements with a name attribute are only compared among themselves,
+        // predicates and variables are compared with everything
+        Map<String, Integer> named = new HashMap<>();
+        Map<String, Integer> all = new HashMap<>();
+        for (Actor a : model.getActors()) {
+            for (Element e : getNamedElements(a)) {
+                named.merge(e.getName(), 1, Integer::sum);
+                all.merge(e.getName(), 1, Integer::sum);
+            }
+            for (Element e : getContentElements(a)) {
+                all.merge(e.getName(), 1, Integer::sum);
+            }
+        }
+        for (Actor a : model.getActors()) {
+            for (Element e : getNamedElements(a)) {
+                if (named.get(e.getName()) > 1) {
+                    r.error("Element <" + tag(e) + "> with name=\"" + e.getName() + "\" is not unique across all elements in the document.", a);
+                }
+            }
+            for (Element e : getContentElements(a)) {
+                if (all.get(e.getName()) > 1) {
+                    r.error("Element <" + tag(e) + "> with name in its content=\"" + e.getName() + "\" is not unique across all elements in the document.", a);
+                }
+            }
+        }
+    }
+
+    private static List<Element> getNamedElements(Actor a) {
+        List<Element> elements = new ArrayList<>();
+        elements.add(a);
+        elements.addAll(a.getQualities());
+        elements.addAll(a.getGoals());
+        for (Task t : a.getTasks()) {
+            elements.add(t);
+            elements.addAll(t.getEffects());
+        }
+        elements.addAll(a.getConditions());
+        return elements;
+    }
+
+    private static List<Element> getContentElements(Actor a) {
+        List<Element> elements = new ArrayList<>(a.getPredicates());
+        elements.addAll(a.getVariables());
+        return elements;
+    }
+
+    private static String tag(Element e) {
+        if (e instanceof Quality) return "quality";
+        if (e instanceof Goal) return "goal";
+        if (e instanceof Task) return "task";
+        if (e instanceof Effect) return "effect";
+        if (e instanceof Condition) return "condBox";
+        if (e instanceof Predicate) return "predicate";
+        if (e instanceof Variable) return "variable";
+        return "actor";
+    }
+
+
+    /*
+     * A C T O R S
+     */
+
+    private static class ActorChecker {
+        private final Actor actor;
+        private final Report r;
+
+        // the elements of the actor, by kind and name
+        private final Map<String, Set<String>> names = new HashMap<>();
+        private final Map<Element, Boolean> members = new IdentityHashMap<>();
+
+        ActorChecker(Actor actor, Report r) {
+            this.actor = actor;
+            this.r = r;
+            index("goal", actor.getGoals());
+            index("task", actor.getTasks());
+            index("quality", actor.getQualities());
+            index("condBox", actor.getConditions());
+            index("predicate", actor.getPredicates());
+            index("variable", actor.getVariables());
+            for (Task t : actor.getTasks()) {
+                index("effect", t.getEffects());
+            }
+        }
+
+        private void index(String kind, List<? extends Element> elements) {
+            Set<String> set = names.computeIfAbsent(kind, k -> new HashSet<>());
+            for (Element e : elements) {
+                set.add(e.getName());
+                members.put(e, true);
+            }
+        }
+
+        private boolean has(String kind, String name) {
+            return names.getOrDefault(kind, Collections.emptySet()).contains(name == null ? null : name.trim());
+        }
+
+        void check() {
+            checkDescriptions();
+            checkGoals();
+            checkTasks();
+            checkFormulas();
+            checkCrossRuns();
+            checkExports();
+            checkInitializations();
+        }
+
+        private void checkDescriptions() {
+            for (Element e : getNamedElements(actor)) {
+                if (isBlank(e.getAtom().getDescription())) {
+                    r.warning("Element <" + tag(e) + "> with @name=\"" + e.getName() + "\" has no @description.", actor);
+                }
+            }
+            for (Element e : getContentElements(actor)) {
+                if (isBlank(e.getAtom().getDescription())) {
+                    r.warning("Element <" + tag(e) + "> with content=\"" + e.getName() + "\" has no @description.", actor);
+                }
+            }
+        }
+
+        private void checkGoals() {
+            if (actor.getGoals().isEmpty()) {
+                r.warning("Each actor must have at least one goal.", actor);
+            } else if (actor.getGoals().stream().filter(Goal::isRoot).count() != 1) {
+                r.warning("There must be exactly one root goal per actor.", actor);
+            }
+            if (actor.getQualities().isEmpty()) {
+                r.warning("Each actor must have at least one quality.", actor);
+            } else if (actor.getQualities().stream().filter(Quality::isRoot).count() != 1) {
+                r.warning("There must be exactly one root quality per actor.", actor);
+            }
+
+            Map<String, Integer> childGoals = new HashMap<>();
+            Map<String, Integer> childTasks = new HashMap<>();
+            for (Goal g : actor.getGoals()) {
+                for (String ref : g.getChildGoalRefs()) {
+                    if (!has("goal", ref)) {
+                        r.error("childGoal ref=\"" + ref + "\" does not match any <goal name=\"...\">.", actor);
+                    }
+                    childGoals.merge(ref, 1, Integer::sum);
+                }
+                for (String ref : g.getChildTaskRefs()) {
+                    if (!has("task", ref)) {
+                        r.error("childTask ref=\"" + ref + "\" does not match any <task name=\"...\">.", actor);
+                    }
+                    childTasks.merge(ref, 1, Integer::sum);
+                }
+
+                if (!g.isRunsDeclared() || g.getRuns() <= 0) {
+                    r.error("Goal \"" + g.getName() + "\" has an invalid @episodeLength. It must be a positive integer.", actor);
+                }
+
+                boolean refined = !g.getChildGoalRefs().isEmpty() || !g.getChildTaskRefs().isEmpty();
+                if (g.isTerminal() && refined) {
+                    r.warning("Goal \"" + g.getName() + "\" is marked terminal=\"true\" but has a non-empty <refinement>.", actor);
+                } else if (!g.isTerminal() && !refined) {
+                    r.warning("Goal \"" + g.getName() + "\" is terminal=\"false\" but <refinement> is empty or absent.", actor);
+                } else if (g.isTerminal()) {
+                    r.warning("Goal \"" + g.getName() + "\" is terminal=\"true\" and <refinement> is empty or absent.", actor);
+                }
+            }
+            if (childTasks.values().stream().anyMatch(n -> n > 1)) {
+                r.error("At least one childTask is a child of multiple goals within this actor.", actor);
+            }
+            if (childGoals.values().stream().anyMatch(n -> n > 1)) {
+                r.error("At least one childGoal is a child of multiple goals within this actor.", actor);
+            }
+        }
+
+        private void checkTasks() {
+            for (Task t : actor.getTasks()) {
+                if (t.getEffects().isEmpty()) {
+                    continue;
+                }
+                double sum = 0;
+                for (Effect e : t.getEffects()) {
+                    sum += e.getProbability();
+                    if (!(e.getProbability() >= 0 && e.getProbability() <= 1)) {
+                        r.error("Effect \"" + e.getName() + "\" has an invalid @probability attribute. It must be a decimal between 0 and 1.", actor);
+                    }
+                    for (String p : e.getTurnsTrue()) {
+                        if (!has("predicate", p)) {
+                            r.error("turnsTrue “" + p.trim() + "” does not match any <predicate>.", actor);
+                        }
+                    }
+                    for (String p : e.getTurnsFalse()) {
+                        if (!has("predicate", p)) {
+                            r.error("turnsFalse “" + p.trim() + "” does not match any <predicate>.", actor);
+                        }
+                    }
+                    for (String v : e.getVariableNameSet().keySet()) {
+                        if (!has("variable", v)) {
+                            r.error("variableID “" + v.trim() + "” does not match any <variable>.", actor);
+                        }
+                    }
+                }
+                if (Math.abs(sum - 1.0) > 0.001) {
+                    r.error("The sum of @probability in <effectGroup> should be 1.0, but it is " + String.format("%.3f", sum) + ".", actor);
+                }
+            }
+        }
+
+        private void checkFormulas() {
+            for (Goal g : actor.getGoals()) {
+                checkFormula(g.getPreFormula(), g);
+                checkFormula(g.getNprFormula(), g);
+            }
+            for (Task t : actor.getTasks()) {
+                checkFormula(t.getPreFormula(), t);
+                checkFormula(t.getNprFormula(), t);
+                for (Effect e : t.getEffects()) {
+                    checkFormula(e.getPreFormula(), e);
+                    checkFormula(e.getNprFormula(), e);
+                }
+            }
+            for (Quality q : actor.getQualities()) {
+                checkFormula(q.getFormula(), q);
+            }
+            for (Condition c : actor.getConditions()) {
+                checkFormula(c.getFormula(), c);
+            }
+        }
+
+        private void checkFormula(Formula f, Element owner) {
+            if (f == null) {
+                return;
+            }
+            if (f instanceof Atom) {
+                Element e = ((Atom) f).getElement();
+                if (e != null && !members.containsKey(e)) {
+                    r.error(idElement(e) + " \"" + e.getName() + "\" does not match any <" + tag(e) + "> of the actor, in the formula of "
+                            + tag(owner) + " \"" + owner.getName() + "\".", actor);
+                }
+            } else if (f instanceof PreviousOperator && !(((PreviousOperator) f).getLeft() instanceof Atom)) {
+                Formula operand = ((PreviousOperator) f).getLeft();
+                r.error("\"" + (operand == null ? "" : operand.getFormula()) + "\" in a previous does not match any element, in the formula of "
+                        + tag(owner) + " \"" + owner.getName() + "\".", actor);
+            } else if (f instanceof OperatorDecorator) {
+                checkFormula(((OperatorDecorator) f).getLeft(), owner);
+                checkFormula(((OperatorDecorator) f).getRight(), owner);
+            } else if (UNKNOWN_IDS.containsKey(f.getFormula())) {
+                r.error(UNKNOWN_IDS.get(f.getFormula()) + " in the formula of " + tag(owner) + " \"" + owner.getName()
+                        + "\" does not match any element of its kind.", actor);
+            }
+        }
+
+        private void checkCrossRuns() {
+            CrossRunSet crossRuns = actor.getCrossRunSet();
+            if (crossRuns == null || crossRuns.getRefs().isEmpty()) {
+                if (actor.getGoals().stream().anyMatch(g -> g.isRoot() && g.getRuns() > 1)) {
+                    r.warning("Actor \"" + actor.getName() + "\" has no <crossRuns> or it is empty, but has a root goal with episodeLength > 1.", actor);
+                }
+                return;
+            }
+            for (String ref : crossRuns.getRefs()) {
+                if (!has("quality", ref) && !has("predicate", ref) && !has("variable", ref) && !has("condBox", ref)) {
+                    r.error("crossRun “" + ref.trim() + "” does not match any <quality>, <predicate>, <variable> or <condBox>.", actor);
+                }
+            }
+        }
+
+        private void checkExports() {
+            ExportedSet exports = actor.getExportedSet();
+            if (exports == null || exports.getExports().isEmpty()) {
+                r.warning("Actor \"" + actor.getName() + "\" has no <exportedSet> or it is empty. Effect predicates will be used.", actor);
+                return;
+            }
+            for (Export e : exports.getExports()) {
+                String ref = e.getRef();
+                if (!has("goal", ref) && !has("task", ref) && !has("predicate", ref) && !has("variable", ref)
+                        && !has("quality", ref) && !has("condBox", ref)) {
+                    r.error("export “" + ref.trim() + "” does not match any element.", actor);
+                }
+            }
+        }
+
+        private void checkInitializations() {
+            InitializationSet inits = actor.getInitializationSet();
+            if (inits == null || inits.getInitializations().isEmpty()) {
+                r.warning("Actor \"" + actor.getName() + "\" has no <initializations> or it is empty. All found variables and qualities will be initialized to 0.", actor);
+                return;
+            }
+            for (Initialization i : inits.getInitializations()) {
+                String value = i.getValue();
+                if ("true".equals(value) || "false".equals(value)) {
+                    if (!has("predicate", i.getRef())) {
+                        r.error("Initialization references unknown Predicate ID \"" + i.getRef() + "\".", actor);
+                    }
+                } else if (value != null && DECIMAL.matcher(value.trim()).matches()) {
+                    if (!has("quality", i.getRef()) && !has("variable", i.getRef())) {
+                        r.error("Initialization references unknown quality or variable ID \"" + i.getRef() + "\".", actor);
+                    }
+                }
+            }
+        }
+
+        private static String idElement(Element e) {
+            if (e instanceof Quality) return "qualID";
+            if (e instanceof Condition) return "conditionID";
+            return tag(e) + "ID";
+        }
+
+        private static boolean isBlank(String s) {
+            return s == null || s.trim().isEmpty();
+        }
+    }
+
+
+    /*
+     * R E P O R T
+     */
+
+    private static class Report {
+        final List<String> errors = new ArrayList<>();
+        final List<String> warnings;
+
+        Report(List<String> warnings) {
+            this.warnings = warnings;
+        }
+
+        void error(String message, Actor a) {
+            errors.add(message + " [actor \"" + a.getName() + "\"]");
+        }
+
+        void warning(String message, Actor a) {
+            if (warnings != null) {
+                warnings.add(message + " [actor \"" + a.getName() + "\"]");
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.validation;
+
+import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates iStarDT-X documents against the XSD schema and the Schematron rules.
+ * <p>
+ * The XSD is compiled into a {@link Schema} and the Schematron rules into XSLT
+ * {@link Templates} the first time each is needed, and both are kept for the life of
+ * the process: validators are shared per pair of schema files through
+ * {@link #getInstance(File, File)}. Validating a document then only costs the check
+ * of the document itself. Instances are thread-safe.
+ *
+ * @see SchematronCompiler
+ */
+public class SchemaValidator {
+    private static final CustomLogger LOGGER = CustomLogger.getInstance();
+
+    public static final String XSD_RESOURCE = "/xsd/istar_dt_x_schema.xsd";
+    public static final String SCHEMATRON_RESOURCE = "/schematron/istar_dt_x_schematron.sch";
+
+    private static final String SVRL_NS = "http://purl.oclc.org/dsdl/svrl";
+
+    private static final Map<String, SchemaValidator> INSTANCES = new ConcurrentHashMap<>();
+
+    private final URL xsd;
+    private final URL schematron;
+    private final URL compiledSchematron;
+    private volatile Schema schema;
+    private volatile Templates schematronTemplates;
+    private volatile String digest;
+
+    private SchemaValidator(URL xsd, URL schematron, URL compiledSchematron) {
+        this.xsd = xsd;
+        this.schematron = schematron;
+        this.compiledSchematron = compiledSchematron;
+    }
+
+    /**
+     * Gets the validator for the schemas packaged with the application. It uses the
+     * Schematron stylesheet precompiled by the build, if there is one.
+     */
+    public static SchemaValidator getInstance() {
+        URL xsd = SchemaValidator.class.getResource(XSD_RESOURCE);
+        URL schematron = SchemaValidator.class.getResource(SCHEMATRON_RESOURCE);
+        if (xsd == null || schematron == null) {
+            throw new IllegalArgumentException("Schema not found: " + (xsd == null ? XSD_RESOURCE : SCHEMATRON_RESOURCE));
+        }
+        return INSTANCES.computeIfAbsent("packaged", k -> new SchemaValidator(xsd, schematron,
+                SchemaValidator.class.getResource(SchematronCompiler.COMPILED_RESOURCE)));
+    }
+
+    /**
+     * Gets the validator for the given XSD and Schematron files.
+     */
+    public static SchemaValidator getInstance(File xsd, File schematron) {
+        try {
+            return getInstance(xsd.getAbsoluteFile().toURI().toURL(), schematron.getAbsoluteFile().toURI().toURL());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static SchemaValidator getInstance(URL xsd, URL schematron) {
+        return INSTANCES.computeIfAbsent(xsd + " " + schematron, k -> new SchemaValidator(xsd, schematron, null));
+    }
+
+    /**
+     * Validates a document against the XSD schema and then the Schematron rules.
+     *
+     * @throws ValidationException if either reports errors
+     * @throws IOException if the document cannot be read or a schema cannot be compiled
+     */
+    public void validate(File xml) throws ValidationException, IOException {
+        validateXsd(new StreamSource(xml));
+        validateSchematron(new StreamSource(xml));
+    }
+
+    /**
+     * Validates an already parsed document against the XSD schema and then the Schematron
+     * rules, without parsing it again.
+     *
+     * @throws ValidationException if either reports errors
+     * @throws IOException if a schema cannot be compiled
+     */
+    public void validate(Document xml) throws ValidationException, IOException {
+        validateXsd(new DOMSource(xml, xml.getDocumentURI()));
+        validateSchematron(new DOMSource(xml, xml.getDocumentURI()));
+    }
+
+    /**
+     * Validates a document against the XSD schema. Warnings are logged.
+     *
+     * @throws ValidationException listing every error found
+     */
+    public void validateXsd(Source xml) throws ValidationException, IOException {
+        validateXsd(xml, null);
+    }
+
+    /**
+     * Validates a document against the XSD schema. Warnings are logged.
+     *
+     * @param warnings gets the warnings as well, may be null
+     * @throws ValidationException listing every error found
+     */
+    public void validateXsd(Source xml, List<String> warnings) throws ValidationException, IOException {
+        List<String> errors = new ArrayList<>();
+        Validator validator = getSchema().newValidator();
+        validator.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void warning(SAXParseException e) {
+                warn(format(e), warnings);
+            }
+
+            @Override
+            public void error(SAXParseException e) {
+                errors.add(format(e));
+            }
+
+            @Override
+            public void fatalError(SAXParseException e) {
+                errors.add(format(e));
+            }
+        });
+        try {
+            validator.validate(xml);
+        } catch (SAXException e) {
+            // fatal errors are also reported to the handler
+            if (errors.isEmpty()) {
+                errors.add(e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(ValidationException.Stage.XSD, errors);
+        }
+    }
+
+    /**
+     * Validates a document against the Schematron rules. Assertions and reports with
+     * role WARN are logged; failed assertions and reports with role ERROR are errors.
+     *
+     * @throws ValidationException listing every error found
+     */
+    public void validateSchematron(Source xml) throws ValidationException, IOException {
+        validateSchematron(xml, null);
+    }
+
+    /**
+     * Validates a document against the Schematron rules. Assertions and reports with
+     * role WARN are logged; failed assertions and reports with role ERROR are errors.
+     *
+     * @param warnings gets the warnings as well, may be null
+     * @throws ValidationException listing every error found
+     */
+    public void validateSchematron(Source xml, List<String> warnings) throws ValidationException, IOException {
+        DOMResult svrl = new DOMResult();
+        try {
+            getSchematronTemplates().newTransformer().transform(xml, svrl);
+        } catch (TransformerException e) {
+            throw new IOException("Schematron validation could not be run: " + e.getMessageAndLocation(), e);
+        }
+
+        List<String> errors = new ArrayList<>();
+        collect(svrl.getNode(), "failed-assert", true, errors, warnings);
+        collect(svrl.getNode(), "successful-report", false, errors, warnings);
+        if (!errors.isEmpty()) {
+            throw new ValidationException(ValidationException.Stage.SCHEMATRON, errors);
+        }
+    }
+
+    private void collect(Node svrl, String kind, boolean errorByDefault, List<String> errors, List<String> warnings) {
+        Element root = (svrl instanceof Element) ? (Element) svrl : ((Document) svrl).getDocumentElement();
+        NodeList nodes = root.getElementsByTagNameNS(SVRL_NS, kind);
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element e = (Element) nodes.item(i);
+            String role = e.getAttribute("role");
+            String message = e.getTextContent().trim().replaceAll("\\s+", " ") + " [" + e.getAttribute("location") + "]";
+            if ("ERROR".equalsIgnoreCase(role) || (errorByDefault && !"WARN".equalsIgnoreCase(role))) {
+                errors.add(message);
+            } else {
+                warn(message, warnings);
+            }
+        }
+    }
+
+    private static void warn(String message, List<String> warnings) {
+        LOGGER.warning(SchemaValidator.class, message);
+        if (warnings != null) {
+            warnings.add(message);
+        }
+    }
+
+    static String format(SAXParseException e) {
+        // no position when checking a DOM
+        if (e.getLineNumber() < 0) {
+            return e.getMessage();
+        }
+        return "line " + e.getLineNumber() + ", column " + e.getColumnNumber() + ": " + e.getMessage();
+    }
+
+    /**
+     * Gets the SHA-256 of the XSD and Schematron files, which changes whenever the rules
+     * documents are checked against do.
+     *
+     * @throws IOException if a schema file cannot be read
+     */
+    public String getDigest() throws IOException {
+        String d = digest;
+        if (d == null) {
+            MessageDigest sha;
+            try {
+                sha = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+            for (URL url : new URL[] {xsd, schematron}) {
+                try (InputStream in = new DigestInputStream(url.openStream(), sha)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            d = HexFormat.of().formatHex(sha.digest());
+            digest = d;
+        }
+        return d;
+    }
+
+    /**
+     * Gets the compiled XSD schema, compiling it on first use.
+     */
+    Schema getSchema() throws IOException {
+        Schema s = schema;
+        if (s == null) {
+            synchronized (this) {
+                s = schema;
+                if (s == null) {
+                    try {
+                        s = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsd);
+                    } catch (SAXException e) {
+                        throw new IOException("Cannot compile XSD schema " + xsd + ": " + e.getMessage(), e);
+                    }
+                    schema = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Gets the Schematron rules compiled into an XSLT stylesheet producing SVRL,
+     * compiling them on first use.
+     */
+    Templates getSchematronTemplates() throws IOException {
+        Templates t = schematronTemplates;
+        if (t == null) {
+            synchronized (this) {
+                t = schematronTemplates;
+                if (t == null) {
+                    t = compileSchematron();
+                    schematronTemplates = t;
+                }
+            }
+        }
+        return t;
+    }
+
+    private Templates compileSchematron() throws IOException {
+        TransformerFactory factory = SchematronCompiler.newTransformerFactory();
+        try {
+            if (compiledSchematron != null) {
+                return factory.newTemplates(new StreamSource(compiledSchematron.toExternalForm()));
+            }
+            return factory.newTemplates(SchematronCompiler.compile(schematron, factory));
+        } catch (TransformerException e) {
+            throw new IOException("Cannot compile Schematron rules " + schematron + ": " + e.getMessageAndLocation(), e);
+        }
+    }
+
+    /**
+     * Tells whether the Schematron rules are loaded from a precompiled stylesheet.
+     */
+    boolean isPrecompiled() {
+        return compiledSchematron != null;
+    }
+}
@@ -0,0 +1,88 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.validation;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Compiles Schematron rules into an XSLT stylesheet that reports in SVRL.
+ * <p>
+ * The build runs {@link #main(String[])} on the packaged rules, so that
+ * {@link SchemaValidator#getInstance()} can load the result directly instead of running
+ * the three-step ISO Schematron pipeline on every start.
+ */
+public class SchematronCompiler {
+    /**
+     * Classpath location of the stylesheet compiled from the packaged rules.
+     */
+    public static final String COMPILED_RESOURCE = "/schematron/istar_dt_x_schematron.xsl";
+
+    // ISO Schematron to XSLT, in the order they are applied
+    private static final String[] PIPELINE = {
+            "/schematron/xslt/include.xsl",
+            "/schematron/xslt/expand.xsl",
+            "/schematron/xslt/compile-for-svrl.xsl"
+    };
+
+    /**
+     * Creates the transformer factory for the Schematron stylesheets, which are XSLT 2.0.
+     */
+    static TransformerFactory newTransformerFactory() {
+        return new net.sf.saxon.TransformerFactoryImpl();
+    }
+
+    /**
+     * Runs the Schematron rules through the pipeline.
+     *
+     * @return the compiled stylesheet
+     */
+    static Source compile(URL schematron, TransformerFactory factory) throws IOException, TransformerException {
+        Source current = new StreamSource(schematron.toExternalForm());
+        for (String step : PIPELINE) {
+            URL stylesheet = SchematronCompiler.class.getResource(step);
+            if (stylesheet == null) {
+                throw new IOException("Schematron stylesheet not found: " + step);
+            }
+            DOMResult result = new DOMResult();
+            factory.newTransformer(new StreamSource(stylesheet.toExternalForm())).transform(current, result);
+            current = new DOMSource(result.getNode(), schematron.toExternalForm());
+        }
+        return current;
+    }
+
+    /**
+     * Compiles a Schematron file into a stylesheet file.
+     *
+     * @param args the Schematron file and the stylesheet file to write
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: SchematronCompiler <schematron file> <stylesheet file>");
+            System.exit(1);
+        }
+        File in = new File(args[0]);
+        File out = new File(args[1]);
+        if (out.getParentFile() != null) {
+            out.getParentFile().mkdirs();
+        }
+
+        TransformerFactory factory = newTransformerFactory();
+        Source compiled = compile(in.getAbsoluteFile().toURI().toURL(), factory);
+        // make sure the result is usable before writing it
+        factory.newTemplates(compiled);
+
+        Transformer identity = factory.newTransformer();
+        identity.setOutputProperty(OutputKeys.INDENT, "no");
+        identity.transform(compiled, new StreamResult(out));
+        System.out.println("Compiled " + in + " into " + out);
+    }
+}
@@ -0,0 +1,54 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.validation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a document is not well-formed or does not conform to the iStarDT-X XSD or
+ * Schematron rules (checked on the XML or, by {@link ModelChecker}, on the model).
+ */
+public class ValidationException extends Exception {
+    /**
+     * The check a document failed.
+     */
+    public enum Stage {
+        PARSE("XML parsing"),
+        XSD("XSD validation"),
+        SCHEMATRON("Schematron validation"),
+        RULES("Semantic validation");
+
+        private final String description;
+
+        Stage(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final Stage stage;
+    private final List<String> errors;
+
+    public ValidationException(Stage stage, List<String> errors) {
+        super(String.join("\n", errors));
+        this.stage = stage;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the check the document failed.
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * Gets the individual error messages, in document order.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
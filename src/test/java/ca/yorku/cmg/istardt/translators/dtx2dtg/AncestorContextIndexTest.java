@@ -0,0 +1,76 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
+import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
+import ca.yorku.cmg.istardt.xmlparser.objects.DecompType;
+import ca.yorku.cmg.istardt.xmlparser.objects.DecompositionElement;
+import ca.yorku.cmg.istardt.xmlparser.objects.Goal;
+import ca.yorku.cmg.istardt.xmlparser.objects.Predicate;
+import ca.yorku.cmg.istardt.xmlparser.objects.Task;
+
+class AncestorContextIndexTest {
+
+	private Atom atom(String name) {
+		Atom a = new Atom();
+		a.setTitleText(name);
+		return a;
+	}
+
+	private Goal goal(String name, DecompType type) {
+		Goal g = new Goal();
+		g.setRepresentation(atom(name));
+		g.setDecompType(type);
+		return g;
+	}
+
+	private Task task(String name) {
+		Task t = new Task();
+		t.setRepresentation(atom(name));
+		return t;
+	}
+
+	/**
+	 * root (OR): [left (AND, pre: ready): [t1, t2], t3, t4]
+	 */
+	@Test
+	void contextsFollowAncestors() {
+		Goal root = goal("root", DecompType.OR);
+		root.setRoot(true);
+		Goal left = goal("left", DecompType.AND);
+		Predicate ready = new Predicate();
+		Atom readyAtom = atom("ready");
+		readyAtom.setElement(ready);
+		ready.setRepresentation(readyAtom);
+		left.setPreFormula(readyAtom);
+		Task t1 = task("t1");
+		Task t2 = task("t2");
+		Task t3 = task("t3");
+		Task t4 = task("t4");
+
+		root.addORChild(left);
+		root.addORChild(t3);
+		root.addORChild(t4);
+		left.addANDChild(t1);
+		left.addANDChild(t2);
+
+		Actor a = new Actor();
+		a.getGoals().addAll(List.of(root, left));
+		a.getTasks().addAll(List.of(t1, t2, t3, t4));
+
+		AncestorContextIndex index = new AncestorContextIndex(a, new FormulaParser());
+
+		assertTrue(index.getORExclusions(root).isEmpty());
+		assertEquals(List.<DecompositionElement>of(t3, t4), index.getORExclusions(t1));
+		assertEquals(List.<DecompositionElement>of(left, t4), index.getORExclusions(t3));
+		assertEquals(List.of("ready_fl(S)"), index.getPreconditions(t2));
+		assertTrue(index.getPreconditions(left).isEmpty());
+		assertTrue(index.getPreconditions(t4).isEmpty());
+	}
+}
@@ -0,0 +1,80 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchTranslatorTest {
+
+	private static final String DIR = "src/test/resources/dtx2dtg";
+
+	@Test
+	void findsModelsOfADirectory() throws IOException {
+		List<File> inputs = BatchTranslator.findInputs(DIR);
+		assertEquals(9, inputs.size());
+		assertEquals("1.Order.istardtx", inputs.get(0).getName());
+	}
+
+	@Test
+	void findsModelsMatchingAGlob() throws IOException {
+		List<File> inputs = BatchTranslator.findInputs(DIR + "/2.*.istardtx");
+		assertEquals(5, inputs.size());
+		assertTrue(inputs.stream().allMatch(f -> f.getName().startsWith("2.")));
+	}
+
+	@Test
+	void batchOutputMatchesSingleFileTranslation(@TempDir Path out) throws Exception {
+		BatchTranslator batch = new BatchTranslator(3, out.toString());
+		batch.setValidate(false);
+		batch.setPrintDate(false);
+		List<BatchTranslator.Result> results = batch.translate(BatchTranslator.findInputs(DIR));
+
+		assertEquals(9, results.size());
+		for (BatchTranslator.Result r:results) {
+			assertTrue(r.isOk(), r.getInput() + ": " + r.getError());
+			Path spec = Path.of(r.getOutputs().get(0));
+			String name = spec.getFileName().toString().replace(".pl", "-Auth.pl");
+			assertEquals(Files.readString(Path.of(DIR, name)), Files.readString(spec));
+			assertEquals(Files.size(spec), r.getBytes());
+		}
+	}
+
+	@Test
+	void failuresAreReportedPerFile(@TempDir Path out) throws Exception {
+		Path broken = out.resolve("broken.istardt");
+		Files.writeString(broken, "<actor");
+		BatchTranslator batch = new BatchTranslator(2, out.toString());
+		batch.setValidate(false);
+		List<BatchTranslator.Result> results = batch.translate(List.of(broken.toFile(), new File(DIR, "1.Order.istardtx")));
+
+		assertFalse(results.get(0).isOk());
+		assertTrue(results.get(1).isOk());
+		String summary = BatchTranslator.summarize(results);
+		assertTrue(summary.contains("FAILED"));
+		assertTrue(summary.contains("2 files, 1 failed"));
+	}
+
+	@Test
+	void filesWithTheSameOutputAreNotTranslated(@TempDir Path out) throws Exception {
+		Path in = out.resolve("in");
+		Files.createDirectories(in);
+		Files.copy(Path.of(DIR, "1.Order.istardtx"), in.resolve("1.Order.istardt"));
+		BatchTranslator batch = new BatchTranslator(2, out.toString());
+		batch.setValidate(false);
+		List<BatchTranslator.Result> results = batch.translate(List.of(in.resolve("1.Order.istardt").toFile(), 
+				new File(DIR, "1.Order.istardtx"), new File(DIR, "2.1.Build_1R_Discrete.istardtx")));
+
+		assertFalse(results.get(0).isOk());
+		assertFalse(results.get(1).isOk());
+		assertTrue(results.get(1).getError().contains("1.Order.istardt"), results.get(1).getError());
+		assertTrue(results.get(2).isOk());
+		assertFalse(Files.exists(out.resolve("1.Order.pl")));
+	}
+}
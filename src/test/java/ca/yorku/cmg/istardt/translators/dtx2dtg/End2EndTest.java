@@ -9,13 +9,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
+import javax.xml.transform.stream.StreamSource;
+
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import ca.yorku.cmg.istardt.xmlparser.objects.Model;
 import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
 import ca.yorku.cmg.istardt.xmlparser.xml.utils.CustomLogger;
-import io.github.nina2dv.xmlvalidation.XmlValidation;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
 
 class End2EndTest {
 
@@ -47,6 +50,20 @@ class End2EndTest {
 		compareFiles(outputFile,outputFile.substring(0, outputFile.length()-3) + "-Auth.pl");
 	}
 
+	private void transItCompact(String file, Path outputDir) throws IOException {
+		System.out.println("\n\n == dtx2dtg New Test ==\nTesting compact AND tranlsation for domain: " + file + ".istardtx");
+		String inputFile = generalPath + file + ".istardtx";
+		String outputFile = outputDir.resolve(file + "-Compact.pl").toString();
+		File xmlFile = new File(inputFile);
+
+		IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
+		Model model = unmarshaller.unmarshalToModel(xmlFile);
+		com2dtg trans = new com2dtg(model,outputFile);
+		trans.setCompactAnd(true);
+		trans.translate(false);
+		compareFiles(outputFile,generalPath + file + "-Compact-Auth.pl");
+	}
+
 	private void validateIt(String file) {
 
 		String inputFile = generalPath + file + ".istardtx";
@@ -68,10 +85,12 @@ class End2EndTest {
 				System.exit(1);
 			}
 
+			SchemaValidator validator = SchemaValidator.getInstance(xsdFile, schematronFile);
+
 			// Validate XML against XSD schema
 			System.out.println("Validating XML against XSD schema...");
 			try {
-				XmlValidation.validate("xsd", xsdFile.getAbsolutePath(), xmlFile.getAbsolutePath());
+				validator.validateXsd(new StreamSource(xmlFile));
 			} catch (Exception e) {
 				System.err.println("XSD validation failed:");
 				System.err.println(e.getMessage());
@@ -81,7 +100,7 @@ class End2EndTest {
 			// Validate XML against Schematron schema
 			System.out.println("Validating XML against Schematron schema...");
 			try {
-				XmlValidation.validate("schematron", schematronFile.getAbsolutePath(), xmlFile.getAbsolutePath());
+				validator.validateSchematron(new StreamSource(xmlFile));
 			} catch (Exception e) {
 				System.err.println("Schematron validation failed:");
 				System.err.println(e.getMessage());
@@ -159,6 +178,17 @@ class End2EndTest {
 
 
 
+	@Test
+	void test_Build_1R_Discrete_Compact(@TempDir Path dir) throws IOException { 
+		transItCompact("2.1.Build_1R_Discrete", dir);
+	}
+
+	@Test
+	void test_OrganizeTravel_Compact(@TempDir Path dir) throws IOException {     
+		transItCompact("4.1.OrganizeTravel", dir);
+	}
+
+
 
 	/* 
 	 * 
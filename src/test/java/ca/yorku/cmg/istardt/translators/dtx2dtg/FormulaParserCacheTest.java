@@ -0,0 +1,52 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.ANDOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
+import ca.yorku.cmg.istardt.xmlparser.objects.Formula;
+import ca.yorku.cmg.istardt.xmlparser.objects.NOTOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.Predicate;
+
+class FormulaParserCacheTest {
+
+	private Atom predicate(String name) {
+		Predicate p = new Predicate();
+		Atom a = new Atom();
+		a.setTitleText(name);
+		a.setElement(p);
+		p.setRepresentation(a);
+		return a;
+	}
+
+	@Test
+	void repeatedFormulaIsRenderedOnce() {
+		FormulaParser parser = new FormulaParser();
+		Formula f = new ANDOperator(predicate("ready"), new NOTOperator(predicate("blocked")));
+
+		String first = parser.parseConditionExpression(f);
+		long misses = parser.getCacheMisses();
+		String second = parser.parseConditionExpression(f);
+
+		assertEquals("(ready_fl(S),\\+ (blocked_fl(S)))", first);
+		assertEquals(first, second);
+		assertEquals(4, misses);
+		assertEquals(misses, parser.getCacheMisses());
+		assertEquals(1, parser.getCacheHits());
+	}
+
+	@Test
+	void equalButDistinctFormulaeAreCachedSeparately() {
+		FormulaParser parser = new FormulaParser();
+		parser.parseConditionExpression(predicate("ready"));
+		parser.parseConditionExpression(predicate("ready"));
+
+		assertEquals(0, parser.getCacheHits());
+		assertEquals(2, parser.getCacheMisses());
+
+		parser.clearCache();
+		assertEquals(0, parser.getCacheMisses());
+	}
+}
@@ -0,0 +1,76 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
+import ca.yorku.cmg.istardt.xmlparser.objects.Element;
+import ca.yorku.cmg.istardt.xmlparser.objects.Formula;
+import ca.yorku.cmg.istardt.xmlparser.objects.FormulaVisitor;
+import ca.yorku.cmg.istardt.xmlparser.objects.GTOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.LTOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.MinusOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.MultiplyOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.NumericConstant;
+import ca.yorku.cmg.istardt.xmlparser.objects.PreviousOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.Predicate;
+import ca.yorku.cmg.istardt.xmlparser.objects.Variable;
+
+class FormulaRenderingTest {
+
+	private Atom atom(String name, Element e) {
+		Atom a = new Atom();
+		a.setTitleText(name);
+		a.setElement(e);
+		return a;
+	}
+
+	@Test
+	void formulaeDispatchToTheirOwnVisitMethod() {
+		FormulaVisitor<String> v = new FormulaVisitor<String>() {
+			@Override
+			public String visitFormula(Formula f) {
+				return "other";
+			}
+
+			@Override
+			public String visitGT(GTOperator f) {
+				return "gt";
+			}
+		};
+		Atom a = atom("x", new Variable());
+
+		assertEquals("gt", new GTOperator(a, a).accept(v));
+		assertEquals("other", new LTOperator(a, a).accept(v));
+		assertEquals("other", Formula.createConstantFormula("1").accept(v));
+	}
+
+	@Test
+	void comparisonsRenderValueLookups() {
+		FormulaParser parser = new FormulaParser();
+		Atom temp = atom("temp", new Variable());
+		Atom limit = atom("limit", new Variable());
+
+		assertEquals("(temp(V_temp,S),V_temp < 20)",
+				parser.parseConditionExpression(new GTOperator(temp, atom("20", new Variable()))));
+		assertEquals("(temp(V_temp,S),limit(V_limit,S),V_temp <  V_limit)",
+				parser.parseConditionExpression(new LTOperator(temp, limit)));
+		assertThrows(IllegalArgumentException.class,
+				() -> parser.parseConditionExpression(new GTOperator(temp, new NumericConstant(3))));
+	}
+
+	@Test
+	void rewardPartsRenderLookupsAndArithmetic() {
+		FormulaParser parser = new FormulaParser();
+		Formula f = new MinusOperator(
+				new MultiplyOperator(new NumericConstant(2), atom("cost", new Variable())),
+				new PreviousOperator(atom("on", new Predicate())));
+
+		assertEquals("  cost(R_cost,S),\n  val(R_on_fl,on_fl(s0)),\n",
+				parser.parseSimpleQualityExpressionPart1(f, "  "));
+		assertEquals("((2.0) * (R_cost)) - (R_on_fl)",
+				parser.parseSimpleQualityExpressionPart2(f, "  "));
+	}
+}
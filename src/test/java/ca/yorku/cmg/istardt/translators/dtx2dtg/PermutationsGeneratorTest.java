@@ -0,0 +1,55 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PermutationsGeneratorTest {
+
+	private List<String> children(int n) {
+		List<String> l = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			l.add("c" + i);
+		}
+		return l;
+	}
+
+	@Test
+	void orderingsFollowSwapOrder() {
+		List<String> perms = new PermutationsGenerator().generatePermutations(new ArrayList<>(List.of("a", "b", "c")));
+		assertEquals(List.of("a : b : c", "a : c : b", "b : a : c", "b : c : a", "c : b : a", "c : a : b"), perms);
+	}
+
+	@Test
+	void countMatchesGeneratedOrderings() {
+		for (int n = 0; n <= 6; n++) {
+			Iterator<String> it = new PermutationsGenerator().permutations(children(n), Long.MAX_VALUE);
+			long produced = 0;
+			while (it.hasNext()) {
+				it.next();
+				produced++;
+			}
+			assertEquals(n == 0 ? 0 : PermutationsGenerator.countPermutations(n), produced);
+		}
+	}
+
+	@Test
+	void countSaturates() {
+		assertEquals(3628800L, PermutationsGenerator.countPermutations(10));
+		assertEquals(Long.MAX_VALUE, PermutationsGenerator.countPermutations(25));
+	}
+
+	@Test
+	void limitStopsGenerationEarly() {
+		Iterator<String> it = new PermutationsGenerator().permutations(children(20), 3);
+		assertEquals("c0 : c1 : c2 : c3 : c4 : c5 : c6 : c7 : c8 : c9 : c10 : c11 : c12 : c13 : c14 : c15 : c16 : c17 : c18 : c19", it.next());
+		it.next();
+		it.next();
+		assertFalse(it.hasNext());
+	}
+}
@@ -0,0 +1,69 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class SectionEmitterTest {
+
+	@Test
+	void sectionsAreWrittenInOpeningOrder() throws IOException {
+		StringWriter out = new StringWriter();
+		SectionEmitter emitter = new SectionEmitter(out);
+		SectionEmitter.Section first = emitter.open("a");
+		SectionEmitter.Section second = emitter.open("b");
+
+		second.append("2").close();
+		assertEquals("", out.toString());
+
+		first.append("1").close();
+		assertEquals("a1b2", out.toString());
+	}
+
+	@Test
+	void writtenSectionsDoNotHoldBackLaterOnes() throws IOException {
+		StringWriter out = new StringWriter();
+		SectionEmitter emitter = new SectionEmitter(out);
+		emitter.write("% heading\n");
+		SectionEmitter.Section body = emitter.open("");
+		emitter.write("% next\n");
+		assertEquals("% heading\n", out.toString());
+
+		body.append("a.\n").close();
+		assertEquals("% heading\na.\n% next\n", out.toString());
+	}
+
+	@Test
+	void listSectionsAreSeparated() throws IOException {
+		StringWriter out = new StringWriter();
+		SectionEmitter emitter = new SectionEmitter(out);
+		emitter.openList("fluentList([", ",", "]).\n").add("a_fl").add("b_fl");
+		emitter.openList("agentActionList([", ",", "]).\n");
+		emitter.finish();
+
+		assertEquals("fluentList([a_fl,b_fl]).\nagentActionList([]).\n", out.toString());
+	}
+
+	@Test
+	void deferredFragmentsKeepTheirPosition() throws IOException {
+		StringWriter out = new StringWriter();
+		SectionEmitter emitter = new SectionEmitter(out);
+		emitter.open("x").appendDeferred(w -> w.write("y")).append("z");
+		emitter.finish();
+
+		assertEquals("xyz", out.toString());
+	}
+
+	@Test
+	void closedSectionsRejectContent() throws IOException {
+		SectionEmitter emitter = new SectionEmitter(new StringWriter());
+		SectionEmitter.Section s = emitter.open("");
+		s.close();
+
+		assertThrows(IllegalStateException.class, () -> s.append("late"));
+	}
+}
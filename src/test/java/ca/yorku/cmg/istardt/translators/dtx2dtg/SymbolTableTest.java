@@ -0,0 +1,70 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
+import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
+import ca.yorku.cmg.istardt.xmlparser.objects.Goal;
+import ca.yorku.cmg.istardt.xmlparser.objects.Task;
+
+class SymbolTableTest {
+
+	private Atom atom(String name) {
+		Atom a = new Atom();
+		a.setTitleText(name);
+		return a;
+	}
+
+	private Actor actor(String... taskNames) {
+		Actor a = new Actor();
+		Goal root = new Goal();
+		root.setRepresentation(atom("root goal"));
+		a.getGoals().add(root);
+		for (String name:taskNames) {
+			Task t = new Task();
+			t.setRepresentation(atom(name));
+			a.getTasks().add(t);
+		}
+		return a;
+	}
+
+	@Test
+	void testCamelCase() {
+		Formatter f = new Formatter();
+		assertEquals("", f.toCamelCase(null));
+		assertEquals("", f.toCamelCase(""));
+		assertEquals("", f.toCamelCase("--"));
+		assertEquals("orderMaterial", f.toCamelCase("orderMaterial"));
+		assertEquals("orderMaterial", f.toCamelCase("Order material"));
+		assertEquals("orderMaterial2", f.toCamelCase("_order-material 2"));
+		assertEquals("aBC", f.toCamelCase("a.b_c"));
+		assertEquals("caf", f.toCamelCase("café"));
+	}
+
+	@Test
+	void testAtomsAreBuiltOnce() {
+		SymbolTable symbols = new SymbolTable(actor("Order material"), new Formatter());
+		assertEquals("rootGoal", symbols.id("root goal"));
+		String id = symbols.id("Order material");
+		assertEquals("orderMaterial", id);
+		assertSame(id, symbols.id("Order material"));
+		assertEquals("orderMaterial_Sat", symbols.sat(id));
+		assertSame(symbols.sat(id), symbols.sat(id));
+		assertEquals("orderMaterial_Att", symbols.att(id));
+		assertEquals("orderMaterial_Pre", symbols.pre(id));
+		assertEquals("ready_fl", symbols.fluent("ready"));
+		assertEquals("ready_fl_pre", symbols.preFluent("ready"));
+		assertEquals("orderMaterial_Avail", symbols.avail(id));
+		assertEquals("rootGoal_Pick", symbols.pick("rootGoal"));
+		assertTrue(symbols.getCollisions().isEmpty());
+	}
+
+	@Test
+	void testCollisionsAreReported() {
+		SymbolTable symbols = new SymbolTable(actor("order material", "order-material", "Order_Material", "other"), new Formatter());
+		assertEquals(2, symbols.getCollisions().size());
+		assertTrue(symbols.getCollisions().get(0).contains("\"order material\" and \"order-material\""));
+	}
+}
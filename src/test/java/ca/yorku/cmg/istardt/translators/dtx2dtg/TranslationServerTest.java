@@ -0,0 +1,74 @@
+package ca.yorku.cmg.istardt.translators.dtx2dtg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TranslationServerTest {
+
+	private static final String DIR = "src/test/resources/dtx2dtg/";
+
+	private TranslationServer server;
+	private HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void start() throws IOException {
+		server = new TranslationServer(0, 2, 4);
+		server.start();
+	}
+
+	@AfterEach
+	void stop() {
+		server.stop(0);
+	}
+
+	private HttpResponse<String> post(String query, Path body) throws Exception {
+		HttpRequest req = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/translate?" + query))
+				.POST(HttpRequest.BodyPublishers.ofFile(body)).build();
+		return client.send(req, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private String withoutDate(String spec) {
+		return spec.replaceFirst("% Date Translated: .*", "");
+	}
+
+	@Test
+	void translatesPostedModel() throws Exception {
+		HttpResponse<String> res = post("validate=false", Path.of(DIR + "1.Order.istardtx"));
+		assertEquals(200, res.statusCode());
+		assertEquals(withoutDate(Files.readString(Path.of(DIR + "1.Order-Auth.pl"))), withoutDate(res.body()));
+
+		res = post("validate=false&compact=true", Path.of(DIR + "4.1.OrganizeTravel.istardtx"));
+		assertEquals(200, res.statusCode());
+		assertEquals(withoutDate(Files.readString(Path.of(DIR + "4.1.OrganizeTravel-Compact-Auth.pl"))), withoutDate(res.body()));
+
+		String stats = server.getStats();
+		assertTrue(stats.contains("\"served\": 2"), stats);
+		assertTrue(stats.contains("\"queued\": 0"), stats);
+	}
+
+	@Test
+	void reportsBadRequests(@TempDir Path dir) throws Exception {
+		Path broken = dir.resolve("broken.istardt");
+		Files.writeString(broken, "<actor");
+		assertEquals(400, post("validate=false", broken).statusCode());
+		assertEquals(400, post("validate=false&maxPermutations=many", Path.of(DIR + "1.Order.istardtx")).statusCode());
+		assertEquals(400, post("validate=false&actor=nobody", Path.of(DIR + "1.Order.istardtx")).statusCode());
+
+		HttpResponse<String> res = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/translate")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(405, res.statusCode());
+		assertTrue(server.getStats().contains("\"failed\": 3"));
+	}
+}
@@ -2,17 +2,25 @@ package ca.yorku.cmg.istardt.translators.dtx2dtg;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import ca.yorku.cmg.istardt.translators.dtx2dtg.Formatter;
 import ca.yorku.cmg.istardt.translators.dtx2dtg.FormulaParser;
 import ca.yorku.cmg.istardt.xmlparser.objects.ANDOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.Actor;
 import ca.yorku.cmg.istardt.xmlparser.objects.Atom;
 import ca.yorku.cmg.istardt.xmlparser.objects.CrossRunSet;
+import ca.yorku.cmg.istardt.xmlparser.objects.DecompType;
+import ca.yorku.cmg.istardt.xmlparser.objects.Effect;
 import ca.yorku.cmg.istardt.xmlparser.objects.Element;
 import ca.yorku.cmg.istardt.xmlparser.objects.Export;
 import ca.yorku.cmg.istardt.xmlparser.objects.ExportedSet;
@@ -22,6 +30,8 @@ import ca.yorku.cmg.istardt.xmlparser.objects.Goal;
 import ca.yorku.cmg.istardt.xmlparser.objects.Initialization;
 import ca.yorku.cmg.istardt.xmlparser.objects.InitializationSet;
 import ca.yorku.cmg.istardt.xmlparser.objects.LTOperator;
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.objects.NumericConstant;
 import ca.yorku.cmg.istardt.xmlparser.objects.OROperator;
 import ca.yorku.cmg.istardt.xmlparser.objects.Predicate;
 import ca.yorku.cmg.istardt.xmlparser.objects.PreviousOperator;
@@ -40,6 +50,177 @@ class com2dtgTest {
 	}
 
 	
+	/**
+	 * Builds a single-actor model whose root goal is AND-decomposed into n tasks.
+	 */
+	private Model andGoalModel(int n) {
+		Actor actor = new Actor();
+		Goal root = new Goal();
+		Atom a = new Atom();
+		a.setTitleText("root");
+		root.setRepresentation(a);
+		root.setRoot(true);
+		root.setRuns(1);
+		root.setDecompType(DecompType.AND);
+		actor.getGoals().add(root);
+		
+		for (int i = 0; i < n; i++) {
+			Task t = new Task();
+			a = new Atom();
+			a.setTitleText("task" + i);
+			t.setRepresentation(a);
+			Effect e = new Effect();
+			a = new Atom();
+			a.setTitleText("task" + i + "_Eff");
+			e.setRepresentation(a);
+			e.setProbability(1.0f);
+			e.addTurnsTrue("done" + i);
+			t.setEffects(new ArrayList<>(List.of(e)));
+			root.addANDChild(t);
+			actor.getTasks().add(t);
+		}
+		actor.setCrossRunSet(new CrossRunSet());
+		
+		Model m = new Model();
+		m.getActors().add(actor);
+		return m;
+	}
+	
+	private long countLines(String s, String prefix) {
+		return s.lines().filter(l -> l.startsWith(prefix)).count();
+	}
+	
+	@Test
+	void andGoalWithinBudgetEmitsAllOrderings() throws IOException {
+		StringWriter out = new StringWriter();
+		new com2dtg(andGoalModel(4), "").translate(false, out);
+		assertEquals(24, countLines(out.toString(), "proc(root, "));
+	}
+	
+	@Test
+	void andGoalOverBudgetAborts() {
+		com2dtg trans = new com2dtg(andGoalModel(4), "");
+		trans.setMaxPermutations(10);
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> trans.translate(false, new StringWriter()));
+		assertTrue(e.getMessage().contains("root"));
+	}
+	
+	@Test
+	void andGoalOverBudgetLeavesOutputUntouched(@TempDir Path dir) throws IOException {
+		Path out = dir.resolve("spec.pl");
+		Files.writeString(out, "previous");
+		com2dtg trans = new com2dtg(andGoalModel(4), out.toString());
+		trans.setMaxPermutations(10);
+		PermutationBudgetException e = assertThrows(PermutationBudgetException.class, () -> trans.translate(false));
+		assertEquals("root", e.getGoal());
+		assertEquals("previous", Files.readString(out));
+	}
+	
+	@Test
+	void compactAndGoalGrowsLinearly() throws IOException {
+		StringWriter out = new StringWriter();
+		com2dtg trans = new com2dtg(andGoalModel(12), "");
+		trans.setCompactAnd(true);
+		trans.translate(false, out);
+		String spec = out.toString();
+		assertEquals(1, countLines(spec, "proc(root, "));
+		assertEquals(1, countLines(spec, "proc(root_Pick, "));
+		assertEquals(12, spec.lines().filter(l -> l.endsWith("_Avail(S)).")).count());
+		assertTrue(spec.contains("(?(task11_Avail) : task11)"));
+	}
+	
+	@Test
+	void parallelTranslationMatchesSequential() throws IOException {
+		Model m = andGoalModel(500);
+		StringWriter parallel = new StringWriter();
+		StringWriter sequential = new StringWriter();
+		
+		com2dtg trans = new com2dtg(m, "");
+		trans.setCompactAnd(true);
+		trans.translate(false, parallel);
+		
+		trans = new com2dtg(m, "");
+		trans.setCompactAnd(true);
+		trans.setParallel(false);
+		trans.translate(false, sequential);
+		
+		assertEquals(sequential.toString(), parallel.toString());
+	}
+	
+	@Test
+	void everyActorIsTranslatedToItsOwnFile(@TempDir Path dir) throws IOException {
+		Model m = andGoalModel(3);
+		Actor second = andGoalModel(2).getActors().get(0);
+		Atom a = new Atom();
+		a.setTitleText("second actor");
+		second.setRepresentation(a);
+		m.getActors().add(second);
+		
+		com2dtg trans = new com2dtg(m, dir.resolve("spec.pl").toString());
+		List<String> files = trans.getActorOutputFiles();
+		assertEquals(dir.resolve("spec-actor1.pl").toString(), files.get(0));
+		assertEquals(dir.resolve("spec-secondActor.pl").toString(), files.get(1));
+		
+		trans.translate(false);
+		for (int i = 0; i < 2; i++) {
+			StringWriter expected = new StringWriter();
+			trans.forActor(m.getActors().get(i), "").translate(false, expected);
+			assertEquals(expected.toString(), Files.readString(Path.of(files.get(i))));
+		}
+		assertEquals(6, countLines(Files.readString(Path.of(files.get(0))), "proc(root, "));
+		assertEquals(2, countLines(Files.readString(Path.of(files.get(1))), "proc(root, "));
+	}
+	
+	@Test
+	void andGoalOverBudgetIsTruncated() throws IOException {
+		StringWriter out = new StringWriter();
+		com2dtg trans = new com2dtg(andGoalModel(12), "");
+		trans.setMaxPermutations(10);
+		trans.setTruncatePermutations(true);
+		trans.translate(false, out);
+		assertEquals(10, countLines(out.toString(), "proc(root, "));
+	}
+
+	@Test
+	void translationFollowsChangesToTheModel() throws IOException {
+		Model m = andGoalModel(2);
+		com2dtg trans = new com2dtg(m, "");
+		trans.translate(false, new StringWriter());
+		
+		// a cross-run quality added after the first translation
+		Actor actor = m.getActors().get(0);
+		Quality q = new Quality();
+		Atom a = new Atom();
+		a.setTitleText("cost");
+		q.setRepresentation(a);
+		q.setFormula(new NumericConstant(1.0f));
+		actor.getQualities().add(q);
+		actor.getCrossRunSet().addElement(q);
+		StringWriter out = new StringWriter();
+		trans.translate(false, out);
+		assertTrue(out.toString().contains("cost(R_cost_init,s0)"), out.toString());
+	}
+	
+	@Test
+	void fluentSetByManyEffectsIsEmittedOnce() throws IOException {
+		Model m = andGoalModel(3);
+		for (Task t:m.getActors().get(0).getTasks()) {
+			t.getEffects().get(0).addTurnsTrue("done");
+		}
+		StringWriter out = new StringWriter();
+		new com2dtg(m, "").translate(false, out);
+		String spec = out.toString();
+		
+		List<String> axioms = spec.lines().filter(l -> l.startsWith("done_fl(do(A,S))")).toList();
+		assertEquals(1, axioms.size());
+		assertEquals(3, axioms.get(0).split("; A=").length - 1);
+		assertEquals(1, countLines(spec, "restoreSitArg(done_fl,"));
+		assertEquals(3, countLines(spec, "senseCondition("));
+		String fluents = spec.lines().filter(l -> l.startsWith("fluentList(")).findFirst().get();
+		assertEquals(1, fluents.split("\\bdone_fl\\b").length - 1);
+	}
+
+	
 	
 
 	/** 
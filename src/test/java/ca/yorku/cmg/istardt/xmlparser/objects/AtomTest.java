@@ -0,0 +1,33 @@
+package ca.yorku.cmg.istardt.xmlparser.objects;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomTest {
+
+    @Test
+    public void testDerivedTitleIsEqualToStoredOne() {
+        Atom derived = atom("a");
+        derived.deriveTitleHTMLText();
+        Atom stored = atom("a");
+        stored.setTitleHTMLText("<h>a</h>");
+        assertEquals("<h>a</h>", derived.getTitleHTMLText());
+        assertEquals(stored, derived);
+        assertEquals(stored.hashCode(), derived.hashCode());
+    }
+
+    @Test
+    public void testRenamingKeepsTheDerivedTitle() {
+        Atom atom = atom("a");
+        atom.deriveTitleHTMLText();
+        atom.setTitleText("b");
+        assertFalse(atom.isTitleHTMLDerived());
+        assertEquals("<h>a</h>", atom.getTitleHTMLText());
+    }
+
+    private static Atom atom(String title) {
+        Atom atom = new Atom();
+        atom.setTitleText(title);
+        return atom;
+    }
+}
@@ -0,0 +1,41 @@
+package ca.yorku.cmg.istardt.xmlparser.objects;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatMapTest {
+
+    @Test
+    public void testBehavesLikeAHashMap() {
+        FloatMap<String> map = new FloatMap<>();
+        Map<String, Float> expected = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected.put("v" + i % 7, (float) i), map.put("v" + i % 7, (float) i));
+        }
+        assertNull(map.put(null, 1.5f));
+        expected.put(null, 1.5f);
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(9f, map.getFloat("v2", -1), 0);
+        assertEquals(-1f, map.getFloat("v9", -1), 0);
+
+        assertEquals(expected.remove("v3"), map.remove("v3"));
+        assertNull(map.remove("v3"));
+        map.entrySet().iterator().next().setValue(42f);
+        expected.put("v0", 42f);
+        for (Iterator<Map.Entry<String, Float>> i = map.entrySet().iterator(); i.hasNext();) {
+            if ("v5".equals(i.next().getKey())) {
+                i.remove();
+            }
+        }
+        expected.remove("v5");
+        map.trimToSize();
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+    }
+}
@@ -0,0 +1,149 @@
+package ca.yorku.cmg.istardt.xmlparser.objects;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
+import ca.yorku.cmg.istardt.xmlparser.xml.StreamingUnmarshallerTest;
+
+public class ModelIndexTest {
+
+    @Test
+    public void testAgreesWithTheObjectGraph() throws Exception {
+        IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
+        for (File f : StreamingUnmarshallerTest.fixtures()) {
+            Model model = unmarshaller.unmarshalToModel(f);
+            ModelIndex index = model.getIndex();
+            assertSame(index, model.getIndex(), f.getName());
+
+            for (Actor a : model.getActors()) {
+                assertSame(a.getGoalRoot(), index.getGoalRoot(a), f.getName());
+                assertSame(a.getQualityRoot(), index.getQualityRoot(a), f.getName());
+                int actorId = index.getId(a);
+                assertTrue(index.is(actorId, ModelIndex.Kind.ACTOR));
+
+                for (Goal g : a.getGoals()) {
+                    checkDecomposition(index, g, actorId, ModelIndex.Kind.GOAL);
+                }
+                for (Task t : a.getTasks()) {
+                    checkDecomposition(index, t, actorId, ModelIndex.Kind.TASK);
+                    for (Effect e : t.getEffects()) {
+                        int id = index.getId(e);
+                        assertTrue(index.is(id, ModelIndex.Kind.EFFECT));
+                        assertEquals(t.getEffects().size() - 1, index.getSiblings(id).length);
+                    }
+                }
+                for (Quality q : a.getQualities()) {
+                    assertEquals(a.getCrossRunSet() != null
+                            && a.getCrossRunSet().getElements().stream().anyMatch(e -> e.getName().equals(q.getName())),
+                            index.isCrossRun(q), f.getName() + " " + q.getName());
+                }
+                if (a.getExportedSet() != null) {
+                    for (Export e : a.getExportedSet().getExports()) {
+                        assertTrue(index.isExported(e.getElement()), f.getName() + " " + e.getRef());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkDecomposition(ModelIndex index, DecompositionElement e, int actorId, ModelIndex.Kind kind) {
+        int id = index.getId(e);
+        assertTrue(id >= 0, e.getName());
+        assertSame(e, index.getElement(id));
+        assertEquals(kind, index.getKind(id));
+        assertEquals(actorId, index.getActor(id));
+        assertEquals(index.getId(e.getParent()), index.getParent(id), e.getName());
+        assertEquals(e.getChildren(), index.getElements(index.getChildren(id)), e.getName());
+        assertEquals(e.getSiblings(), index.getElements(index.getSiblings(id)), e.getName());
+        for (int sibling : index.getSiblings(id)) {
+            assertTrue(index.isSibling(id, sibling));
+        }
+        assertFalse(index.isSibling(id, id));
+    }
+
+    private static Atom atom(String name) {
+        Atom a = new Atom();
+        a.setTitleText(name);
+        return a;
+    }
+
+    @Test
+    public void testSiblingsAreToldApartByIdentity() {
+        // two children that are equal as elements: same title, no description
+        Goal root = new Goal();
+        root.setRepresentation(atom("root"));
+        root.setRoot(true);
+        root.setDecompType(DecompType.OR);
+        List<DecompositionElement> children = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Task t = new Task();
+            t.setRepresentation(atom("same"));
+            root.addORChild(t);
+            children.add(t);
+        }
+        Actor actor = new Actor();
+        actor.setRepresentation(atom("actor"));
+        actor.getGoals().add(root);
+        actor.getTasks().add((Task) children.get(0));
+        actor.getTasks().add((Task) children.get(1));
+        Model model = new Model();
+        model.getActors().add(actor);
+
+        ModelIndex index = new ModelIndex(model);
+        assertEquals(4, index.size());
+        int first = index.getId(children.get(0));
+        int second = index.getId(children.get(1));
+        assertArrayEquals(new int[] {second}, index.getSiblings(first));
+        assertArrayEquals(new int[] {first}, index.getSiblings(second));
+        assertTrue(index.isSibling(first, second));
+        assertSame(root, index.getGoalRoot(actor));
+        assertNull(index.getQualityRoot(actor));
+        assertFalse(index.isCrossRun(root));
+        assertEquals(-1, index.getId(new Task()));
+    }
+
+    @Test
+    public void testCrossRunGoesByName() {
+        Quality q = new Quality();
+        q.setRepresentation(atom("cost"));
+        Quality sameName = new Quality();
+        sameName.setRepresentation(atom("cost"));
+        Actor actor = new Actor();
+        actor.setRepresentation(atom("actor"));
+        actor.getQualities().add(q);
+        CrossRunSet crossRuns = new CrossRunSet();
+        crossRuns.getElements().add(sameName);
+        actor.setCrossRunSet(crossRuns);
+        Model model = new Model();
+        model.getActors().add(actor);
+
+        assertTrue(model.getIndex().isCrossRun(q));
+    }
+
+    @Test
+    public void testRebuiltAfterChanges() {
+        Actor actor = new Actor();
+        actor.setRepresentation(atom("actor"));
+        Model model = new Model();
+        model.getActors().add(actor);
+        ModelIndex before = model.getIndex();
+        assertSame(before, model.getIndex());
+
+        Task t = new Task();
+        t.setRepresentation(atom("late"));
+        actor.getTasks().add(t);
+        assertEquals(-1, model.getIndex().getId(t));
+        ModelIndex after = model.buildIndex();
+        assertNotSame(before, after);
+        assertSame(after, model.getIndex());
+        assertTrue(after.getId(t) >= 0);
+
+        model.setActors(new ArrayList<>(List.of(actor)));
+        assertNotSame(after, model.getIndex());
+    }
+}
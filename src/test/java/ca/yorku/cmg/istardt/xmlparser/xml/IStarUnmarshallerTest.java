@@ -0,0 +1,47 @@
+package ca.yorku.cmg.istardt.xmlparser.xml;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IStarUnmarshallerTest {
+
+    @Test
+    public void testConcurrentUnmarshalling() throws Exception {
+        for (boolean streaming : new boolean[] {false, true}) {
+            IStarUnmarshaller unmarshaller = new IStarUnmarshaller(streaming);
+            Map<File, String> expected = new LinkedHashMap<>();
+            for (File f : StreamingUnmarshallerTest.fixtures()) {
+                expected.put(f, StreamingUnmarshallerTest.describe(unmarshaller.unmarshalToModel(f)));
+            }
+
+            // the same unmarshaller, every fixture several times over, all at once
+            List<Callable<String>> jobs = new ArrayList<>();
+            List<File> files = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                for (File f : expected.keySet()) {
+                    files.add(f);
+                    jobs.add(() -> StreamingUnmarshallerTest.describe(unmarshaller.unmarshalToModel(f)));
+                }
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<String>> results = pool.invokeAll(jobs);
+                for (int i = 0; i < results.size(); i++) {
+                    assertEquals(expected.get(files.get(i)), results.get(i).get(), files.get(i).getName());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
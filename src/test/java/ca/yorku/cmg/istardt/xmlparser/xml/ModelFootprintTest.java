@@ -0,0 +1,102 @@
+package ca.yorku.cmg.istardt.xmlparser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.yorku.cmg.istardt.translators.dtx2dtg.com2dtg;
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+
+/**
+ * Checks that compact models are the same as regular ones and, as a benchmark, reports
+ * the heap both retain per element.
+ */
+public class ModelFootprintTest {
+
+    private static final int COPIES = 5;
+
+    @Test
+    public void testCompactModelsAreTheSame() throws Exception {
+        for (boolean streaming : new boolean[] {false, true}) {
+            IStarUnmarshaller regular = new IStarUnmarshaller(streaming, false);
+            IStarUnmarshaller compact = new IStarUnmarshaller(streaming, true);
+            assertTrue(compact.isCompact());
+            for (File f : StreamingUnmarshallerTest.fixtures()) {
+                Model expected = regular.unmarshalToModel(f);
+                Model actual = compact.unmarshalToModel(f);
+                assertEquals(StreamingUnmarshallerTest.describe(expected), StreamingUnmarshallerTest.describe(actual), f.getName());
+                if (f.getName().endsWith(".istardtx")) {
+                    assertEquals(translate(expected), translate(actual), f.getName());
+                }
+                for (Actor a : expected.getActors()) {
+                    for (Task t : a.getTasks()) {
+                        assertFalse(t.getAtom().isTitleHTMLDerived());
+                    }
+                }
+                for (Actor a : actual.getActors()) {
+                    for (Task t : a.getTasks()) {
+                        assertTrue(t.getAtom().isTitleHTMLDerived());
+                        for (Effect e : t.getEffects()) {
+                            assertTrue(e.getVariableNameSet() instanceof FloatMap, f.getName());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the heap retained per element by regular and compact models of a large model.
+     * The figures depend on the collector, so they are not asserted on. Run with
+     * {@code -Distardt.benchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "istardt.benchmark", matches = "true")
+    public void benchmarkBytesPerElement() throws Exception {
+        byte[] xml = StreamingUnmarshallerTest.largeModel(2000).getBytes(StandardCharsets.UTF_8);
+        for (boolean streaming : new boolean[] {false, true}) {
+            double before = bytesPerElement(new IStarUnmarshaller(streaming, false), xml);
+            double after = bytesPerElement(new IStarUnmarshaller(streaming, true), xml);
+            System.out.printf("%s: %.0f bytes per element, %.0f compact%n",
+                    streaming ? "streaming" : "Jackson", before, after);
+        }
+    }
+
+    /**
+     * Estimates the heap retained by a few copies of a model, per element of the model.
+     * {@link System#gc()} is only a hint, so this is an estimate.
+     */
+    private static double bytesPerElement(IStarUnmarshaller unmarshaller, byte[] xml) throws Exception {
+        unmarshaller.unmarshalToModel(new ByteArrayInputStream(xml)); // warm up
+        Model[] models = new Model[COPIES];
+        long used = usedHeap();
+        for (int i = 0; i < COPIES; i++) {
+            models[i] = unmarshaller.unmarshalToModel(new ByteArrayInputStream(xml));
+        }
+        long retained = usedHeap() - used;
+        int elements = models[0].getIndex().size();
+        Reference.reachabilityFence(models);
+        return (double) retained / ((long) elements * COPIES);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String translate(Model model) throws Exception {
+        StringWriter out = new StringWriter();
+        new com2dtg(model, "").translate(false, out);
+        return out.toString();
+    }
+}
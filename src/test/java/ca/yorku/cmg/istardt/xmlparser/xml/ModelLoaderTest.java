@@ -0,0 +1,108 @@
+package ca.yorku.cmg.istardt.xmlparser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.xml.sax.InputSource;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.yorku.cmg.istardt.translators.dtx2dtg.com2dtg;
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.ValidationException;
+
+public class ModelLoaderTest {
+    private static final Path ORDER = Path.of("src/test/resources/dtx2dtg/1.Order.istardtx");
+
+    private String translate(Model model) throws Exception {
+        StringWriter out = new StringWriter();
+        new com2dtg(model, "").translate(false, out);
+        return out.toString();
+    }
+
+    @Test
+    public void testSingleParseMatchesFileUnmarshalling() throws Exception {
+        IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
+        ModelLoader loader = new ModelLoader(unmarshaller, SchemaValidator.getInstance());
+        File[] inputs = new File("src/test/resources/dtx2dtg").listFiles((d, n) -> n.endsWith(".istardtx"));
+        assertTrue(inputs.length > 0);
+        for (File f : inputs) {
+            assertEquals(translate(unmarshaller.unmarshalToModel(f)), translate(loader.load(f)), f.getName());
+        }
+    }
+
+    @Test
+    public void testInvalidDocumentIsRejectedBeforeUnmarshalling() throws Exception {
+        String xml = Files.readString(ORDER).replaceFirst("probability = \"0.75\"", "probability = \"0.5\"");
+        ModelLoader loader = new ModelLoader(new IStarUnmarshaller(), SchemaValidator.getInstance());
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> loader.load(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(ValidationException.Stage.RULES, e.getStage());
+
+        // the same verdict from the stylesheet
+        loader.setUseSchematron(true);
+        e = assertThrows(ValidationException.class,
+                () -> loader.load(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(ValidationException.Stage.SCHEMATRON, e.getStage());
+
+        // no validator, no check
+        assertNotNull(new ModelLoader(new IStarUnmarshaller(), null).load(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testMalformedDocumentIsReportedWithItsPosition() {
+        ModelLoader loader = new ModelLoader(new IStarUnmarshaller(), null);
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> loader.load(new ByteArrayInputStream("<actor>\n<goal></actor>".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(ValidationException.Stage.PARSE, e.getStage());
+        assertTrue(e.getMessage().startsWith("line 2"), e.getMessage());
+    }
+
+    @Test
+    public void testConcurrentLoadingMatchesSequentialLoading() throws Exception {
+        IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ModelLoader sequential = new ModelLoader(unmarshaller, SchemaValidator.getInstance());
+            ModelLoader concurrent = new ModelLoader(unmarshaller, SchemaValidator.getInstance(), executor);
+            for (File f : new File("src/test/resources/dtx2dtg").listFiles((d, n) -> n.endsWith(".istardtx"))) {
+                assertEquals(translate(sequential.load(f)), translate(concurrent.load(f)), f.getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentChecksReportTheFailingStage() throws Exception {
+        String order = Files.readString(ORDER);
+        String badXsd = order.replaceFirst("<actor ", "<actr ").replaceFirst("</actor>", "</actr>");
+        String badSchematron = order.replaceFirst("probability = \"0.75\"", "probability = \"0.5\"");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ModelLoader loader = new ModelLoader(new IStarUnmarshaller(), SchemaValidator.getInstance(), executor);
+
+            ValidationException e = assertThrows(ValidationException.class,
+                    () -> loader.load(new ByteArrayInputStream(badSchematron.getBytes(StandardCharsets.UTF_8))));
+            assertEquals(ValidationException.Stage.RULES, e.getStage());
+            assertTrue(e.getMessage().contains("effectGroup"), e.getMessage());
+
+            // the Schematron check may or may not be in by the time XSD fails
+            loader.setUseSchematron(true);
+            e = assertThrows(ValidationException.class,
+                    () -> loader.validate(ModelLoader.parse(new InputSource(
+                            new ByteArrayInputStream(badXsd.getBytes(StandardCharsets.UTF_8))))));
+            assertFalse(e.getErrors().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ca.yorku.cmg.istardt.xmlparser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.yorku.cmg.istardt.translators.dtx2dtg.com2dtg;
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+import ca.yorku.cmg.istardt.xmlparser.xml.formula.UnresolvedReference;
+
+public class StreamingUnmarshallerTest {
+
+    public static List<File> fixtures() {
+        List<File> files = new ArrayList<>();
+        files.addAll(List.of(new File("src/test/resources/dtx2dtg").listFiles((d, n) -> n.endsWith(".istardtx"))));
+        files.addAll(List.of(new File("src/test/resources/xml").listFiles((d, n) -> n.endsWith(".xml"))));
+        return files;
+    }
+
+    @Test
+    public void testSameModelAsJackson() throws Exception {
+        IStarUnmarshaller jackson = new IStarUnmarshaller(false);
+        IStarUnmarshaller streaming = new IStarUnmarshaller(true);
+        assertTrue(streaming.isStreaming());
+        for (File f : fixtures()) {
+            Model expected = jackson.unmarshalToModel(f);
+            Model actual = streaming.unmarshalToModel(f);
+            assertEquals(describe(expected), describe(actual), f.getName());
+        }
+    }
+
+    @Test
+    public void testSameTranslationAsJackson() throws Exception {
+        IStarUnmarshaller jackson = new IStarUnmarshaller(false);
+        IStarUnmarshaller streaming = new IStarUnmarshaller(true);
+        for (File f : new File("src/test/resources/dtx2dtg").listFiles((d, n) -> n.endsWith(".istardtx"))) {
+            assertEquals(translate(jackson.unmarshalToModel(f)), translate(streaming.unmarshalToModel(f)), f.getName());
+            // and from a parsed document, as the ModelLoader hands it over
+            assertEquals(translate(jackson.unmarshalToModel(f)),
+                    translate(streaming.unmarshalToModel(ModelLoader.parse(f))), f.getName());
+        }
+    }
+
+    @Test
+    public void testFormulaReferencesAreResolved() throws Exception {
+        for (boolean streaming : new boolean[] {false, true}) {
+            IStarUnmarshaller unmarshaller = new IStarUnmarshaller(streaming);
+            for (File f : fixtures()) {
+                String formulas = describe(unmarshaller.unmarshalToModel(f));
+                assertFalse(formulas.contains(UnresolvedReference.class.getSimpleName()), f.getName());
+            }
+        }
+    }
+
+    @Test
+    public void testSameModelOnLargeModels() throws Exception {
+        byte[] xml = largeModel(2000).getBytes(StandardCharsets.UTF_8);
+        IStarUnmarshaller jackson = new IStarUnmarshaller(false);
+        IStarUnmarshaller streaming = new IStarUnmarshaller(true);
+        assertEquals(describe(jackson.unmarshalToModel(new ByteArrayInputStream(xml))),
+                describe(streaming.unmarshalToModel(new ByteArrayInputStream(xml))));
+    }
+
+    /**
+     * Reports the time and, on JVMs that count them, the bytes allocated by each
+     * unmarshaller on a large model. Run with {@code -Distardt.benchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "istardt.benchmark", matches = "true")
+    public void benchmarkLargeModel() throws Exception {
+        byte[] xml = largeModel(2000).getBytes(StandardCharsets.UTF_8);
+        IStarUnmarshaller jackson = new IStarUnmarshaller(false);
+        IStarUnmarshaller streaming = new IStarUnmarshaller(true);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = (threads instanceof com.sun.management.ThreadMXBean)
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long[] jacksonRun = {Long.MAX_VALUE, -1};
+        long[] streamingRun = {Long.MAX_VALUE, -1};
+        for (int i = 0; i < 5; i++) {
+            measure(jackson, xml, allocations, jacksonRun);
+            measure(streaming, xml, allocations, streamingRun);
+        }
+        System.out.printf("Jackson: %d us, %d bytes allocated%n", jacksonRun[0] / 1000, jacksonRun[1]);
+        System.out.printf("Streaming: %d us, %d bytes allocated%n", streamingRun[0] / 1000, streamingRun[1]);
+    }
+
+    /**
+     * Unmarshals once, keeping the best time and the last allocation count (-1 if not counted).
+     */
+    private static void measure(IStarUnmarshaller unmarshaller, byte[] xml,
+            com.sun.management.ThreadMXBean allocations, long[] run) throws Exception {
+        long bytes = allocations != null ? allocations.getCurrentThreadAllocatedBytes() : 0;
+        long start = System.nanoTime();
+        unmarshaller.unmarshalToModel(new ByteArrayInputStream(xml));
+        run[0] = Math.min(run[0], System.nanoTime() - start);
+        if (allocations != null) {
+            run[1] = allocations.getCurrentThreadAllocatedBytes() - bytes;
+        }
+    }
+
+    public static String largeModel(int tasks) {
+        StringBuilder s = new StringBuilder();
+        s.append("<iStarDT xmlns=\"https://example.org/istar-dt-x\"><header title=\"large\"/>")
+                .append("<options continuous=\"true\" infeasibleActionPenalty=\"100\"/>")
+                .append("<actors><actor name=\"default\" description=\"\"><predicates>");
+        for (int i = 0; i < tasks; i++) {
+            s.append("<predicate description=\"\">done").append(i).append("</predicate>");
+        }
+        s.append("</predicates><qualities>");
+        for (int i = 0; i < tasks; i++) {
+            if (i % 20 == 0) {
+                s.append(i == 0 ? "" : "</add></quality>").append("<quality name=\"cost").append(i / 20).append("\"><add>");
+            }
+            s.append("<multiply><numConst>").append(i % 10).append("</numConst><predicateID>done").append(i)
+                    .append("</predicateID></multiply>");
+        }
+        s.append("</add></quality></qualities><goals><goal name=\"all\" root=\"true\"><refinement type=\"OR\">");
+        for (int i = 0; i < tasks; i++) {
+            s.append("<childTask ref=\"do").append(i).append("\"/>");
+        }
+        s.append("</refinement></goal></goals><tasks>");
+        for (int i = 0; i < tasks; i++) {
+            s.append("<task name=\"do").append(i).append("\"><pre><not><predicateID>done").append(i)
+                    .append("</predicateID></not></pre><effectGroup><effect name=\"do").append(i)
+                    .append("_Eff\" probability=\"1\"><turnsTrue>done").append(i)
+                    .append("</turnsTrue></effect></effectGroup></task>");
+        }
+        s.append("</tasks></actor></actors></iStarDT>");
+        return s.toString();
+    }
+
+    private static String translate(Model model) throws Exception {
+        StringWriter out = new StringWriter();
+        new com2dtg(model, "").translate(false, out);
+        return out.toString();
+    }
+
+    /**
+     * Describes everything of a model but the generated ids.
+     */
+    public static String describe(Model model) {
+        StringBuilder s = new StringBuilder();
+        Header h = model.getHeader();
+        s.append("header ").append(h.getTitle()).append('|').append(h.getAuthor()).append('|').append(h.getSource())
+                .append('|').append(h.getLastUpdated()).append('|').append(h.getNotes()).append('\n');
+        s.append("options ").append(model.getOptions().isContinuous()).append(' ')
+                .append(model.getOptions().getInfActionPenalty()).append('\n');
+        for (Actor a : model.getActors()) {
+            s.append("actor ").append(atom(a)).append('\n');
+            for (Predicate p : a.getPredicates()) {
+                s.append(" predicate ").append(atom(p)).append('\n');
+            }
+            for (Variable v : a.getVariables()) {
+                s.append(" variable ").append(atom(v)).append('\n');
+            }
+            for (Condition c : a.getConditions()) {
+                s.append(" condition ").append(atom(c)).append(' ').append(formula(c.getFormula())).append('\n');
+            }
+            for (Quality q : a.getQualities()) {
+                s.append(" quality ").append(atom(q)).append(' ').append(q.isRoot()).append(' ')
+                        .append(formula(q.getFormula())).append('\n');
+            }
+            for (Goal g : a.getGoals()) {
+                s.append(" goal ").append(atom(g)).append(' ').append(g.isRoot()).append(' ').append(g.getRuns())
+                        .append(' ').append(g.isRunsDeclared()).append(' ').append(g.isTerminal()).append(' ')
+                        .append(g.getDecompType()).append(' ').append(g.getChildGoalRefs()).append(g.getChildTaskRefs())
+                        .append(names(g.getChildren())).append(' ').append(parent(g)).append(' ')
+                        .append(formula(g.getPreFormula())).append(' ').append(formula(g.getNprFormula())).append('\n');
+            }
+            for (Task t : a.getTasks()) {
+                s.append(" task ").append(atom(t)).append(' ').append(t.getDecompType()).append(' ').append(parent(t))
+                        .append(' ').append(formula(t.getPreFormula())).append(' ').append(formula(t.getNprFormula()))
+                        .append('\n');
+                for (Effect e : t.getEffects()) {
+                    s.append("  effect ").append(atom(e)).append(' ').append(e.isSatisfying()).append(' ')
+                            .append(e.getProbability()).append(' ').append(e.getTurnsTrue()).append(e.getTurnsFalse())
+                            .append(' ').append(new TreeMap<>(e.getVariableNameSet())).append(' ')
+                            .append(variables(e.getVariableSet())).append(' ').append(e.getTask().getName()).append(' ')
+                            .append(formula(e.getPreFormula())).append(' ').append(formula(e.getNprFormula()))
+                            .append('\n');
+                }
+            }
+            s.append(" effects ").append(names(a.getEffects())).append('\n');
+            if (a.getCrossRunSet() != null) {
+                s.append(" crossRuns ").append(a.getCrossRunSet().getRefs()).append(names(a.getCrossRunSet().getElements()))
+                        .append('\n');
+            }
+            if (a.getExportedSet() != null) {
+                for (Export e : a.getExportedSet().getExports()) {
+                    s.append(" export ").append(e.getRef()).append(' ').append(e.isContinuous()).append(' ')
+                            .append(e.getMinVal()).append(' ').append(e.getMaxVal()).append(' ')
+                            .append(e.getElement() == null ? null : e.getElement().getName()).append('\n');
+                }
+            }
+            if (a.getInitializationSet() != null) {
+                for (Initialization i : a.getInitializationSet().getInitializations()) {
+                    s.append(" init ").append(i.getRef()).append('=').append(i.getValue()).append(' ')
+                            .append(i.getElement() == null ? null : i.getElement().getName()).append('\n');
+                }
+            }
+        }
+        return s.toString();
+    }
+
+    private static String atom(Element e) {
+        Atom a = e.getAtom();
+        return a.getTitleText() + "|" + a.getTitleHTMLText() + "|" + a.getDescription() + "|" + (a.getElement() == e);
+    }
+
+    private static String parent(DecompositionElement e) {
+        return e.getParent() == null ? "-" : e.getParent().getName();
+    }
+
+    private static String names(List<? extends Element> elements) {
+        List<String> names = new ArrayList<>();
+        for (Element e : elements) {
+            names.add(e.getClass().getSimpleName() + ":" + e.getName());
+        }
+        return names.toString();
+    }
+
+    private static String variables(Map<Variable, Float> variables) {
+        Map<String, Float> names = new TreeMap<>();
+        for (Map.Entry<Variable, Float> e : variables.entrySet()) {
+            names.put(e.getKey() == null ? "null" : e.getKey().getName(), e.getValue());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Describes a formula down to its classes and the elements its atoms stand for.
+     */
+    private static String formula(Formula f) {
+        if (f == null) {
+            return "null";
+        }
+        if (f instanceof Atom) {
+            Element e = ((Atom) f).getElement();
+            return "Atom(" + e.getClass().getSimpleName() + ":" + e.getName() + ")";
+        }
+        if (f instanceof OperatorDecorator) {
+            OperatorDecorator o = (OperatorDecorator) f;
+            return f.getClass().getSimpleName() + "(" + formula(o.getLeft())
+                    + (o.getRight() != null ? ", " + formula(o.getRight()) : "") + ")";
+        }
+        return f.getClass().getSimpleName() + ":" + f.getFormula();
+    }
+}
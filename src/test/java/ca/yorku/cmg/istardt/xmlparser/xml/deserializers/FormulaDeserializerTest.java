@@ -0,0 +1,48 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.deserializers;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+import ca.yorku.cmg.istardt.xmlparser.xml.formula.UnresolvedReference;
+
+public class FormulaDeserializerTest {
+    private final XmlMapper mapper = new XmlMapper();
+    private final FormulaDeserializer deserializer = new FormulaDeserializer();
+
+    private Formula deserialize(String xml) throws Exception {
+        JsonNode node = mapper.readTree(xml);
+        return deserializer.deserialize(node);
+    }
+
+    @Test
+    public void testDispatchesOnElementName() throws Exception {
+        assertEquals(NumericConstant.class, deserialize("<pre><numConst>2</numConst></pre>").getClass());
+        assertEquals(UnresolvedReference.class, deserialize("<pre><predicateID>p</predicateID></pre>").getClass());
+        assertEquals("Unknown Formula", deserialize("<pre><foo>1</foo></pre>").getFormula());
+
+        // attributes and other fields next to the formula are ignored
+        Formula f = deserialize("<quality name=\"q\" root=\"true\"><add><numConst>1</numConst>"
+                + "<variableID>v</variableID><numConst>2</numConst></add></quality>");
+        assertTrue(f instanceof PlusOperator);
+        // repeated elements are grouped at their first occurrence
+        assertEquals("v", ((PlusOperator) f).getRight().getFormula());
+    }
+
+    @Test
+    public void testOperands() throws Exception {
+        Formula f = deserialize("<pre><not><gt><left><qualID>q</qualID></left><right><numConst>3</numConst></right>"
+                + "</gt></not></pre>");
+        assertTrue(f instanceof NOTOperator);
+        GTOperator gt = (GTOperator) ((NOTOperator) f).getLeft();
+        assertEquals(UnresolvedReference.class, gt.getLeft().getClass());
+        assertEquals(NumericConstant.class, gt.getRight().getClass());
+
+        Formula negated = deserialize("<pre><negate><variableID>v</variableID></negate></pre>");
+        assertTrue(negated instanceof NegateOperator);
+        assertEquals("v", ((NegateOperator) negated).getLeft().getFormula());
+    }
+}
@@ -0,0 +1,139 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.snapshot;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.yorku.cmg.istardt.translators.dtx2dtg.com2dtg;
+import ca.yorku.cmg.istardt.xmlparser.objects.*;
+import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
+import ca.yorku.cmg.istardt.xmlparser.xml.ModelLoader;
+import ca.yorku.cmg.istardt.xmlparser.xml.StreamingUnmarshallerTest;
+import ca.yorku.cmg.istardt.xmlparser.xml.validation.SchemaValidator;
+
+public class ModelCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        for (boolean compact : new boolean[] {false, true}) {
+            IStarUnmarshaller unmarshaller = new IStarUnmarshaller(false, compact);
+            for (File f : StreamingUnmarshallerTest.fixtures()) {
+                Model model = unmarshaller.unmarshalToModel(f);
+                Model copy = ModelSnapshot.read(ByteBuffer.wrap(ModelSnapshot.write(model, null, List.of())));
+                assertEquals(StreamingUnmarshallerTest.describe(model), StreamingUnmarshallerTest.describe(copy), f.getName());
+                if (f.getName().endsWith(".istardtx")) {
+                    assertEquals(translate(model), translate(copy), f.getName());
+                }
+
+                // links go to the same objects, as after unmarshalling
+                for (Actor actor : copy.getActors()) {
+                    for (Goal goal : actor.getGoals()) {
+                        for (DecompositionElement child : goal.getChildren()) {
+                            assertSame(goal, child.getParent());
+                            assertTrue(actor.getGoals().contains(child) || actor.getTasks().contains(child));
+                        }
+                    }
+                    for (Task task : actor.getTasks()) {
+                        assertEquals(compact, task.getAtom().isTitleHTMLDerived(), f.getName());
+                        for (Effect effect : task.getEffects()) {
+                            assertSame(task, effect.getTask());
+                            assertSame(actor.getEffects().get(0).getVariableSet(), effect.getVariableSet());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnchangedFilesAreLoadedFromTheirSnapshot() throws Exception {
+        File input = dir.resolve("model.istardtx").toFile();
+        Files.copy(new File("src/test/resources/dtx2dtg/3.1.Heating_1R_Mixed.istardtx").toPath(), input.toPath());
+        ModelCache cache = new ModelCache(dir.resolve("cache").toFile());
+        ModelLoader validating = new ModelLoader(new IStarUnmarshaller(), SchemaValidator.getInstance());
+        ModelLoader unchecked = new ModelLoader(new IStarUnmarshaller(), null);
+
+        String expected = translate(validating.load(input));
+        File snapshot = cache.getSnapshotFile(Files.readAllBytes(input.toPath()), validating);
+        assertFalse(snapshot.exists());
+        assertEquals(expected, translate(cache.load(input, validating)));
+        assertTrue(snapshot.isFile());
+
+        // a file that is not a snapshot any more is read from the document again, and replaced
+        Files.write(snapshot.toPath(), new byte[] {1, 2, 3});
+        assertEquals(expected, translate(cache.load(input, unchecked)));
+        assertFalse(ModelSnapshot.isValidated(ByteBuffer.wrap(Files.readAllBytes(snapshot.toPath()))));
+
+        // not good enough for a validating loader, which checks the document and caches it again
+        long modified = snapshot.lastModified();
+        assertEquals(expected, translate(cache.load(input, validating)));
+        assertTrue(ModelSnapshot.isValidated(ByteBuffer.wrap(Files.readAllBytes(snapshot.toPath()))));
+
+        // the snapshot is used as long as the content is the same
+        snapshot.setLastModified(modified - 10000);
+        modified = snapshot.lastModified();
+        assertEquals(expected, translate(cache.load(input, validating)));
+        assertEquals(modified, snapshot.lastModified());
+
+        Files.writeString(input.toPath(), Files.readString(input.toPath()) + "\n");
+        cache.load(input, validating);
+        assertEquals(2, cache.getDirectory().listFiles().length);
+    }
+
+    @Test
+    public void testSnapshotsAreKeptPerModeAndRules() throws Exception {
+        File input = dir.resolve("model.istardtx").toFile();
+        Files.copy(new File("src/test/resources/dtx2dtg/3.1.Heating_1R_Mixed.istardtx").toPath(), input.toPath());
+        byte[] content = Files.readAllBytes(input.toPath());
+        ModelCache cache = new ModelCache(dir.resolve("cache").toFile());
+        ModelLoader regular = new ModelLoader(new IStarUnmarshaller(false, false), SchemaValidator.getInstance());
+        ModelLoader compact = new ModelLoader(new IStarUnmarshaller(false, true), SchemaValidator.getInstance());
+        ModelLoader schematron = new ModelLoader(new IStarUnmarshaller(false, false), SchemaValidator.getInstance());
+        schematron.setUseSchematron(true);
+
+        // a compact model is not served from the snapshot of a regular one
+        assertNotEquals(cache.getSnapshotFile(content, regular), cache.getSnapshotFile(content, compact));
+        cache.load(input, regular);
+        Model model = cache.load(input, compact);
+        assertTrue(cache.getSnapshotFile(content, compact).isFile());
+        assertTrue(model.getActors().get(0).getTasks().get(0).getAtom().isTitleHTMLDerived());
+
+        // nor is a model checked against other rules
+        File snapshot = cache.getSnapshotFile(content, regular);
+        assertEquals(snapshot, cache.getSnapshotFile(content, schematron));
+        cache.load(input, schematron);
+        assertEquals(schematron.getRules(), ModelSnapshot.getRules(ByteBuffer.wrap(Files.readAllBytes(snapshot.toPath()))));
+        assertNotEquals(regular.getRules(), schematron.getRules());
+    }
+
+    @Test
+    public void testWarningsAreKeptWithTheSnapshot() throws Exception {
+        File input = new File("src/test/resources/dtx2dtg/3.1.Heating_1R_Mixed.istardtx");
+        ModelLoader loader = new ModelLoader(new IStarUnmarshaller(), SchemaValidator.getInstance());
+        List<String> warnings = new ArrayList<>();
+        Model model = loader.load(ModelLoader.parse(input), warnings);
+        assertFalse(warnings.isEmpty());
+
+        byte[] data = ModelSnapshot.write(model, loader.getRules(), warnings);
+        assertEquals(loader.getRules(), ModelSnapshot.getRules(ByteBuffer.wrap(data)));
+        assertEquals(warnings, ModelSnapshot.getWarnings(ByteBuffer.wrap(data)));
+        assertEquals(translate(model), translate(ModelSnapshot.read(ByteBuffer.wrap(data))));
+    }
+
+    private static String translate(Model model) throws Exception {
+        StringWriter out = new StringWriter();
+        new com2dtg(model, "").translate(false, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomLoggerTest {
+    private final CustomLogger logger = CustomLogger.getInstance();
+    private final PrintStream err = System.err;
+
+    @AfterEach
+    public void restore() {
+        logger.setAsync(false);
+        logger.setDebugEnabled(false);
+        System.setErr(err);
+    }
+
+    @Test
+    public void testMessagesBuiltOnlyWhenLogged() {
+        AtomicInteger built = new AtomicInteger();
+        logger.setDebugEnabled(false);
+        logger.info(getClass(), () -> "info " + built.incrementAndGet());
+        assertEquals(0, built.get());
+
+        logger.setLevel(CustomLogger.Level.ERROR);
+        assertFalse(logger.isEnabled(CustomLogger.Level.WARNING));
+        logger.warning(getClass(), () -> "warning " + built.incrementAndGet());
+        assertEquals(0, built.get());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(out, true));
+        logger.setLevel(CustomLogger.Level.WARNING);
+        logger.warning(getClass(), () -> "warning " + built.incrementAndGet());
+        assertEquals(1, built.get());
+        assertTrue(out.toString().contains("[WARNING] CustomLoggerTest: warning 1"), out.toString());
+    }
+
+    @Test
+    public void testAsyncKeepsEveryMessageInOrder() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(out, true));
+        logger.setAsync(true);
+        assertTrue(logger.isAsync());
+        for (int i = 0; i < 20000; i++) {
+            logger.warning(getClass(), "message " + i);
+        }
+        logger.flush();
+        logger.setAsync(false);
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(20000, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].endsWith("CustomLoggerTest: message " + i), lines[i]);
+        }
+    }
+
+    @Test
+    public void testNoMessageLostWhenTurnedOff() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(out, true));
+        logger.setAsync(true);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    logger.warning(getClass(), "message " + i);
+                }
+            });
+            threads[t].start();
+        }
+        Thread.sleep(5);
+        logger.setAsync(false);
+        for (Thread t : threads) {
+            t.join();
+        }
+        logger.flush();
+
+        assertEquals(20000, out.toString().split(System.lineSeparator()).length);
+    }
+}
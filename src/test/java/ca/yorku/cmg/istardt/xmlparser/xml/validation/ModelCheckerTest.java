@@ -0,0 +1,163 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.validation;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.yorku.cmg.istardt.xmlparser.objects.Model;
+import ca.yorku.cmg.istardt.xmlparser.xml.IStarUnmarshaller;
+
+/**
+ * Holds the {@link ModelChecker} to the verdicts of the Schematron rules.
+ */
+public class ModelCheckerTest {
+    private static final File ORDER = new File("src/test/resources/dtx2dtg/1.Order.istardtx");
+    private static final File TRAVEL = new File("src/test/resources/dtx2dtg/4.1.OrganizeTravel.istardtx");
+
+    /*
+     * Where the checker words an error differently from Schematron: a pattern matching
+     * the whole error, location included, and its rewrite to a wording common to both.
+     * Schematron words unknown export, cross-run and formula references alike, and only
+     * the location tells them apart; the checker does not know the name of an unresolved
+     * formula reference, but names the element whose formula it is in.
+     */
+    private static final String[][] SCHEMATRON_WORDING = {
+        {"^\\w+ID \"(\\w+)\" does not match any <\\w+ name=\"\\.\\.\\.\">\\. \\[.*/Q\\{[^}]*\\}exportedSet\\[.*", "export $1 does not match"},
+        {"^\\w+ID \"(\\w+)\" does not match any <\\w+ name=\"\\.\\.\\.\">\\. \\[.*/Q\\{[^}]*\\}crossRuns\\[.*", "crossRun $1 does not match"},
+        {"^(\\w+ID) \"\\w+\" does not match any <\\w+ name=\"\\.\\.\\.\">\\. \\[.*", "$1 in a formula does not match"},
+    };
+    private static final String[][] CHECKER_WORDING = {
+        {"^export .(\\w+). does not match any element\\. \\[.*", "export $1 does not match"},
+        {"^crossRun .(\\w+). does not match any <quality>, <predicate>, <variable> or <condBox>\\. \\[.*", "crossRun $1 does not match"},
+        {"^(\\w+ID) in the formula of \\w+ \"\\w+\" does not match any element of its kind\\. \\[.*", "$1 in a formula does not match"},
+    };
+
+    private final IStarUnmarshaller unmarshaller = new IStarUnmarshaller();
+    private final ModelChecker checker = new ModelChecker();
+    private long schematronNanos, checkerNanos;
+
+    /**
+     * The test resources, and variants of two of them breaking one rule each.
+     */
+    private Map<String, String> getDocuments() throws Exception {
+        Map<String, String> docs = new LinkedHashMap<>();
+        for (String dir : new String[] {"src/test/resources/dtx2dtg", "src/test/resources/xml"}) {
+            for (File f : new File(dir).listFiles((d, n) -> n.endsWith(".istardtx") || n.endsWith(".xml"))) {
+                docs.put(f.getName(), Files.readString(f.toPath()));
+            }
+        }
+        String order = Files.readString(ORDER.toPath());
+        String travel = Files.readString(TRAVEL.toPath());
+        docs.put("probability sum", order.replaceFirst("probability = \"0.75\"", "probability = \"0.5\""));
+        docs.put("unknown turnsTrue", order.replaceFirst("<turnsTrue>(\\w+)</turnsTrue>", "<turnsTrue>$1X</turnsTrue>"));
+        docs.put("missing episodeLength", travel.replaceFirst("episodeLength\\s*=\\s*\"\\d+\"", ""));
+        docs.put("duplicate name", travel.replaceFirst("<quality name\\s*=\\s*\"(\\w+)\"", "<quality name=\"bookTickets\""));
+        docs.put("unknown childGoal", travel.replaceFirst("<childGoal ref\\s*=\\s*\"(\\w+)\"", "<childGoal ref=\"$1X\""));
+        docs.put("unknown childTask", travel.replaceFirst("<childTask ref\\s*=\\s*\"(\\w+)\"", "<childTask ref=\"$1X\""));
+        docs.put("unknown formula goal", travel.replaceFirst("<goalID>(\\w+)</goalID>", "<goalID>$1X</goalID>"));
+        docs.put("unknown initialization", order.replaceFirst("<initialization element\\s*=\\s*\"(\\w+)\"", "<initialization element=\"$1X\""));
+        docs.put("unknown export", travel.replaceFirst("(<exportedSet>\\s*<export[^>]*>\\s*<\\w+>)(\\w+)", "$1$2X"));
+        return docs;
+    }
+
+    private List<String> schematronErrors(String xml) throws Exception {
+        long start = System.nanoTime();
+        try {
+            SchemaValidator.getInstance().validateSchematron(new StreamSource(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+            return new ArrayList<>();
+        } catch (ValidationException e) {
+            return e.getErrors();
+        } finally {
+            schematronNanos += System.nanoTime() - start;
+        }
+    }
+
+    private List<String> checkerErrors(String xml) throws Exception {
+        Model model = unmarshaller.unmarshalToModel(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        long start = System.nanoTime();
+        try {
+            return checker.check(model, null);
+        } finally {
+            checkerNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Rewrites an error to the form it is compared in: without its location (the XPath
+     * of Schematron, the actor of the checker) and, where the two word it differently,
+     * in a common wording.
+     */
+    private static String normalize(String error, String[][] wording) {
+        for (String[] w : wording) {
+            if (error.matches(w[0])) {
+                return error.replaceFirst(w[0], w[1]);
+            }
+        }
+        return error.replaceFirst(" \\[(/|actor ).*\\]$", "");
+    }
+
+    private static List<String> normalize(List<String> errors, String[][] wording) {
+        List<String> result = new ArrayList<>();
+        for (String e : errors) {
+            result.add(normalize(e, wording));
+        }
+        // the checker goes rule by rule, Schematron in document order
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void testVerdictsMatchSchematron() throws Exception {
+        SchemaValidator.getInstance().getSchematronTemplates();
+        for (Map.Entry<String, String> doc : getDocuments().entrySet()) {
+            List<String> expected = normalize(schematronErrors(doc.getValue()), SCHEMATRON_WORDING);
+            List<String> actual = normalize(checkerErrors(doc.getValue()), CHECKER_WORDING);
+            assertEquals(expected, actual, doc.getKey());
+            if (!doc.getKey().contains(".")) {
+                assertFalse(expected.isEmpty(), doc.getKey() + " should break a rule");
+            }
+        }
+    }
+
+    /**
+     * Reports the time Schematron and the checker take on the test documents.
+     * Run with {@code -Distardt.benchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "istardt.benchmark", matches = "true")
+    public void benchmarkAgainstSchematron() throws Exception {
+        SchemaValidator.getInstance().getSchematronTemplates();
+        Map<String, String> docs = getDocuments();
+        for (int i = 0; i < 5; i++) {
+            schematronNanos = 0;
+            checkerNanos = 0;
+            for (String xml : docs.values()) {
+                schematronErrors(xml);
+                checkerErrors(xml);
+            }
+        }
+        System.out.printf("Schematron: %d us, checker: %d us (%.1fx)%n", schematronNanos / 1000, checkerNanos / 1000,
+                (double) schematronNanos / Math.max(1, checkerNanos));
+    }
+
+    @Test
+    public void testErrorsNameTheOffendingElement() throws Exception {
+        String xml = Files.readString(TRAVEL.toPath()).replaceFirst("<childGoal ref\\s*=\\s*\"(\\w+)\"", "<childGoal ref=\"missing\"");
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> checker.validate(unmarshaller.unmarshalToModel(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))));
+        assertEquals(ValidationException.Stage.RULES, e.getStage());
+        assertTrue(e.getMessage().contains("childGoal ref=\"missing\""), e.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package ca.yorku.cmg.istardt.xmlparser.xml.validation;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaValidatorTest {
+    private static final File XSD = new File("src/main/resources/xsd/istar_dt_x_schema.xsd");
+    private static final File SCHEMATRON = new File("src/main/resources/schematron/istar_dt_x_schematron.sch");
+    private static final Path ORDER = Path.of("src/test/resources/dtx2dtg/1.Order.istardtx");
+
+    private StreamSource source(String xml) {
+        return new StreamSource(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSchemasAreCompiledOncePerProcess() throws Exception {
+        SchemaValidator validator = SchemaValidator.getInstance(XSD, SCHEMATRON);
+        assertSame(validator, SchemaValidator.getInstance(XSD, SCHEMATRON));
+
+        validator.validate(ORDER.toFile());
+        assertSame(validator.getSchema(), validator.getSchema());
+        assertSame(validator.getSchematronTemplates(), validator.getSchematronTemplates());
+    }
+
+    @Test
+    public void testPackagedSchemasValidate() throws Exception {
+        SchemaValidator.getInstance().validate(ORDER.toFile());
+    }
+
+    @Test
+    public void testBuildPrecompilesSchematron() throws Exception {
+        SchemaValidator validator = SchemaValidator.getInstance();
+        assertTrue(validator.isPrecompiled(), "The build should package " + SchematronCompiler.COMPILED_RESOURCE);
+
+        String xml = Files.readString(ORDER).replaceFirst("probability = \"0.75\"", "probability = \"0.5\"");
+        ValidationException e = assertThrows(ValidationException.class, () -> validator.validateSchematron(source(xml)));
+        assertTrue(e.getMessage().contains("effectGroup"), e.getMessage());
+    }
+
+    @Test
+    public void testXsdErrorsAreReported() throws Exception {
+        String xml = Files.readString(ORDER).replaceFirst("<actor ", "<actr ").replaceFirst("</actor>", "</actr>");
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> SchemaValidator.getInstance(XSD, SCHEMATRON).validateXsd(source(xml)));
+        assertFalse(e.getErrors().isEmpty());
+    }
+
+    @Test
+    public void testSchematronErrorsAreReported() throws Exception {
+        String xml = Files.readString(ORDER).replaceFirst("probability = \"0.75\"", "probability = \"0.5\"");
+        SchemaValidator validator = SchemaValidator.getInstance(XSD, SCHEMATRON);
+        validator.validateXsd(source(xml));
+        ValidationException e = assertThrows(ValidationException.class, () -> validator.validateSchematron(source(xml)));
+        assertTrue(e.getMessage().contains("effectGroup"), e.getMessage());
+    }
+}